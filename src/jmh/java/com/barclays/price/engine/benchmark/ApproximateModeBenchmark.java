@@ -0,0 +1,128 @@
+package com.barclays.price.engine.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.barclays.price.engine.logic.ApproximatePricingKernel;
+import com.barclays.price.engine.logic.PricingKernel;
+
+/**
+ * Exact against approximate initial pricing of products with many quotes.
+ * Quotes cluster on a few popular prices of decreasing popularity, over a
+ * spread of one-off prices and outliers. The accuracy of the approximate
+ * kernel over the generated products, the share of products priced the same
+ * and the largest relative price error, is printed once per trial.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ApproximateModeBenchmark {
+
+	private static final int PRODUCT_COUNT = 32;
+	private static final int POPULAR_PRICE_COUNT = 20;
+
+	@State(Scope.Thread)
+	public static class Quotes {
+
+		@Param({ "10000", "100000" })
+		public int quoteCount;
+
+		@Param({ "64", "256" })
+		public int counters;
+
+		double[][] prices;
+		double[] averagePrices;
+		PricingKernel exactKernel;
+		ApproximatePricingKernel approximateKernel;
+		private int next;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			Random random = new Random(42);
+			prices = new double[PRODUCT_COUNT][quoteCount];
+			averagePrices = new double[PRODUCT_COUNT];
+			for (int product = 0; product < PRODUCT_COUNT; product++) {
+				double basePrice = 100.0 + random.nextInt(1000);
+				double sum = 0.0;
+				for (int i = 0; i < quoteCount; i++) {
+					double price;
+					int draw = random.nextInt(100);
+					if (draw < 60) {
+						// Popular price of rank r drawn with probability about 1 / (r + 1)
+						int rank = (int) Math.pow(POPULAR_PRICE_COUNT + 1, random.nextDouble()) - 1;
+						price = basePrice + rank * 0.25;
+					} else if (draw < 95) {
+						price = basePrice + random.nextInt(100000) * 0.01;
+					} else {
+						price = basePrice * (random.nextBoolean() ? 3.0 : 0.1);
+					}
+					prices[product][i] = price;
+					sum += price;
+				}
+				averagePrices[product] = sum / quoteCount;
+			}
+
+			exactKernel = new PricingKernel();
+			approximateKernel = new ApproximatePricingKernel(counters);
+			reportAccuracy();
+		}
+
+		int nextProduct() {
+			int product = next;
+			next = (next + 1 == PRODUCT_COUNT) ? 0 : next + 1;
+			return product;
+		}
+
+		double priceExactly(int product) {
+			double[] workBuffer = exactKernel.workBuffer(quoteCount);
+			System.arraycopy(prices[product], 0, workBuffer, 0, quoteCount);
+			return exactKernel.calculateInitialProductPrice(workBuffer, quoteCount);
+		}
+
+		double priceApproximately(int product) {
+			return approximateKernel.calculateInitialProductPrice(prices[product], quoteCount, averagePrices[product]);
+		}
+
+		private void reportAccuracy() {
+			int samePrices = 0;
+			double maxRelativeError = 0.0;
+			for (int product = 0; product < PRODUCT_COUNT; product++) {
+				double exactPrice = priceExactly(product);
+				double approximatePrice = priceApproximately(product);
+				if (exactPrice == approximatePrice) {
+					samePrices++;
+				}
+				maxRelativeError = Math.max(maxRelativeError, Math.abs(approximatePrice - exactPrice) / exactPrice);
+			}
+			System.out.printf("%nquotes %d, counters %d: %d/%d products priced the same, max relative error %.6f%n",
+					quoteCount, counters, samePrices, PRODUCT_COUNT, maxRelativeError);
+		}
+
+	}
+
+	@Benchmark
+	public double calculateExactInitialPrice(Quotes quotes) {
+		return quotes.priceExactly(quotes.nextProduct());
+	}
+
+	@Benchmark
+	public double calculateApproximateInitialPrice(Quotes quotes) {
+		return quotes.priceApproximately(quotes.nextProduct());
+	}
+
+}
@@ -0,0 +1,36 @@
+package com.barclays.price.engine.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.barclays.price.engine.domain.Product;
+
+/**
+ * Pricing of the whole catalogue, product by product and in one batch.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CataloguePricingBenchmark {
+
+	@Benchmark
+	public Map<Product, Double> calculateAllPrices(CatalogueState catalogue) {
+		return catalogue.company.calculateAllPrices();
+	}
+
+	@Benchmark
+	public Map<Product, Double> calculateAllPricesInBatch(CatalogueState catalogue) {
+		return catalogue.company.calculateAllPricesInBatch();
+	}
+
+}
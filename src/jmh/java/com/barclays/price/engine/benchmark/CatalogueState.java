@@ -0,0 +1,52 @@
+package com.barclays.price.engine.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.barclays.price.engine.domain.Company;
+import com.barclays.price.engine.domain.Product;
+
+/**
+ * Synthetic catalogue written to a temporary products file and loaded into a
+ * company once per trial.
+ */
+@State(Scope.Benchmark)
+public class CatalogueState {
+
+	@Param({ "1000", "10000" })
+	public int productCount;
+
+	@Param({ "10", "100" })
+	public int competitorCount;
+
+	@Param({ "0.0", "0.1" })
+	public double outlierRatio;
+
+	public Path productsFile;
+	public Company company;
+	public Product[] products;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		productsFile = Files.createTempFile("products", ".txt");
+		new SyntheticCatalogue(productCount, competitorCount, outlierRatio, 42).write(productsFile);
+
+		company = new Company();
+		company.createObjectsFromFileData(productsFile.toString());
+		products = company.getProducts().values().toArray(new Product[0]);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(productsFile);
+	}
+
+}
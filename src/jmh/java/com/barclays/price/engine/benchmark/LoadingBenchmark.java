@@ -0,0 +1,52 @@
+package com.barclays.price.engine.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.barclays.price.engine.domain.Company;
+import com.barclays.price.engine.loader.MappedProductFileLoader;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadingBenchmark {
+
+	@Benchmark
+	public Company createObjectsFromFileData(CatalogueState catalogue) throws IOException {
+		Company company = new Company();
+		company.createObjectsFromFileData(catalogue.productsFile.toString());
+		return company;
+	}
+
+	/**
+	 * Number of threads parsing the competitor section and recording its quotes.
+	 */
+	@State(Scope.Benchmark)
+	public static class Loader {
+
+		@Param({ "1", "2", "4", "8" })
+		public int parallelism;
+
+	}
+
+	@Benchmark
+	public Company loadMappedFile(CatalogueState catalogue, Loader loader) throws IOException {
+		Company company = new Company();
+		new MappedProductFileLoader(loader.parallelism).load(company, catalogue.productsFile);
+		return company;
+	}
+
+}
@@ -0,0 +1,84 @@
+package com.barclays.price.engine.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.barclays.price.engine.domain.Product;
+
+/**
+ * Pricing pipeline stages, each invocation working on the next product of the
+ * catalogue in turn. Stages after collection get their input prepared before
+ * each invocation, so only the stage itself is measured.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PricingBenchmark {
+
+	@State(Scope.Thread)
+	public static class Cursor {
+
+		private int next;
+
+		Product nextProduct(CatalogueState catalogue) {
+			Product product = catalogue.products[next];
+			next = (next + 1 == catalogue.products.length) ? 0 : next + 1;
+			return product;
+		}
+
+	}
+
+	/**
+	 * Collected prices of the next product, copied afresh for every invocation
+	 * since filtering removes from the list.
+	 */
+	@State(Scope.Thread)
+	public static class CollectedPrices {
+
+		private List<Double> prices;
+
+		@Setup(Level.Invocation)
+		public void collect(CatalogueState catalogue, Cursor cursor) {
+			prices = new ArrayList<Double>(
+					catalogue.company.collectCompetitorsPriceList(cursor.nextProduct(catalogue)));
+		}
+
+	}
+
+	@Benchmark
+	public List<Double> collectCompetitorsPriceList(CatalogueState catalogue, Cursor cursor) {
+		return catalogue.company.collectCompetitorsPriceList(cursor.nextProduct(catalogue));
+	}
+
+	@Benchmark
+	public List<Double> filterPrices(CatalogueState catalogue, CollectedPrices collectedPrices) {
+		catalogue.company.filterPrices(collectedPrices.prices);
+		return collectedPrices.prices;
+	}
+
+	@Benchmark
+	public double calculateMode(CatalogueState catalogue, CollectedPrices collectedPrices) {
+		return catalogue.company.calculateMode(collectedPrices.prices);
+	}
+
+	@Benchmark
+	public double calculatePriceForProduct(CatalogueState catalogue, Cursor cursor) {
+		return catalogue.company.calculatePriceForProduct(cursor.nextProduct(catalogue));
+	}
+
+}
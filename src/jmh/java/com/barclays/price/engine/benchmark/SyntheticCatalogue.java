@@ -0,0 +1,71 @@
+package com.barclays.price.engine.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Generates products files shaped like products.txt: every competitor quotes
+ * every product around a base price, with a few common price points so that a
+ * mode exists, and the given ratio of quotes far outside the average band.
+ */
+public class SyntheticCatalogue {
+
+	private static final String[] MARKET_CONDITIONS = { "H H", "H L", "L H", "L L" };
+	private static final double[] PRICE_STEPS = { 0.97, 0.99, 1.0, 1.0, 1.01, 1.03 };
+
+	private final int productCount;
+	private final int competitorCount;
+	private final double outlierRatio;
+	private final long seed;
+
+	public SyntheticCatalogue(int productCount, int competitorCount, double outlierRatio, long seed) {
+		this.productCount = productCount;
+		this.competitorCount = competitorCount;
+		this.outlierRatio = outlierRatio;
+		this.seed = seed;
+	}
+
+	public static String productName(int product) {
+		return "Product" + product;
+	}
+
+	public static String competitorName(int competitor) {
+		return "Competitor" + competitor;
+	}
+
+	public void write(Path path) throws IOException {
+		Random random = new Random(seed);
+
+		try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+			writer.write(Integer.toString(productCount));
+			writer.newLine();
+			for (int product = 0; product < productCount; product++) {
+				writer.write(productName(product) + " " + MARKET_CONDITIONS[product % MARKET_CONDITIONS.length]);
+				writer.newLine();
+			}
+
+			writer.write(Integer.toString(productCount * competitorCount));
+			writer.newLine();
+			for (int product = 0; product < productCount; product++) {
+				double basePrice = 100.0 + random.nextInt(100000);
+				for (int competitor = 0; competitor < competitorCount; competitor++) {
+					writer.write(productName(product) + " " + competitorName(competitor) + " "
+							+ quote(random, basePrice));
+					writer.newLine();
+				}
+			}
+		}
+	}
+
+	private double quote(Random random, double basePrice) {
+		if (random.nextDouble() < outlierRatio) {
+			return random.nextBoolean() ? basePrice * 4 : Math.floor(basePrice / 5);
+		}
+		return Math.floor(basePrice * PRICE_STEPS[random.nextInt(PRICE_STEPS.length)]);
+	}
+
+}
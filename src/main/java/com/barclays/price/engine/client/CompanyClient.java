@@ -1,21 +1,90 @@
 package com.barclays.price.engine.client;
 
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Map;
+
+import javax.management.JMException;
+
 import com.barclays.price.engine.domain.Company;
 import com.barclays.price.engine.domain.Product;
+import com.barclays.price.engine.metrics.PipelineStage;
+import com.barclays.price.engine.metrics.RecordingPricingMetrics;
+import com.barclays.price.engine.publish.PriceOutputFormat;
+import com.barclays.price.engine.publish.PricePublisher;
 
+/**
+ * Prices the products of products.txt and prints every chosen price. Given
+ * "--changes snapshotFile outputFile [csv|binary]" it instead writes only the
+ * prices changed since the run that left the snapshot file, and given
+ * "--snapshot" in place of "--changes" it writes all of them; see
+ * {@link PricePublisher}.
+ */
 public class CompanyClient {
 
-	public static void main(String[] args) throws IOException {
+	private static final String USAGE =
+			"Usage: CompanyClient [(--changes|--snapshot) snapshotFile outputFile [csv|binary]]";
+
+	public static void main(String[] args) throws IOException, JMException {
+		PriceOutputFormat format = PriceOutputFormat.CSV;
+		boolean publish = args.length > 0;
+		if (publish) {
+			boolean valid = (args.length == 3 || args.length == 4)
+					&& ("--changes".equals(args[0]) || "--snapshot".equals(args[0]));
+			if (valid && args.length == 4) {
+				format = parseFormat(args[3]);
+				valid = format != null;
+			}
+			if (!valid) {
+				System.err.println(USAGE);
+				return;
+			}
+		}
+
+		RecordingPricingMetrics metrics = new RecordingPricingMetrics();
+		metrics.registerMBean(RecordingPricingMetrics.DEFAULT_OBJECT_NAME);
 		Company company = new Company();
+		company.setMetrics(metrics);
 		company.createObjectsFromFileData("products.txt");
 		System.out.println("Number of products generated: " + company.getProducts().size());
 		System.out.println("Number of competitors generated: " + company.getCompetitors().size() + "\n");
 
-		for (Product product : company.getProducts().values()) {
-			double chosenPrice = company.calculatePriceForProduct(product);
-			System.out.println("Chosen price for product " + "'" + product.getName() + "' is: " + chosenPrice);
+		if (publish) {
+			PricePublisher publisher = new PricePublisher(Paths.get(args[1]), format);
+			if ("--changes".equals(args[0])) {
+				System.out.println("Published " + publisher.publishChanges(company, Paths.get(args[2]))
+						+ " changed prices to " + args[2]);
+			} else {
+				System.out.println("Published " + publisher.publishSnapshot(company, Paths.get(args[2]))
+						+ " prices to " + args[2]);
+			}
+		} else {
+			for (Map.Entry<Product, Double> productPrice : company.calculateAllPrices().entrySet()) {
+				System.out.println("Chosen price for product " + "'" + productPrice.getKey().getName() + "' is: "
+						+ productPrice.getValue());
+			}
+		}
+
+		System.out.println("\nLoaded " + metrics.getLoadedLines() + " lines at "
+				+ (long) metrics.getLoadLinesPerSecond() + " lines/s");
+		System.out.println("Mean quotes per product: " + metrics.getMeanQuotesPerProduct()
+				+ ", mean outliers removed per product: " + metrics.getMeanOutliersRemovedPerProduct());
+		for (PipelineStage stage : PipelineStage.values()) {
+			System.out.println(stage + ": mean " + (long) metrics.getStageLatencies(stage).getMean() + " ns, p99 "
+					+ metrics.getStageLatencies(stage).getPercentile(99) + " ns");
+		}
+	}
+
+	/**
+	 * Returns the format of the given name in any case, or null if there is none.
+	 */
+	private static PriceOutputFormat parseFormat(String name) {
+		for (PriceOutputFormat format : PriceOutputFormat.values()) {
+			if (format.name().equalsIgnoreCase(name)) {
+				return format;
+			}
 		}
+		return null;
 	}
 
 }
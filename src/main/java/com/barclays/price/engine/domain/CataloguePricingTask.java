@@ -0,0 +1,48 @@
+package com.barclays.price.engine.domain;
+
+import java.util.concurrent.RecursiveAction;
+
+import com.barclays.price.engine.logic.PricingKernel;
+
+/**
+ * Fork-join task pricing a range of the catalogue. Ranges are split in halves
+ * until they are small enough to be priced by a single kernel; every product
+ * writes its price to its own slot, so the result does not depend on the order
+ * in which ranges are run.
+ */
+class CataloguePricingTask extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int PRODUCTS_PER_TASK = 256;
+
+	private final Company company;
+	private final Product[] catalogue;
+	private final double[] chosenPrices;
+	private final int from;
+	private final int to;
+
+	CataloguePricingTask(Company company, Product[] catalogue, double[] chosenPrices, int from, int to) {
+		this.company = company;
+		this.catalogue = catalogue;
+		this.chosenPrices = chosenPrices;
+		this.from = from;
+		this.to = to;
+	}
+
+	@Override
+	protected void compute() {
+		if (to - from <= PRODUCTS_PER_TASK) {
+			PricingKernel pricingKernel = new PricingKernel();
+			for (int i = from; i < to; i++) {
+				chosenPrices[i] = company.calculatePriceForProduct(catalogue[i], pricingKernel);
+			}
+			return;
+		}
+
+		int middle = (from + to) >>> 1;
+		invokeAll(new CataloguePricingTask(company, catalogue, chosenPrices, from, middle),
+				new CataloguePricingTask(company, catalogue, chosenPrices, middle, to));
+	}
+
+}
@@ -1,33 +1,89 @@
 package com.barclays.price.engine.domain;
 
 import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import com.barclays.price.engine.exception.InvalidMarketConditionStringException;
+import com.barclays.price.engine.logic.ApproximatePricingKernel;
+import com.barclays.price.engine.logic.BatchPricingKernel;
+import com.barclays.price.engine.logic.FixedPointPricingKernel;
 import com.barclays.price.engine.logic.HighSupplyHighDemandPriceSelection;
 import com.barclays.price.engine.logic.HighSupplyLowDemandPriceSelection;
 import com.barclays.price.engine.logic.LowSupplyHighDemandPriceSelection;
 import com.barclays.price.engine.logic.LowSupplyLowDemandPriceSelection;
+import com.barclays.price.engine.logic.PricingKernel;
 import com.barclays.price.engine.logic.ProductFinalPriceSelection;
+import com.barclays.price.engine.logic.QuoteBatch;
+import com.barclays.price.engine.logic.StrategyRegistry;
+import com.barclays.price.engine.metrics.PipelineStage;
+import com.barclays.price.engine.metrics.PricingMetrics;
 
 public class Company {
 
 	private Map<String, Product> products;
 	private Map<String, Competitor> competitors;
-	private Map<String, ProductFinalPriceSelection> strategies;
+	private StrategyRegistry strategyRegistry;
+	private PriceBook priceBook;
+	private ThreadLocal<PricingKernel> pricingKernel;
+	private volatile ThreadLocal<FixedPointPricingKernel> fixedPointKernel;
+	private volatile ThreadLocal<ApproximatePricingKernel> approximateKernel;
+	private volatile int approximateQuoteThreshold;
+	private ReadWriteLock lock;
+	private Lock readLock;
+	private boolean concurrent;
+	private volatile PriceCache priceCache;
+	private volatile PriceIndex priceIndex;
+	private volatile ProductSource productSource;
+	private QuoteWindow quoteWindow;
+	private volatile PricingMetrics metrics = PricingMetrics.DISABLED;
 
 	public Company() {
-		products = new TreeMap<String, Product>();
-		competitors = new TreeMap<String, Competitor>();
-		strategies = new TreeMap<String, ProductFinalPriceSelection>();
+		this(false);
+	}
+
+	/**
+	 * Creates a company, in concurrent mode if asked. In concurrent mode prices are
+	 * read without ever blocking while quotes are being added: the quotes of each
+	 * product are published copy-on-write, quote writers only lock the product they
+	 * update, and the catalogues are concurrent sorted maps.
+	 */
+	public Company(boolean concurrent) {
+		this.concurrent = concurrent;
+		if (concurrent) {
+			products = new ConcurrentSkipListMap<String, Product>();
+			competitors = new ConcurrentSkipListMap<String, Competitor>();
+		} else {
+			products = new TreeMap<String, Product>();
+			competitors = new TreeMap<String, Competitor>();
+		}
+		lock = new ReentrantReadWriteLock();
+		readLock = concurrent ? new NoLock() : lock.readLock();
+		priceBook = new PriceBook(lock, concurrent);
+		pricingKernel = ThreadLocal.withInitial(PricingKernel::new);
+		Map<String, ProductFinalPriceSelection> strategies = new TreeMap<String, ProductFinalPriceSelection>();
 		initializeStrategies(strategies);
+		strategyRegistry = new StrategyRegistry();
+		for (Map.Entry<String, ProductFinalPriceSelection> strategy : strategies.entrySet()) {
+			strategyRegistry.register(strategy.getKey(), strategy.getValue());
+		}
 	}
 	
 	public void initializeStrategies(Map<String, ProductFinalPriceSelection> strategies) {
@@ -41,12 +97,17 @@ public class Company {
 	 * Data management related methods
 	 */
 
+	/**
+	 * Returns the catalogue of products, first adding any product still held by
+	 * the product source.
+	 */
 	public Map<String, Product> getProducts() {
+		materializeAll();
 		return products;
 	}
 
 	public Product createProduct(String productName, String marketCondition) {
-		ProductFinalPriceSelection finalPriceSelectionCriteria = strategies.get(marketCondition);
+		ProductFinalPriceSelection finalPriceSelectionCriteria = strategyRegistry.get(marketCondition);
 
 		if (finalPriceSelectionCriteria == null) {
 			throw new InvalidMarketConditionStringException("Invalid Supply Demand Condition String in given file");
@@ -56,20 +117,153 @@ public class Company {
 		return product;
 	}
 
+	/**
+	 * Adds the product to the catalogue and gives it the next dense id, or the id
+	 * of the product of the same name it replaces.
+	 */
 	public void addProduct(Product product) {
-		this.products.put(product.getName(), product);
+		lock.writeLock().lock();
+		try {
+			this.products.put(product.getName(), product);
+			ProductQuotes quotes = priceBook.registerProduct(product);
+			PriceIndex index = priceIndex;
+			if (index != null) {
+				indexPrice(index, quotes, pricingKernel.get());
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns true if the company already holds the named product, without taking
+	 * it from the product source. Lets a source skip the products added to the
+	 * company directly.
+	 */
+	public boolean holdsProduct(String productName) {
+		readLock.lock();
+		try {
+			return products.containsKey(productName);
+		} finally {
+			readLock.unlock();
+		}
 	}
 
 	public Product getProductByProductName(String productName) {
-		return products.get(productName);
+		Product product;
+		readLock.lock();
+		try {
+			product = products.get(productName);
+		} finally {
+			readLock.unlock();
+		}
+		if (product != null) {
+			return product;
+		}
+		ProductSource source = productSource;
+		return (source == null || !source.contains(productName)) ? null : materialize(productName);
 	}
 
+	/**
+	 * Takes products from the given source on first access instead of holding
+	 * them all up front. Products added to the company directly take precedence
+	 * over the ones of the source with the same name. Competitors only hold the
+	 * quotes of products taken from the source so far, until
+	 * {@link #getProducts()} or {@link #getCompetitors()} takes all of them. A
+	 * source replaced by another one is closed if it is {@link Closeable}.
+	 */
+	public void setProductSource(ProductSource productSource) {
+		ProductSource previousSource;
+		lock.writeLock().lock();
+		try {
+			previousSource = this.productSource;
+			this.productSource = productSource;
+		} finally {
+			lock.writeLock().unlock();
+		}
+		if (previousSource != productSource) {
+			closeSource(previousSource);
+		}
+	}
+
+	private Product materialize(String productName) {
+		lock.writeLock().lock();
+		try {
+			ProductSource source = productSource;
+			if (source != null && !products.containsKey(productName)) {
+				source.materialize(this, productName);
+			}
+			return products.get(productName);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not load product '" + productName + "'", e);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds every product still held by the product source, if any, and lets go of
+	 * the source.
+	 */
+	private void materializeAll() {
+		if (productSource == null) {
+			return;
+		}
+
+		ProductSource source;
+		lock.writeLock().lock();
+		try {
+			source = productSource;
+			if (source != null) {
+				source.materializeAll(this);
+				productSource = null;
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not load products", e);
+		} finally {
+			lock.writeLock().unlock();
+		}
+		closeSource(source);
+	}
+
+	private static void closeSource(ProductSource source) {
+		if (source instanceof Closeable) {
+			try {
+				((Closeable) source).close();
+			} catch (IOException e) {
+				throw new UncheckedIOException("Could not close product source", e);
+			}
+		}
+	}
+
+	/**
+	 * Returns the product with the given id, or null if no product has it.
+	 */
+	public Product getProductById(int productId) {
+		ProductQuotes quotes = priceBook.getQuotes(productId);
+		return (quotes == null) ? null : quotes.getProduct();
+	}
+
+	/**
+	 * Returns the catalogue of competitors, first adding any product still held by
+	 * the product source, so that every quote is held by its competitor.
+	 */
 	public Map<String, Competitor> getCompetitors() {
+		materializeAll();
 		return competitors;
 	}
 
 	public void addCompetitor(Competitor competitor) {
-		this.competitors.put(competitor.getName(), competitor);
+		lock.writeLock().lock();
+		try {
+			Competitor replacedCompetitor = this.competitors.put(competitor.getName(), competitor);
+			if (replacedCompetitor != null && replacedCompetitor != competitor) {
+				replacedCompetitor.detachPriceBook(priceBook);
+			}
+			competitor.attachPriceBook(priceBook);
+		} finally {
+			lock.writeLock().unlock();
+		}
 	}
 
 	public Competitor createCompetitor(String competitorName) {
@@ -77,11 +271,163 @@ public class Company {
 	}
 
 	public Competitor getCompetitorByCompetitorName(String competitorName) {
-		return this.competitors.get(competitorName);
+		readLock.lock();
+		try {
+			return this.competitors.get(competitorName);
+		} finally {
+			readLock.unlock();
+		}
 	}
 
+	/**
+	 * Returns a read-only view of the strategies by market condition. New market
+	 * conditions are registered through {@link #getStrategyRegistry()}.
+	 */
 	public Map<String, ProductFinalPriceSelection> getStrategies() {
-		return strategies;
+		return strategyRegistry.asMap();
+	}
+
+	public StrategyRegistry getStrategyRegistry() {
+		return strategyRegistry;
+	}
+
+	public PriceBook getPriceBook() {
+		return priceBook;
+	}
+
+	public boolean isConcurrent() {
+		return concurrent;
+	}
+
+	public PricingMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Sets where pipeline measurements are recorded, {@link PricingMetrics#DISABLED}
+	 * to stop measuring.
+	 */
+	public void setMetrics(PricingMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Caches up to the given number of chosen prices, evicting the least recently
+	 * used ones. Cache lookups are synchronized, so in concurrent mode readers
+	 * using the cache may briefly wait on each other.
+	 */
+	public void enablePriceCache(int maximumSize) {
+		priceCache = new PriceCache(maximumSize);
+	}
+
+	public void disablePriceCache() {
+		priceCache = null;
+	}
+
+	/**
+	 * Returns the price cache, or null if caching is disabled.
+	 */
+	public PriceCache getPriceCache() {
+		return priceCache;
+	}
+
+	/**
+	 * Maintains a {@link PriceIndex} of the chosen price of every product, built
+	 * now from the current quotes and kept up to date by
+	 * {@link #pollPriceChanges()} and {@link #addProduct(Product)}. Changes of a
+	 * product's price selection criteria are only picked up if made through
+	 * {@link #setFinalPriceSelectionCriteria(Product, ProductFinalPriceSelection)}.
+	 */
+	public PriceIndex enablePriceIndex() {
+		materializeAll();
+		lock.writeLock().lock();
+		try {
+			PriceIndex index = new PriceIndex(strategyRegistry);
+			PricingKernel kernel = pricingKernel.get();
+			for (Product product : products.values()) {
+				ProductQuotes quotes = priceBook.getQuotes(product);
+				if (quotes != null) {
+					indexPrice(index, quotes, kernel);
+				}
+			}
+			priceIndex = index;
+			return index;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void disablePriceIndex() {
+		priceIndex = null;
+	}
+
+	/**
+	 * Returns the price index, or null if it is not enabled.
+	 */
+	public PriceIndex getPriceIndex() {
+		return priceIndex;
+	}
+
+	/**
+	 * Also holds every quote as a whole number of minor units with the given number
+	 * of decimals, for {@link #calculateFixedPointPriceForProduct(Product)}. Quotes
+	 * read from a products file are parsed straight from their text. Must be
+	 * called before any product is added.
+	 */
+	public void enableFixedPointPrices(final int decimals) {
+		lock.writeLock().lock();
+		try {
+			priceBook.enableFixedPoint(decimals);
+			fixedPointKernel = ThreadLocal.withInitial(() -> new FixedPointPricingKernel(decimals));
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Holds every quote outside of the Java heap, in chunks of direct buffers, so
+	 * that garbage collection does not scale with the number of quotes. Prices
+	 * are the same as with heap quotes. Must be called before any product is
+	 * added, and is not supported in concurrent mode.
+	 */
+	public void enableOffHeapQuotes() {
+		enableOffHeapQuotes(OffHeapQuoteStore.allocateDirect(OffHeapQuoteStore.DEFAULT_CHUNK_BYTES));
+	}
+
+	public void enableOffHeapQuotes(OffHeapQuoteStore store) {
+		lock.writeLock().lock();
+		try {
+			priceBook.enableOffHeap(store);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Prices the products with more than the given number of quotes by an
+	 * {@link ApproximatePricingKernel} of the given number of counters, streaming
+	 * their quotes once in bounded memory instead of copying and sorting them.
+	 * Applies to {@link #calculatePriceForProduct(Product)} and
+	 * {@link #calculateAllPrices()}; with pricing metrics enabled the kernel is
+	 * timed as the {@link PipelineStage#APPROXIMATE} stage.
+	 */
+	public void enableApproximatePricing(int quoteThreshold, final int counters) {
+		if (quoteThreshold < 0 || counters < 1) {
+			throw new IllegalArgumentException("Quote threshold must not be negative, counters must be positive");
+		}
+		approximateQuoteThreshold = quoteThreshold;
+		approximateKernel = ThreadLocal.withInitial(() -> new ApproximatePricingKernel(counters));
+	}
+
+	public void disableApproximatePricing() {
+		approximateKernel = null;
+	}
+
+	/**
+	 * Returns the number of decimals of fixed point prices, -1 if they are not enabled.
+	 */
+	public int getFixedPointDecimals() {
+		return priceBook.getFixedPointDecimals();
 	}
 
 
@@ -90,75 +436,692 @@ public class Company {
 	 */
 
 	public double calculatePriceForProduct(Product product) {
-		List<Double> competitorsPrices = collectCompetitorsPriceList(product);
-		double initialProductPrice = calculateInitialProductPrice(competitorsPrices);
+		readLock.lock();
+		try {
+			PriceCache cache = priceCache;
+			if (cache == null) {
+				return calculatePriceForProduct(product, pricingKernel.get());
+			}
+
+			int criteriaVersion = product.getCriteriaVersion();
+			ProductQuotes quotes = priceBook.getQuotes(product);
+			long quotesVersion = (quotes == null) ? 0 : quotes.getVersion();
+			Double cachedPrice = cache.get(product, quotesVersion, criteriaVersion);
+			if (cachedPrice != null) {
+				return cachedPrice;
+			}
+
+			double chosenProductPrice = calculatePriceForProduct(product, pricingKernel.get());
+			cache.put(product, quotesVersion, criteriaVersion, chosenProductPrice);
+			return chosenProductPrice;
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	/**
+	 * Prices every product of the catalogue in parallel on the common fork-join pool.
+	 */
+	public Map<Product, Double> calculateAllPrices() {
+		return calculateAllPrices(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Prices every product of the catalogue in parallel on a dedicated fork-join
+	 * pool of the given parallelism.
+	 */
+	public Map<Product, Double> calculateAllPrices(int parallelism) {
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			return calculateAllPrices(pool);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Prices every product of the catalogue in parallel on the given pool. Loaders
+	 * are held off for the duration of the run, so the result is the one the
+	 * sequential calculation gives for the same catalogue. In concurrent mode
+	 * loaders keep running and each product is priced from the quotes it had when
+	 * its turn came.
+	 */
+	public Map<Product, Double> calculateAllPrices(ForkJoinPool pool) {
+		Product[] catalogue;
+		double[] chosenPrices;
+
+		materializeAll();
+		readLock.lock();
+		try {
+			catalogue = products.values().toArray(new Product[products.size()]);
+			chosenPrices = new double[catalogue.length];
+			pool.invoke(new CataloguePricingTask(this, catalogue, chosenPrices, 0, catalogue.length));
+		} finally {
+			readLock.unlock();
+		}
+
+		Map<Product, Double> productPrices = new TreeMap<Product, Double>();
+		for (int i = 0; i < catalogue.length; i++) {
+			productPrices.put(catalogue[i], chosenPrices[i]);
+		}
+		return productPrices;
+	}
+
+	/**
+	 * Prices every product of the catalogue in one batch: the quotes of all
+	 * products are copied into a single {@link QuoteBatch} under the read lock,
+	 * then priced column by column by a {@link BatchPricingKernel}, and adjusted
+	 * for their market conditions in one pass over the strategy registry's table.
+	 * Gives the same result as {@link #calculateAllPrices()}.
+	 */
+	public Map<Product, Double> calculateAllPricesInBatch() {
+		Product[] catalogue;
+		ProductFinalPriceSelection[] catalogueStrategies;
+		int[] conditionCodes;
+		QuoteBatch batch;
+
+		materializeAll();
+		readLock.lock();
+		try {
+			catalogue = products.values().toArray(new Product[products.size()]);
+			QuoteArrays[] catalogueQuotes = new QuoteArrays[catalogue.length];
+			int quoteCount = 0;
+			for (int i = 0; i < catalogue.length; i++) {
+				ProductQuotes productQuotes = priceBook.getQuotes(catalogue[i]);
+				catalogueQuotes[i] = (productQuotes == null) ? null : productQuotes.current();
+				quoteCount += (catalogueQuotes[i] == null) ? 0 : catalogueQuotes[i].size();
+			}
+
+			batch = new QuoteBatch(catalogue.length, quoteCount);
+			for (QuoteArrays quotes : catalogueQuotes) {
+				int offset = batch.addProduct((quotes == null) ? 0 : quotes.size());
+				if (quotes != null) {
+					quotes.copyPrices(batch.getPrices(), offset);
+				}
+			}
+
+			catalogueStrategies = new ProductFinalPriceSelection[catalogue.length];
+			conditionCodes = new int[catalogue.length];
+			for (int i = 0; i < catalogue.length; i++) {
+				catalogueStrategies[i] = catalogue[i].getFinalPriceSelectionCriteria();
+				conditionCodes[i] = strategyRegistry.codeOf(catalogueStrategies[i]);
+			}
+		} finally {
+			readLock.unlock();
+		}
+
+		double[] initialPrices = new double[catalogue.length];
+		new BatchPricingKernel().calculateInitialProductPrices(batch, initialPrices);
+		double[] chosenPrices = new double[catalogue.length];
+		strategyRegistry.applyAdjustments(initialPrices, conditionCodes, catalogueStrategies, chosenPrices,
+				catalogue.length);
+
+		Map<Product, Double> productPrices = new TreeMap<Product, Double>();
+		for (int i = 0; i < catalogue.length; i++) {
+			productPrices.put(catalogue[i], chosenPrices[i]);
+		}
+		return productPrices;
+	}
+
+	/**
+	 * Changes the price selection criteria of the product and marks it for
+	 * repricing, so that the next {@link #pollPriceChanges()} reports its new
+	 * price and updates the price index.
+	 */
+	public void setFinalPriceSelectionCriteria(Product product, ProductFinalPriceSelection strategy) {
+		lock.writeLock().lock();
+		try {
+			product.setFinalPriceSelectionCriteria(strategy);
+			priceBook.markRepricing(product);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Records a single competitor quote, creating the competitor if it is not yet
+	 * known. Only the quoted product is marked for repricing.
+	 */
+	public void updateQuote(String productName, String competitorName, double price) {
+		Product product = getProductByProductName(productName);
+		if (product == null) {
+			throw new IllegalArgumentException("Unknown product '" + productName + "'");
+		}
+
+		Competitor competitor = getCompetitorByCompetitorName(competitorName);
+		if (competitor == null) {
+			competitor = addCompetitorIfAbsent(competitorName);
+		}
+		competitor.addProductPrice(product, price);
+	}
+
+	/**
+	 * Records a batch of quotes, keyed by product name then competitor name, as a
+	 * single update under the write lock: anyone taking the read lock sees either
+	 * none or all of them. In concurrent mode readers take no lock and may see part
+	 * of a batch. Unknown products are rejected before any quote is recorded.
+	 */
+	public void updateQuotes(Map<String, Map<String, Double>> quotes) {
+		lock.writeLock().lock();
+		try {
+			recordQuotes(quotes, resolveProducts(quotes));
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Records the quotes as {@link #updateQuotes(Map)} does and returns the
+	 * products among them whose chosen price changed as a result, with their new
+	 * price. Only these products are repriced; products left dirty by other
+	 * writers are left to {@link #pollPriceChanges()}.
+	 */
+	public Map<Product, Double> updateQuotesAndReprice(Map<String, Map<String, Double>> quotes) {
+		Map<Product, Double> changedPrices = new TreeMap<Product, Double>();
+		PricingKernel kernel = pricingKernel.get();
+
+		lock.writeLock().lock();
+		try {
+			List<Product> quotedProducts = resolveProducts(quotes);
+			double[] previousPrices = new double[quotedProducts.size()];
+			for (int i = 0; i < previousPrices.length; i++) {
+				previousPrices[i] = calculatePriceForProduct(quotedProducts.get(i), kernel);
+			}
+
+			recordQuotes(quotes, quotedProducts);
+
+			for (int i = 0; i < previousPrices.length; i++) {
+				Product product = quotedProducts.get(i);
+				double chosenPrice = calculatePriceForProduct(product, kernel);
+				if (Double.compare(chosenPrice, previousPrices[i]) != 0) {
+					changedPrices.put(product, chosenPrice);
+				}
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+
+		return changedPrices;
+	}
+
+	private List<Product> resolveProducts(Map<String, Map<String, Double>> quotes) {
+		List<Product> quotedProducts = new ArrayList<Product>(quotes.size());
+		for (String productName : quotes.keySet()) {
+			Product product = getProductByProductName(productName);
+			if (product == null) {
+				throw new IllegalArgumentException("Unknown product '" + productName + "'");
+			}
+			quotedProducts.add(product);
+		}
+		return quotedProducts;
+	}
+
+	private void recordQuotes(Map<String, Map<String, Double>> quotes, List<Product> quotedProducts) {
+		int index = 0;
+		for (Map<String, Double> competitorPrices : quotes.values()) {
+			Product product = quotedProducts.get(index++);
+			for (Map.Entry<String, Double> competitorPrice : competitorPrices.entrySet()) {
+				addCompetitorIfAbsent(competitorPrice.getKey()).addProductPrice(product, competitorPrice.getValue());
+			}
+		}
+	}
+
+	private Competitor addCompetitorIfAbsent(String competitorName) {
+		lock.writeLock().lock();
+		try {
+			Competitor competitor = competitors.get(competitorName);
+			if (competitor == null) {
+				competitor = createCompetitor(competitorName);
+				addCompetitor(competitor);
+			}
+			return competitor;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Starts streaming mode: quotes recorded with
+	 * {@link #recordQuote(String, String, double, long)} expire once they are
+	 * older than the given window, and {@link #pollPriceChanges()} reprices from
+	 * counts of each distinct price kept as quotes come and go, instead of
+	 * sorting the quotes of every repriced product. Not supported in concurrent
+	 * mode.
+	 */
+	public QuoteWindow enableQuoteWindow(long windowMillis) {
+		lock.writeLock().lock();
+		try {
+			priceBook.enablePriceCounts();
+			quoteWindow = new QuoteWindow(priceBook, windowMillis);
+			return quoteWindow;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Records a time-stamped competitor quote, creating the competitor if it is
+	 * not yet known, after expiring the quotes the time stamp moves out of the
+	 * window.
+	 *
+	 * @throws IllegalStateException if streaming mode is not enabled
+	 * @throws IllegalArgumentException if the product is unknown or the time stamp
+	 *                                  is older than the latest one
+	 */
+	public void recordQuote(String productName, String competitorName, double price, long timestampMillis) {
+		Product product = getProductByProductName(productName);
+		if (product == null) {
+			throw new IllegalArgumentException("Unknown product '" + productName + "'");
+		}
+
+		lock.writeLock().lock();
+		try {
+			requireQuoteWindow().record(product, addCompetitorIfAbsent(competitorName), price, timestampMillis);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Moves the streaming clock forward, expiring the quotes that fall out of the
+	 * window, and returns the number of quotes expired.
+	 */
+	public int advanceQuoteWindow(long nowMillis) {
+		lock.writeLock().lock();
+		try {
+			return requireQuoteWindow().advance(nowMillis);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private QuoteWindow requireQuoteWindow() {
+		if (quoteWindow == null) {
+			throw new IllegalStateException("Quote window is not enabled");
+		}
+		return quoteWindow;
+	}
+
+	/**
+	 * Reprices only the products whose quotes changed since the previous call and
+	 * returns the ones whose chosen price changed. The outlier band is taken from
+	 * the running sum and count of each product's quotes instead of summing them
+	 * again.
+	 */
+	public Map<Product, Double> pollPriceChanges() {
+		Map<Product, Double> changedPrices = new TreeMap<Product, Double>();
+		PricingKernel kernel = pricingKernel.get();
+
+		lock.writeLock().lock();
+		try {
+			PriceIndex index = priceIndex;
+			for (ProductQuotes quotes : priceBook.drainDirtyQuotes()) {
+				double chosenPrice = calculateIncrementalPrice(quotes, kernel, index);
+				if (Double.compare(chosenPrice, quotes.getPublishedPrice()) != 0) {
+					quotes.setPublishedPrice(chosenPrice);
+					changedPrices.put(quotes.getProduct(), chosenPrice);
+				}
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+
+		return changedPrices;
+	}
+
+	/**
+	 * Reprices the product from the running sum of its quotes, recording the
+	 * result in the index if there is one.
+	 */
+	private double calculateIncrementalPrice(ProductQuotes productQuotes, PricingKernel pricingKernel,
+			PriceIndex index) {
+		// The price index also needs the number of quotes surviving the filter,
+		// which only the full calculation gives.
+		if (productQuotes.hasPriceCounts() && index == null) {
+			return productQuotes.getProduct().getFinalPriceSelectionCriteria()
+					.calculateFinalCompetitivePrice(productQuotes.calculateCountedInitialPrice());
+		}
+
+		QuoteArrays quotes = productQuotes.current();
+		int numberOfQuotes = quotes.size();
+		double[] competitorsPrices = pricingKernel.workBuffer(numberOfQuotes);
+		quotes.copyPrices(competitorsPrices);
+
+		double averagePrice = quotes.getSum() / numberOfQuotes;
+		int remainingQuotes = PricingKernel.filterPrices(competitorsPrices, numberOfQuotes, averagePrice);
+		double initialProductPrice = pricingKernel.calculateMode(competitorsPrices, remainingQuotes);
+		Product product = productQuotes.getProduct();
+		ProductFinalPriceSelection strategy = product.getFinalPriceSelectionCriteria();
+		double chosenPrice = strategy.calculateFinalCompetitivePrice(initialProductPrice);
+		if (index != null) {
+			index.update(product, strategyRegistry.codeOf(strategy), chosenPrice, remainingQuotes);
+		}
+		return chosenPrice;
+	}
+
+	/**
+	 * Prices the product from all of its current quotes and records the result in
+	 * the index. Callers must hold the write lock.
+	 */
+	private void indexPrice(PriceIndex index, ProductQuotes productQuotes, PricingKernel pricingKernel) {
+		QuoteArrays quotes = productQuotes.current();
+		int numberOfQuotes = quotes.size();
+		double[] competitorsPrices = pricingKernel.workBuffer(numberOfQuotes);
+		quotes.copyPrices(competitorsPrices);
+
+		int remainingQuotes = PricingKernel.filterPrices(competitorsPrices, numberOfQuotes);
+		double initialProductPrice = pricingKernel.calculateMode(competitorsPrices, remainingQuotes);
+		Product product = productQuotes.getProduct();
+		ProductFinalPriceSelection strategy = product.getFinalPriceSelectionCriteria();
+		index.update(product, strategyRegistry.codeOf(strategy),
+				strategy.calculateFinalCompetitivePrice(initialProductPrice), remainingQuotes);
+	}
+
+	/**
+	 * Prices the product with the given kernel. Callers must hold the read lock.
+	 */
+	double calculatePriceForProduct(Product product, PricingKernel pricingKernel) {
+		PricingMetrics currentMetrics = metrics;
+		if (currentMetrics.isEnabled()) {
+			return calculateMeasuredPriceForProduct(product, pricingKernel, currentMetrics);
+		}
+
+		ProductQuotes productQuotes = priceBook.getQuotes(product);
+		QuoteArrays quotes = (productQuotes == null) ? null : productQuotes.current();
+		int numberOfQuotes = (quotes == null) ? 0 : quotes.size();
+		ApproximatePricingKernel approximatePricingKernel = approximateKernelFor(numberOfQuotes);
+		double initialProductPrice;
+		if (approximatePricingKernel != null) {
+			initialProductPrice = calculateApproximateInitialPrice(quotes, approximatePricingKernel);
+		} else {
+			double[] competitorsPrices = pricingKernel.workBuffer(numberOfQuotes);
+			if (quotes != null) {
+				quotes.copyPrices(competitorsPrices);
+			}
+			initialProductPrice = pricingKernel.calculateInitialProductPrice(competitorsPrices, numberOfQuotes);
+		}
+
 		double chosenProductPrice = product.getFinalPriceSelectionCriteria()
 				.calculateFinalCompetitivePrice(initialProductPrice);
 		return chosenProductPrice;
 	}
 
-	public List<Double> collectCompetitorsPriceList(Product product) {
-		List<Double> competitorsPrices = new ArrayList<Double>();
+	/**
+	 * Returns the approximate kernel of this thread if a product with the given
+	 * number of quotes is to be priced approximately, null otherwise.
+	 */
+	private ApproximatePricingKernel approximateKernelFor(int numberOfQuotes) {
+		ThreadLocal<ApproximatePricingKernel> approximateKernels = approximateKernel;
+		return (approximateKernels != null && numberOfQuotes > approximateQuoteThreshold) ? approximateKernels.get()
+				: null;
+	}
 
-		Double price;
-		for (Competitor competitor : competitors.values()) {
-			price = competitor.getProductPrices().get(product);
-			if (price != null) {
-				competitorsPrices.add(price);
-			}
+	/**
+	 * Streams the quotes through the kernel, taking the band average from their
+	 * running sum.
+	 */
+	private static double calculateApproximateInitialPrice(QuoteArrays quotes, ApproximatePricingKernel kernel) {
+		int numberOfQuotes = quotes.size();
+		kernel.begin(quotes.getSum() / numberOfQuotes);
+		for (int i = 0; i < numberOfQuotes; i++) {
+			kernel.offer(quotes.getPrice(i));
+		}
+		return kernel.finish();
+	}
+
+	private double calculateMeasuredPriceForProduct(Product product, PricingKernel pricingKernel,
+			PricingMetrics currentMetrics) {
+		long start = System.nanoTime();
+		ProductQuotes productQuotes = priceBook.getQuotes(product);
+		QuoteArrays quotes = (productQuotes == null) ? null : productQuotes.current();
+		int numberOfQuotes = (quotes == null) ? 0 : quotes.size();
+		ApproximatePricingKernel approximatePricingKernel = approximateKernelFor(numberOfQuotes);
+		if (approximatePricingKernel != null) {
+			double initialProductPrice = calculateApproximateInitialPrice(quotes, approximatePricingKernel);
+			long approximated = System.nanoTime();
+
+			double chosenProductPrice = product.getFinalPriceSelectionCriteria()
+					.calculateFinalCompetitivePrice(initialProductPrice);
+			long end = System.nanoTime();
+
+			currentMetrics.recordLatency(PipelineStage.APPROXIMATE, approximated - start);
+			currentMetrics.recordLatency(PipelineStage.PRICE, end - start);
+			currentMetrics.recordQuotes(numberOfQuotes, numberOfQuotes - (int) approximatePricingKernel.getKept());
+			return chosenProductPrice;
+		}
+
+		double[] competitorsPrices = pricingKernel.workBuffer(numberOfQuotes);
+		if (quotes != null) {
+			quotes.copyPrices(competitorsPrices);
 		}
+		long collected = System.nanoTime();
 
-		return competitorsPrices;
+		int remainingQuotes = PricingKernel.filterPrices(competitorsPrices, numberOfQuotes);
+		long filtered = System.nanoTime();
+
+		double initialProductPrice = pricingKernel.calculateMode(competitorsPrices, remainingQuotes);
+		long moded = System.nanoTime();
+
+		double chosenProductPrice = product.getFinalPriceSelectionCriteria()
+				.calculateFinalCompetitivePrice(initialProductPrice);
+		long end = System.nanoTime();
+
+		currentMetrics.recordLatency(PipelineStage.COLLECT, collected - start);
+		currentMetrics.recordLatency(PipelineStage.FILTER, filtered - collected);
+		currentMetrics.recordLatency(PipelineStage.MODE, moded - filtered);
+		currentMetrics.recordLatency(PipelineStage.PRICE, end - start);
+		currentMetrics.recordQuotes(numberOfQuotes, numberOfQuotes - remainingQuotes);
+		return chosenProductPrice;
 	}
 
-	public double calculateInitialProductPrice(List<Double> competitorsPrices) {
-		filterPrices(competitorsPrices);
-		return calculateMode(competitorsPrices);
+	/**
+	 * Creates an empty what-if layer over this company.
+	 */
+	public Scenario createScenario(String name) {
+		return new Scenario(this, name);
 	}
 
-	public void filterPrices(List<Double> competitorsPrices) {
-		double averagePrice = calculateAverage(competitorsPrices);
-		competitorsPrices.removeIf(price -> (price > (1.5 * averagePrice)) || (price < (0.5 * averagePrice)));
+	/**
+	 * Prices the given scenarios in parallel on the common fork-join pool and
+	 * returns the price changes of each one, in the order given.
+	 */
+	public Map<Scenario, Map<Product, Double>> calculateScenarioPriceChanges(Collection<Scenario> scenarios) {
+		return calculateScenarioPriceChanges(scenarios, ForkJoinPool.commonPool());
 	}
 
-	public double calculateAverage(List<Double> competitorsPrices) {
-		double sum = 0.0;
+	public Map<Scenario, Map<Product, Double>> calculateScenarioPriceChanges(Collection<Scenario> scenarios,
+			ForkJoinPool pool) {
+		Map<Scenario, ForkJoinTask<Map<Product, Double>>> tasks =
+				new LinkedHashMap<Scenario, ForkJoinTask<Map<Product, Double>>>();
+		for (Scenario scenario : scenarios) {
+			tasks.put(scenario, pool.submit(() -> scenario.calculatePriceChanges()));
+		}
 
-		for (Double price : competitorsPrices) {
-			sum += price;
+		Map<Scenario, Map<Product, Double>> priceChanges = new LinkedHashMap<Scenario, Map<Product, Double>>();
+		for (Map.Entry<Scenario, ForkJoinTask<Map<Product, Double>>> task : tasks.entrySet()) {
+			priceChanges.put(task.getKey(), task.getValue().join());
 		}
+		return priceChanges;
+	}
 
-		return sum / (competitorsPrices.size());
+	/**
+	 * Returns the price quoted by the named competitor for the product, or null if
+	 * it has no quote.
+	 */
+	Double getQuote(Product product, String competitorName) {
+		readLock.lock();
+		try {
+			ProductQuotes productQuotes = priceBook.getQuotes(product);
+			if (productQuotes == null) {
+				return null;
+			}
+			QuoteArrays quotes = productQuotes.current();
+			int index = quotes.indexOf(competitorName);
+			return (index >= 0) ? quotes.getPrice(index) : null;
+		} finally {
+			readLock.unlock();
+		}
 	}
 
-	public double calculateMode(List<Double> competitorsPrices) {
-		HashMap<Double, Integer> priceCountMap = new HashMap<Double, Integer>();
-		int max = -1;
-		double frequentlyOccuringMinPrice = -1;
-		
-		for (double price: competitorsPrices) {
-			if (priceCountMap.get(price) != null) {
-				int count = priceCountMap.get(price);
-				count = count + 1;
-				priceCountMap.put(price, count);
-				if (count > max) {
-					max = count;
-					frequentlyOccuringMinPrice = price;
+	/**
+	 * Prices the product from its quotes with the given quotes by competitor name
+	 * replacing, adding or, when null, withdrawing the matching ones, and with the
+	 * given criteria. Both quote sequences are in competitor name order, so they
+	 * are merged in one pass and the result keeps that order.
+	 */
+	double calculatePriceWithOverrides(Product product, SortedMap<String, Double> quoteOverrides,
+			ProductFinalPriceSelection strategy, PricingKernel pricingKernel) {
+		double initialProductPrice;
+		readLock.lock();
+		try {
+			ProductQuotes productQuotes = priceBook.getQuotes(product);
+			QuoteArrays quotes = (productQuotes == null) ? null : productQuotes.current();
+			int numberOfQuotes = (quotes == null) ? 0 : quotes.size();
+			double[] competitorsPrices = pricingKernel.workBuffer(numberOfQuotes + quoteOverrides.size());
+
+			int length = 0;
+			int index = 0;
+			Iterator<Map.Entry<String, Double>> overrides = quoteOverrides.entrySet().iterator();
+			while (overrides.hasNext()) {
+				Map.Entry<String, Double> override = overrides.next();
+				int order = -1;
+				while (index < numberOfQuotes
+						&& (order = quotes.getCompetitor(index).getName().compareTo(override.getKey())) < 0) {
+					competitorsPrices[length++] = quotes.getPrice(index++);
 				}
-				else if ((count == max) && (price < frequentlyOccuringMinPrice)) {
-					frequentlyOccuringMinPrice = price;
+				if (index < numberOfQuotes && order == 0) {
+					index++;
 				}
-			} else {
-				priceCountMap.put(price, 1);
-				
-				if (frequentlyOccuringMinPrice == -1) {
-					max = 1;
-					frequentlyOccuringMinPrice = price;
+				if (override.getValue() != null) {
+					competitorsPrices[length++] = override.getValue();
 				}
 			}
+			while (index < numberOfQuotes) {
+				competitorsPrices[length++] = quotes.getPrice(index++);
+			}
+
+			initialProductPrice = pricingKernel.calculateInitialProductPrice(competitorsPrices, length);
+		} finally {
+			readLock.unlock();
+		}
+		return strategy.calculateFinalCompetitivePrice(initialProductPrice);
+	}
+
+	/**
+	 * Returns the chosen price of the product in minor units, computed in integer
+	 * arithmetic only. Market conditions with an adjustment factor are applied
+	 * exactly; other strategies are given the price in floating point and their
+	 * result is rounded to the nearest unit.
+	 */
+	public long calculateFixedPointPriceForProduct(Product product) {
+		ThreadLocal<FixedPointPricingKernel> kernels = fixedPointKernel;
+		if (kernels == null) {
+			throw new IllegalStateException("Fixed point prices are not enabled");
+		}
+
+		readLock.lock();
+		try {
+			return calculateFixedPointPriceForProduct(product, kernels.get());
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	/**
+	 * Prices every product of the catalogue in minor units.
+	 */
+	public Map<Product, Long> calculateAllFixedPointPrices() {
+		ThreadLocal<FixedPointPricingKernel> kernels = fixedPointKernel;
+		if (kernels == null) {
+			throw new IllegalStateException("Fixed point prices are not enabled");
+		}
+
+		Map<Product, Long> productPrices = new TreeMap<Product, Long>();
+		materializeAll();
+		readLock.lock();
+		try {
+			FixedPointPricingKernel kernel = kernels.get();
+			for (Product product : products.values()) {
+				productPrices.put(product, calculateFixedPointPriceForProduct(product, kernel));
+			}
+		} finally {
+			readLock.unlock();
+		}
+		return productPrices;
+	}
+
+	private long calculateFixedPointPriceForProduct(Product product, FixedPointPricingKernel kernel) {
+		ProductQuotes productQuotes = priceBook.getQuotes(product);
+		QuoteArrays quotes = (productQuotes == null) ? null : productQuotes.current();
+		int numberOfQuotes = (quotes == null) ? 0 : quotes.size();
+		long[] competitorsPrices = kernel.workBuffer(numberOfQuotes);
+		if (quotes != null) {
+			quotes.copyUnits(competitorsPrices);
+		}
+
+		long initialProductPrice = kernel.calculateInitialProductPrice(competitorsPrices, numberOfQuotes);
+		ProductFinalPriceSelection strategy = product.getFinalPriceSelectionCriteria();
+		int code = strategyRegistry.codeOf(strategy);
+		if (strategyRegistry.isTableDriven(code)) {
+			return FixedPointPricingKernel.adjust(initialProductPrice, strategyRegistry.getAdjustmentNumerator(code));
+		}
+		return FixedPointPricingKernel.toUnits(
+				strategy.calculateFinalCompetitivePrice((double) initialProductPrice / kernel.getScale()),
+				kernel.getScale());
+	}
+
+	public List<Double> collectCompetitorsPriceList(Product product) {
+		readLock.lock();
+		try {
+			ProductQuotes productQuotes = priceBook.getQuotes(product);
+			if (productQuotes == null) {
+				return new ArrayList<Double>();
+			}
+
+			QuoteArrays quotes = productQuotes.current();
+			List<Double> competitorsPrices = new ArrayList<Double>(quotes.size());
+			for (int i = 0; i < quotes.size(); i++) {
+				competitorsPrices.add(quotes.getPrice(i));
+			}
+
+			return competitorsPrices;
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	public double calculateInitialProductPrice(List<Double> competitorsPrices) {
+		filterPrices(competitorsPrices);
+		return calculateMode(competitorsPrices);
+	}
+
+	public void filterPrices(List<Double> competitorsPrices) {
+		double[] prices = toPriceArray(competitorsPrices);
+		int remaining = PricingKernel.filterPrices(prices, prices.length);
+
+		competitorsPrices.clear();
+		for (int i = 0; i < remaining; i++) {
+			competitorsPrices.add(prices[i]);
 		}
-		
-		return frequentlyOccuringMinPrice;
+	}
+
+	public double calculateAverage(List<Double> competitorsPrices) {
+		double[] prices = toPriceArray(competitorsPrices);
+		return PricingKernel.calculateAverage(prices, prices.length);
+	}
+
+	public double calculateMode(List<Double> competitorsPrices) {
+		double[] prices = toPriceArray(competitorsPrices);
+		return pricingKernel.get().calculateMode(prices, prices.length);
+	}
+
+	private double[] toPriceArray(List<Double> competitorsPrices) {
+		double[] prices = new double[competitorsPrices.size()];
+		int i = 0;
+		for (Double price : competitorsPrices) {
+			prices[i++] = price;
+		}
+		return prices;
 	}
 
 	/**
@@ -166,11 +1129,13 @@ public class Company {
 	 */
 
 	public void createObjectsFromFileData(String filePath) throws IOException {
+		long start = System.nanoTime();
 		FileReader fileReader = new FileReader(filePath);
 		BufferedReader bufferedReader = new BufferedReader(fileReader);
 
 		String currentLine = bufferedReader.readLine();
 		int numberOfProductLines = Integer.parseInt(currentLine);
+		priceBook.ensureProductCapacity(numberOfProductLines);
 		generateProducts(bufferedReader, numberOfProductLines);
 
 		currentLine = bufferedReader.readLine();
@@ -178,6 +1143,7 @@ public class Company {
 		generateCompetitors(bufferedReader, numberOfCompetitorLines);
 
 		bufferedReader.close();
+		metrics.recordLoad(2L + numberOfProductLines + numberOfCompetitorLines, System.nanoTime() - start);
 	}
 
 	public void generateProducts(BufferedReader bufferedReader, int numberOfProductLines) throws IOException {
@@ -202,7 +1168,25 @@ public class Company {
 				addCompetitor(competitor);
 			}
 			double productPrice = Double.parseDouble(competitorInfo[2]);
-			competitor.addProductPrice(product, productPrice);
+			int fixedPointDecimals = priceBook.getFixedPointDecimals();
+			if (fixedPointDecimals >= 0) {
+				competitor.addProductPrice(product, productPrice, parseFixedPointPrice(competitorInfo[2], productPrice));
+			} else {
+				competitor.addProductPrice(product, productPrice);
+			}
+		}
+	}
+
+	/**
+	 * Parses the price text to minor units, rounding the floating point price for
+	 * notations other than plain decimals.
+	 */
+	private long parseFixedPointPrice(String priceText, double productPrice) {
+		int fixedPointDecimals = priceBook.getFixedPointDecimals();
+		try {
+			return FixedPointPricingKernel.parse(priceText, fixedPointDecimals);
+		} catch (NumberFormatException e) {
+			return FixedPointPricingKernel.toUnits(productPrice, FixedPointPricingKernel.scaleOf(fixedPointDecimals));
 		}
 	}
 
@@ -1,28 +1,104 @@
 package com.barclays.price.engine.domain;
 
+import java.util.Collections;
 import java.util.Map;
 import java.util.TreeMap;
 
+/**
+ * A competitor quoting prices for products. Once added to a company its quotes
+ * are held by the company's price book only; until then, and after being
+ * replaced by another competitor of the same name, they are kept here.
+ */
 public class Competitor {
-	
+
 	private String name;
-	private Map<Product, Double> productPrices;
-	
+	private Map<Product, Double> pendingPrices;
+	private volatile PriceBook priceBook;
+
 	public Competitor(String name) {
 		this.name = name;
-		productPrices = new TreeMap<Product, Double>();
+		this.pendingPrices = new TreeMap<Product, Double>();
 	}
-	
+
 	public void addProductPrice(Product product, double price) {
-		productPrices.put(product, price);
+		PriceBook currentPriceBook = priceBook;
+		if (currentPriceBook == null) {
+			synchronized (this) {
+				currentPriceBook = priceBook;
+				if (currentPriceBook == null) {
+					pendingPrices.put(product, price);
+					return;
+				}
+			}
+		}
+		currentPriceBook.addQuote(product, this, price);
+	}
+
+	/**
+	 * Quotes a price whose value in minor units was parsed from its decimal text,
+	 * kept as is by a fixed point price book. Before the competitor is added to a
+	 * company only the floating point price is kept.
+	 */
+	void addProductPrice(Product product, double price, long priceUnits) {
+		PriceBook currentPriceBook = priceBook;
+		if (currentPriceBook == null) {
+			synchronized (this) {
+				currentPriceBook = priceBook;
+				if (currentPriceBook == null) {
+					pendingPrices.put(product, price);
+					return;
+				}
+			}
+		}
+		currentPriceBook.addQuote(product, this, price, priceUnits);
 	}
 
+	/**
+	 * Returns the prices quoted by this competitor, ordered by product name. Once
+	 * the competitor is part of a company this is a copy collected from the
+	 * company's price book.
+	 */
 	public Map<Product, Double> getProductPrices() {
-		return productPrices;
+		PriceBook currentPriceBook = priceBook;
+		if (currentPriceBook == null) {
+			synchronized (this) {
+				if (priceBook == null) {
+					return Collections.unmodifiableMap(new TreeMap<Product, Double>(pendingPrices));
+				}
+				currentPriceBook = priceBook;
+			}
+		}
+		return Collections.unmodifiableMap(currentPriceBook.getCompetitorQuotes(this));
 	}
 
 	public String getName() {
 		return name;
 	}
-	
+
+	/**
+	 * Hands the prices quoted so far over to the given price book, which then
+	 * receives every further quote.
+	 */
+	synchronized void attachPriceBook(PriceBook priceBook) {
+		if (this.priceBook == priceBook) {
+			return;
+		}
+		if (this.priceBook != null) {
+			pendingPrices = this.priceBook.removeCompetitorQuotes(this);
+		}
+		priceBook.addCompetitorQuotes(this, pendingPrices);
+		pendingPrices = null;
+		this.priceBook = priceBook;
+	}
+
+	/**
+	 * Takes the prices quoted by this competitor back from the given price book.
+	 */
+	synchronized void detachPriceBook(PriceBook priceBook) {
+		if (this.priceBook == priceBook) {
+			pendingPrices = priceBook.removeCompetitorQuotes(this);
+			this.priceBook = null;
+		}
+	}
+
 }
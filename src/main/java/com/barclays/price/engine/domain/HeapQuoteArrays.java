@@ -0,0 +1,106 @@
+package com.barclays.price.engine.domain;
+
+import java.util.Arrays;
+
+/**
+ * Quotes held in heap arrays. Updated in place by a product's quotes, or copied
+ * and then updated when the quotes are published copy-on-write.
+ */
+class HeapQuoteArrays extends QuoteArrays {
+
+	private static final int INITIAL_CAPACITY = 4;
+
+	private Competitor[] competitors;
+	private double[] prices;
+	private long[] units;
+
+	HeapQuoteArrays(boolean fixedPoint) {
+		competitors = new Competitor[INITIAL_CAPACITY];
+		prices = new double[INITIAL_CAPACITY];
+		units = fixedPoint ? new long[INITIAL_CAPACITY] : null;
+	}
+
+	private HeapQuoteArrays(HeapQuoteArrays quotes, int capacity) {
+		super(quotes);
+		competitors = Arrays.copyOf(quotes.competitors, capacity);
+		prices = Arrays.copyOf(quotes.prices, capacity);
+		units = (quotes.units == null) ? null : Arrays.copyOf(quotes.units, capacity);
+		recomputeSum();
+	}
+
+	/**
+	 * Returns a copy with room for one more quote.
+	 */
+	HeapQuoteArrays copy() {
+		return new HeapQuoteArrays(this, size() + 1);
+	}
+
+	@Override
+	double getPrice(int index) {
+		return prices[index];
+	}
+
+	@Override
+	Competitor getCompetitor(int index) {
+		return competitors[index];
+	}
+
+	@Override
+	void copyPrices(double[] destination, int offset) {
+		System.arraycopy(prices, 0, destination, offset, size());
+	}
+
+	@Override
+	double[] toPriceArray() {
+		return Arrays.copyOf(prices, size());
+	}
+
+	@Override
+	boolean isFixedPoint() {
+		return units != null;
+	}
+
+	@Override
+	void copyUnits(long[] destination) {
+		System.arraycopy(units, 0, destination, 0, size());
+	}
+
+	@Override
+	void set(int index, Competitor competitor, double price, long priceUnits) {
+		competitors[index] = competitor;
+		prices[index] = price;
+		if (units != null) {
+			units[index] = priceUnits;
+		}
+	}
+
+	@Override
+	void insert(int index, Competitor competitor, double price, long priceUnits) {
+		int size = size();
+		if (size == prices.length) {
+			competitors = Arrays.copyOf(competitors, size * 2);
+			prices = Arrays.copyOf(prices, size * 2);
+			if (units != null) {
+				units = Arrays.copyOf(units, size * 2);
+			}
+		}
+		System.arraycopy(competitors, index, competitors, index + 1, size - index);
+		System.arraycopy(prices, index, prices, index + 1, size - index);
+		if (units != null) {
+			System.arraycopy(units, index, units, index + 1, size - index);
+		}
+		set(index, competitor, price, priceUnits);
+	}
+
+	@Override
+	void delete(int index) {
+		int size = size();
+		System.arraycopy(competitors, index + 1, competitors, index, size - index - 1);
+		System.arraycopy(prices, index + 1, prices, index, size - index - 1);
+		if (units != null) {
+			System.arraycopy(units, index + 1, units, index, size - index - 1);
+		}
+		competitors[size - 1] = null;
+	}
+
+}
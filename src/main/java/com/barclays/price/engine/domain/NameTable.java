@@ -0,0 +1,149 @@
+package com.barclays.price.engine.domain;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Interns names to dense integer ids, in the order they are first seen. Names
+ * can be looked up straight from the bytes of a buffer, so a name read again
+ * from a file yields the same String instance without allocating a new one.
+ *
+ * Instances are not thread safe.
+ */
+public class NameTable {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private byte[][] keys;
+	private int[] hashes;
+	private int[] ids;
+	private String[] names;
+	private int size;
+
+	public NameTable() {
+		this(INITIAL_CAPACITY);
+	}
+
+	public NameTable(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(expectedSize, INITIAL_CAPACITY / 2) * 2 - 1) << 1;
+		keys = new byte[capacity][];
+		hashes = new int[capacity];
+		ids = new int[capacity];
+		names = new String[Math.max(expectedSize, INITIAL_CAPACITY / 2)];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public String getName(int id) {
+		return names[id];
+	}
+
+	/**
+	 * Returns the id of the name held by the bytes from start (inclusive) to end
+	 * (exclusive) of the buffer, assigning the next id if the name is new.
+	 */
+	public int intern(ByteBuffer buffer, int start, int end) {
+		int hash = hash(buffer, start, end);
+		int mask = keys.length - 1;
+		int slot = hash & mask;
+
+		while (keys[slot] != null) {
+			if (hashes[slot] == hash && equals(keys[slot], buffer, start, end)) {
+				return ids[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		byte[] key = new byte[end - start];
+		for (int i = start; i < end; i++) {
+			key[i - start] = buffer.get(i);
+		}
+		return add(slot, hash, key);
+	}
+
+	public int intern(String name) {
+		byte[] key = name.getBytes(StandardCharsets.UTF_8);
+		return intern(ByteBuffer.wrap(key), 0, key.length);
+	}
+
+	/**
+	 * Returns the id of the given name, or -1 if it was never interned.
+	 */
+	public int idOf(String name) {
+		byte[] key = name.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.wrap(key);
+		int hash = hash(buffer, 0, key.length);
+		int mask = keys.length - 1;
+		int slot = hash & mask;
+
+		while (keys[slot] != null) {
+			if (hashes[slot] == hash && Arrays.equals(keys[slot], key)) {
+				return ids[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	private int add(int slot, int hash, byte[] key) {
+		int id = size++;
+		if (id == names.length) {
+			names = Arrays.copyOf(names, id * 2);
+		}
+		names[id] = new String(key, StandardCharsets.UTF_8);
+
+		keys[slot] = key;
+		hashes[slot] = hash;
+		ids[slot] = id;
+		if (size * 2 > keys.length) {
+			rehash();
+		}
+		return id;
+	}
+
+	private void rehash() {
+		byte[][] oldKeys = keys;
+		int[] oldHashes = hashes;
+		int[] oldIds = ids;
+		keys = new byte[oldKeys.length * 2][];
+		hashes = new int[keys.length];
+		ids = new int[keys.length];
+		int mask = keys.length - 1;
+
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != null) {
+				int slot = oldHashes[i] & mask;
+				while (keys[slot] != null) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[i];
+				hashes[slot] = oldHashes[i];
+				ids[slot] = oldIds[i];
+			}
+		}
+	}
+
+	private static int hash(ByteBuffer buffer, int start, int end) {
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + buffer.get(i);
+		}
+		return hash ^ (hash >>> 16);
+	}
+
+	private static boolean equals(byte[] key, ByteBuffer buffer, int start, int end) {
+		if (key.length != end - start) {
+			return false;
+		}
+		for (int i = 0; i < key.length; i++) {
+			if (key[i] != buffer.get(start + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,40 @@
+package com.barclays.price.engine.domain;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Lock that never blocks, standing in for the read lock of a company whose
+ * readers need no locking.
+ */
+class NoLock implements Lock {
+
+	@Override
+	public void lock() {
+	}
+
+	@Override
+	public void lockInterruptibly() {
+	}
+
+	@Override
+	public boolean tryLock() {
+		return true;
+	}
+
+	@Override
+	public boolean tryLock(long time, TimeUnit unit) {
+		return true;
+	}
+
+	@Override
+	public void unlock() {
+	}
+
+	@Override
+	public Condition newCondition() {
+		throw new UnsupportedOperationException("NoLock has no conditions");
+	}
+
+}
@@ -0,0 +1,152 @@
+package com.barclays.price.engine.domain;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The quotes of a product held in a region of an {@link OffHeapQuoteStore}
+ * rather than in heap arrays, in the same competitor name order. Updated in
+ * place only: copy-on-write publication would need regions to outlive their
+ * last reader, so these quotes are not used by concurrent price books.
+ */
+class OffHeapQuoteArrays extends QuoteArrays {
+
+	private static final int INITIAL_CAPACITY = 4;
+
+	private final OffHeapQuoteStore store;
+	private final boolean fixedPoint;
+	private long region;
+	private ByteBuffer chunk;
+	private int base;
+	private int capacity;
+
+	OffHeapQuoteArrays(OffHeapQuoteStore store, boolean fixedPoint) {
+		this.store = store;
+		this.fixedPoint = fixedPoint;
+		relocate(INITIAL_CAPACITY);
+	}
+
+	@Override
+	double getPrice(int index) {
+		return chunk.getDouble(pricePosition(index));
+	}
+
+	@Override
+	Competitor getCompetitor(int index) {
+		return store.getCompetitor(competitorId(index));
+	}
+
+	@Override
+	void copyPrices(double[] destination, int offset) {
+		ByteBuffer quotes = chunk;
+		int position = base;
+		int size = size();
+		for (int i = 0; i < size; i++) {
+			destination[offset + i] = quotes.getDouble(position);
+			position += 8;
+		}
+	}
+
+	@Override
+	boolean isFixedPoint() {
+		return fixedPoint;
+	}
+
+	@Override
+	void copyUnits(long[] destination) {
+		int size = size();
+		for (int i = 0; i < size; i++) {
+			destination[i] = chunk.getLong(unitsPosition(i));
+		}
+	}
+
+	@Override
+	void set(int index, Competitor competitor, double price, long priceUnits) {
+		write(index, store.competitorId(competitor), price, priceUnits);
+	}
+
+	@Override
+	void insert(int index, Competitor competitor, double price, long priceUnits) {
+		int id = store.competitorId(competitor);
+		int size = size();
+		if (size == capacity) {
+			relocate(capacity * 2);
+		}
+		for (int i = size; i > index; i--) {
+			move(i - 1, i);
+		}
+		write(index, id, price, priceUnits);
+	}
+
+	@Override
+	void delete(int index) {
+		int size = size();
+		for (int i = index + 1; i < size; i++) {
+			move(i, i - 1);
+		}
+	}
+
+	/**
+	 * Moves the quotes to a new region of the given capacity and frees the old one.
+	 */
+	private void relocate(int newCapacity) {
+		long oldRegion = region;
+		ByteBuffer oldChunk = chunk;
+		int oldBase = base;
+		int oldCapacity = capacity;
+
+		region = store.allocate(regionBytes(newCapacity));
+		chunk = store.chunkOf(region);
+		base = OffHeapQuoteStore.offsetOf(region);
+		capacity = newCapacity;
+		if (oldChunk == null) {
+			return;
+		}
+
+		for (int i = 0; i < size(); i++) {
+			chunk.putDouble(pricePosition(i), oldChunk.getDouble(oldBase + 8 * i));
+			if (fixedPoint) {
+				chunk.putLong(unitsPosition(i), oldChunk.getLong(oldBase + 8 * (oldCapacity + i)));
+			}
+			chunk.putInt(competitorPosition(i),
+					oldChunk.getInt(oldBase + (fixedPoint ? 16 : 8) * oldCapacity + 4 * i));
+		}
+		store.free(oldRegion, regionBytes(oldCapacity));
+	}
+
+	private int regionBytes(int regionCapacity) {
+		return regionCapacity * (fixedPoint ? 20 : 12);
+	}
+
+	private void move(int from, int to) {
+		chunk.putDouble(pricePosition(to), chunk.getDouble(pricePosition(from)));
+		if (fixedPoint) {
+			chunk.putLong(unitsPosition(to), chunk.getLong(unitsPosition(from)));
+		}
+		chunk.putInt(competitorPosition(to), competitorId(from));
+	}
+
+	private void write(int index, int competitorId, double price, long priceUnits) {
+		chunk.putDouble(pricePosition(index), price);
+		if (fixedPoint) {
+			chunk.putLong(unitsPosition(index), priceUnits);
+		}
+		chunk.putInt(competitorPosition(index), competitorId);
+	}
+
+	private int competitorId(int index) {
+		return chunk.getInt(competitorPosition(index));
+	}
+
+	private int pricePosition(int index) {
+		return base + 8 * index;
+	}
+
+	private int unitsPosition(int index) {
+		return base + 8 * (capacity + index);
+	}
+
+	private int competitorPosition(int index) {
+		return base + (fixedPoint ? 16 : 8) * capacity + 4 * index;
+	}
+
+}
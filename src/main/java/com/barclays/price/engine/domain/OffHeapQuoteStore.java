@@ -0,0 +1,174 @@
+package com.barclays.price.engine.domain;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Arena holding the quotes of every product outside of the Java heap, in
+ * chunks of direct or memory-mapped buffers. The quotes of a product take one
+ * region of a chunk: its prices, then its prices in minor units for fixed point
+ * quotes, then the ids of its competitors. Competitors are interned by name to
+ * these ids, so the heap holds one small object per product and one per
+ * competitor, however many quotes there are.
+ *
+ * Regions are sized for a power of two number of quotes; a region outgrown by
+ * its product is moved to a region twice as large and its space is reused for
+ * another product of the same size. Allocation is synchronized; reading
+ * regions is not, and relies on the owner excluding readers from updates.
+ */
+public class OffHeapQuoteStore {
+
+	public static final int DEFAULT_CHUNK_BYTES = 64 << 20;
+
+	private final int chunkBytes;
+	private final Path file;
+	private final List<ByteBuffer> chunks;
+	private final Map<Integer, FreeRegions> freeRegionsBySize;
+	private int chunkPosition;
+	private long usedBytes;
+
+	private final NameTable competitorIds;
+	private volatile Competitor[] competitors;
+
+	private OffHeapQuoteStore(int chunkBytes, Path file) {
+		if (chunkBytes < 1024) {
+			throw new IllegalArgumentException("Off-heap chunks must hold at least 1024 bytes");
+		}
+		this.chunkBytes = chunkBytes;
+		this.file = file;
+		chunks = new ArrayList<ByteBuffer>();
+		freeRegionsBySize = new HashMap<Integer, FreeRegions>();
+		chunkPosition = chunkBytes;
+		competitorIds = new NameTable();
+		competitors = new Competitor[16];
+	}
+
+	/**
+	 * Creates a store of direct buffers of the given size.
+	 */
+	public static OffHeapQuoteStore allocateDirect(int chunkBytes) {
+		return new OffHeapQuoteStore(chunkBytes, null);
+	}
+
+	/**
+	 * Creates a store of chunks of the given size mapped one after the other from
+	 * the given file, which is created or overwritten. The file may be larger than
+	 * physical memory; the operating system pages it in as it is read.
+	 */
+	public static OffHeapQuoteStore map(Path file, int chunkBytes) throws IOException {
+		FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING).close();
+		return new OffHeapQuoteStore(chunkBytes, file);
+	}
+
+	/**
+	 * Returns the bytes of all chunks allocated so far.
+	 */
+	public synchronized long getAllocatedBytes() {
+		return (long) chunks.size() * chunkBytes;
+	}
+
+	/**
+	 * Returns the bytes of the regions currently holding quotes.
+	 */
+	public synchronized long getUsedBytes() {
+		return usedBytes;
+	}
+
+	/**
+	 * Returns a region of the given size, as the chunk index in the high half of
+	 * a long and the offset in the chunk in the low half.
+	 */
+	synchronized long allocate(int bytes) {
+		if (bytes > chunkBytes) {
+			throw new IllegalStateException("Quotes of " + bytes + " bytes do not fit off-heap chunks of "
+					+ chunkBytes + " bytes");
+		}
+		usedBytes += bytes;
+
+		FreeRegions freeRegions = freeRegionsBySize.get(bytes);
+		if (freeRegions != null && freeRegions.size > 0) {
+			return freeRegions.regions[--freeRegions.size];
+		}
+
+		if (chunkPosition + bytes > chunkBytes) {
+			chunks.add(newChunk(chunks.size()));
+			chunkPosition = 0;
+		}
+		long region = ((long) (chunks.size() - 1) << 32) | chunkPosition;
+		chunkPosition += bytes;
+		return region;
+	}
+
+	synchronized void free(long region, int bytes) {
+		usedBytes -= bytes;
+		FreeRegions freeRegions = freeRegionsBySize.get(bytes);
+		if (freeRegions == null) {
+			freeRegions = new FreeRegions();
+			freeRegionsBySize.put(bytes, freeRegions);
+		}
+		if (freeRegions.size == freeRegions.regions.length) {
+			freeRegions.regions = Arrays.copyOf(freeRegions.regions, freeRegions.size * 2);
+		}
+		freeRegions.regions[freeRegions.size++] = region;
+	}
+
+	ByteBuffer chunkOf(long region) {
+		return chunks.get((int) (region >>> 32));
+	}
+
+	static int offsetOf(long region) {
+		return (int) region;
+	}
+
+	/**
+	 * Returns the id of the competitor's name, recording the competitor as the one
+	 * now quoting under that name.
+	 */
+	synchronized int competitorId(Competitor competitor) {
+		int id = competitorIds.intern(competitor.getName());
+		Competitor[] current = competitors;
+		if (id >= current.length) {
+			current = Arrays.copyOf(current, Math.max(current.length * 2, id + 1));
+		}
+		current[id] = competitor;
+		competitors = current;
+		return id;
+	}
+
+	Competitor getCompetitor(int id) {
+		return competitors[id];
+	}
+
+	private ByteBuffer newChunk(int index) {
+		if (file == null) {
+			return ByteBuffer.allocateDirect(chunkBytes).order(ByteOrder.nativeOrder());
+		}
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			return channel.map(FileChannel.MapMode.READ_WRITE, (long) index * chunkBytes, chunkBytes)
+					.order(ByteOrder.nativeOrder());
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not map off-heap quote chunk from " + file, e);
+		}
+	}
+
+	/**
+	 * Stack of the freed regions of one size.
+	 */
+	private static class FreeRegions {
+
+		private long[] regions = new long[16];
+		private int size;
+
+	}
+
+}
@@ -0,0 +1,443 @@
+package com.barclays.price.engine.domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.barclays.price.engine.logic.FixedPointPricingKernel;
+
+/**
+ * Product-major index of competitor quotes. Every product is given a dense id
+ * the first time it is registered or quoted, and its quotes are found by
+ * indexing an array with that id, independent of the number of products and
+ * competitors known to the company. Quotes are only held here, as primitive
+ * prices, not by the competitors quoting them.
+ *
+ * A concurrent price book updates each product under that product's own lock
+ * and publishes its quotes copy-on-write, so quotes of different products are
+ * written in parallel and read without locking. Otherwise quote updates are
+ * made under the write lock of the book.
+ *
+ * A fixed point price book also holds every price in minor units, for exact
+ * decimal pricing. An off-heap price book holds its quotes in an
+ * {@link OffHeapQuoteStore} instead of heap arrays.
+ */
+public class PriceBook {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private volatile AtomicReferenceArray<ProductQuotes> quotesByProductId;
+	private final NameTable productIds;
+	private Queue<ProductQuotes> dirtyQuotes;
+	private ReadWriteLock lock;
+	private boolean concurrent;
+	private volatile int fixedPointDecimals = -1;
+	private volatile long fixedPointScale;
+	private volatile OffHeapQuoteStore offHeapStore;
+	private boolean priceCounts;
+	private QuoteWindow quoteWindow;
+
+	public PriceBook() {
+		this(new ReentrantReadWriteLock());
+	}
+
+	/**
+	 * Creates a price book whose quote updates are made under the write lock of the
+	 * given lock, typically the one guarding the rest of the owning company.
+	 */
+	public PriceBook(ReadWriteLock lock) {
+		this(lock, false);
+	}
+
+	public PriceBook(ReadWriteLock lock, boolean concurrent) {
+		quotesByProductId = new AtomicReferenceArray<ProductQuotes>(INITIAL_CAPACITY);
+		productIds = new NameTable();
+		dirtyQuotes = new ConcurrentLinkedQueue<ProductQuotes>();
+		this.lock = lock;
+		this.concurrent = concurrent;
+	}
+
+	public boolean isConcurrent() {
+		return concurrent;
+	}
+
+	/**
+	 * Holds every price also in minor units of the given number of decimals. Must
+	 * be called before any product is registered or quoted.
+	 */
+	public synchronized void enableFixedPoint(int decimals) {
+		long scale = FixedPointPricingKernel.scaleOf(decimals);
+		if (productIds.size() > 0) {
+			throw new IllegalStateException("Fixed point prices must be enabled before adding products");
+		}
+		fixedPointScale = scale;
+		fixedPointDecimals = decimals;
+	}
+
+	/**
+	 * Holds the quotes of every product in the given off-heap store. Must be called
+	 * before any product is registered or quoted, and is not supported by
+	 * concurrent price books, whose quotes are published copy-on-write.
+	 */
+	public synchronized void enableOffHeap(OffHeapQuoteStore store) {
+		if (concurrent) {
+			throw new IllegalStateException("Off-heap quotes are not supported in concurrent mode");
+		}
+		if (productIds.size() > 0) {
+			throw new IllegalStateException("Off-heap quotes must be enabled before adding products");
+		}
+		offHeapStore = store;
+	}
+
+	/**
+	 * Counts the quotes of each distinct price of every product, now and for
+	 * products registered later, so that prices can be updated without sorting
+	 * the quotes. Not supported by concurrent price books.
+	 */
+	public synchronized void enablePriceCounts() {
+		if (concurrent) {
+			throw new IllegalStateException("Price counts are not supported in concurrent mode");
+		}
+		priceCounts = true;
+		AtomicReferenceArray<ProductQuotes> quotes = quotesByProductId;
+		for (int id = 0; id < quotes.length(); id++) {
+			ProductQuotes productQuotes = quotes.get(id);
+			if (productQuotes != null) {
+				productQuotes.enablePriceCounts();
+			}
+		}
+	}
+
+	/**
+	 * Lets the given window know of every quote recorded, so that a quote recorded
+	 * without a time stamp is no longer expired by the window. Called under the
+	 * write lock of the book.
+	 */
+	void setQuoteWindow(QuoteWindow quoteWindow) {
+		this.quoteWindow = quoteWindow;
+	}
+
+	/**
+	 * Returns the off-heap store holding the quotes, or null if they are on the heap.
+	 */
+	public OffHeapQuoteStore getOffHeapStore() {
+		return offHeapStore;
+	}
+
+	/**
+	 * Returns the number of decimals of fixed point prices, -1 if prices are only
+	 * held in floating point.
+	 */
+	public int getFixedPointDecimals() {
+		return fixedPointDecimals;
+	}
+
+	/**
+	 * Returns the number of products registered so far, which is also one more
+	 * than the highest product id.
+	 */
+	public synchronized int getProductCount() {
+		return productIds.size();
+	}
+
+	/**
+	 * Makes room for the quotes of at least the given number of products, such as
+	 * the count given by the header of a products file, so registering them does
+	 * not grow the index along the way.
+	 */
+	public synchronized void ensureProductCapacity(int productCount) {
+		AtomicReferenceArray<ProductQuotes> quotes = quotesByProductId;
+		if (productCount <= quotes.length()) {
+			return;
+		}
+		AtomicReferenceArray<ProductQuotes> grown = new AtomicReferenceArray<ProductQuotes>(productCount);
+		for (int i = 0; i < quotes.length(); i++) {
+			grown.set(i, quotes.get(i));
+		}
+		quotesByProductId = grown;
+	}
+
+	/**
+	 * Gives the product the id of its name in this book, assigning the next id to
+	 * a new name, and returns its quotes. A product replacing another one of the
+	 * same name takes over its quotes.
+	 */
+	synchronized ProductQuotes registerProduct(Product product) {
+		int id = productIds.intern(product.getName());
+		AtomicReferenceArray<ProductQuotes> quotes = quotesByProductId;
+		if (id == quotes.length()) {
+			AtomicReferenceArray<ProductQuotes> grown = new AtomicReferenceArray<ProductQuotes>(id * 2);
+			for (int i = 0; i < id; i++) {
+				grown.set(i, quotes.get(i));
+			}
+			quotes = grown;
+		}
+
+		ProductQuotes productQuotes = quotes.get(id);
+		if (productQuotes == null) {
+			productQuotes = new ProductQuotes(product, concurrent, fixedPointDecimals >= 0, offHeapStore);
+			if (priceCounts) {
+				productQuotes.enablePriceCounts();
+			}
+			quotes.set(id, productQuotes);
+		} else {
+			productQuotes.setProduct(product);
+		}
+		quotesByProductId = quotes;
+		product.assignId(id);
+		return productQuotes;
+	}
+
+	/**
+	 * Records a quote. In a fixed point price book the price in minor units is the
+	 * given price rounded to the nearest unit.
+	 */
+	public void addQuote(Product product, Competitor competitor, double price) {
+		long scale = fixedPointScale;
+		addQuote(product, competitor, price, (scale == 0) ? 0 : FixedPointPricingKernel.toUnits(price, scale));
+	}
+
+	/**
+	 * Records a quote whose price in minor units is already known, such as one
+	 * parsed from its decimal text. The units are ignored by a floating point
+	 * price book.
+	 */
+	public void addQuote(Product product, Competitor competitor, double price, long priceUnits) {
+		if (concurrent) {
+			putQuote(product, competitor, price, priceUnits);
+			return;
+		}
+
+		lock.writeLock().lock();
+		try {
+			putQuote(product, competitor, price, priceUnits);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Records the first length quotes of the given columns as
+	 * {@link #addQuote(Product, Competitor, double)} would one after another, the
+	 * products being registered first. Quotes are split into the given number of
+	 * partitions by product id and each partition is recorded by one task of the
+	 * executor, all under a single hold of the write lock, so the quotes of a
+	 * product are recorded in column order by a single thread and the last quote
+	 * of each product and competitor wins. Off-heap books, whose store is shared
+	 * by all products, and books under a quote window record on the calling
+	 * thread instead.
+	 */
+	public void addQuotes(Product[] products, Competitor[] competitors, double[] prices, int length,
+			ExecutorService executor, int partitions) {
+		lock.writeLock().lock();
+		try {
+			for (int i = 0; i < length; i++) {
+				if (getQuotes(products[i]) == null) {
+					registerProduct(products[i]);
+				}
+			}
+
+			if (partitions <= 1 || offHeapStore != null || quoteWindow != null) {
+				putQuotes(products, competitors, prices, null, 0, length);
+				return;
+			}
+
+			int[] partitionStarts = new int[partitions + 1];
+			for (int i = 0; i < length; i++) {
+				partitionStarts[products[i].getId() % partitions + 1]++;
+			}
+			for (int partition = 0; partition < partitions; partition++) {
+				partitionStarts[partition + 1] += partitionStarts[partition];
+			}
+			int[] order = new int[length];
+			int[] next = Arrays.copyOf(partitionStarts, partitions);
+			for (int i = 0; i < length; i++) {
+				order[next[products[i].getId() % partitions]++] = i;
+			}
+
+			List<Future<?>> results = new ArrayList<Future<?>>(partitions);
+			for (int partition = 0; partition < partitions; partition++) {
+				int from = partitionStarts[partition];
+				int to = partitionStarts[partition + 1];
+				results.add(executor.submit(() -> putQuotes(products, competitors, prices, order, from, to)));
+			}
+			for (Future<?> result : results) {
+				result.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while recording quotes", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException("Failed to record quotes", e.getCause());
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Records the quotes at the given positions of the columns, or at positions
+	 * from to to when there is no order. Callers must hold the write lock.
+	 */
+	private void putQuotes(Product[] products, Competitor[] competitors, double[] prices, int[] order, int from,
+			int to) {
+		long scale = fixedPointScale;
+		for (int j = from; j < to; j++) {
+			int i = (order == null) ? j : order[j];
+			double price = prices[i];
+			putQuote(products[i], competitors[i], price, (scale == 0) ? 0 : FixedPointPricingKernel.toUnits(price, scale));
+		}
+	}
+
+	/**
+	 * Removes the quote of the competitor for the product, if it has one.
+	 */
+	public void removeQuote(Product product, Competitor competitor) {
+		lock.writeLock().lock();
+		try {
+			ProductQuotes quotes = getQuotes(product);
+			if (quotes != null && quotes.current().indexOfQuote(competitor) >= 0) {
+				quotes.remove(competitor);
+				markDirty(quotes);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void addCompetitorQuotes(Competitor competitor, Map<Product, Double> productPrices) {
+		for (Map.Entry<Product, Double> productPrice : productPrices.entrySet()) {
+			addQuote(productPrice.getKey(), competitor, productPrice.getValue());
+		}
+	}
+
+	/**
+	 * Removes every quote of the competitor and returns them.
+	 */
+	public Map<Product, Double> removeCompetitorQuotes(Competitor competitor) {
+		lock.writeLock().lock();
+		try {
+			Map<Product, Double> productPrices = getCompetitorQuotes(competitor);
+			for (Product product : productPrices.keySet()) {
+				ProductQuotes quotes = getQuotes(product);
+				quotes.remove(competitor);
+				markDirty(quotes);
+			}
+			return productPrices;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns a copy of the prices quoted by the competitor, ordered by product
+	 * name. Every product is searched for a quote, so this is meant for occasional
+	 * use rather than for pricing.
+	 */
+	public Map<Product, Double> getCompetitorQuotes(Competitor competitor) {
+		Map<Product, Double> productPrices = new TreeMap<Product, Double>();
+		AtomicReferenceArray<ProductQuotes> quotes = quotesByProductId;
+		for (int id = 0; id < quotes.length(); id++) {
+			ProductQuotes productQuotes = quotes.get(id);
+			if (productQuotes == null) {
+				continue;
+			}
+			QuoteArrays current = productQuotes.current();
+			int index = current.indexOfQuote(competitor);
+			if (index >= 0) {
+				productPrices.put(productQuotes.getProduct(), current.getPrice(index));
+			}
+		}
+		return productPrices;
+	}
+
+	/**
+	 * Returns the quotes of the given product, or null if the product was never
+	 * registered nor quoted.
+	 */
+	public ProductQuotes getQuotes(Product product) {
+		int id = product.getId();
+		AtomicReferenceArray<ProductQuotes> quotes = quotesByProductId;
+		if (id >= 0 && id < quotes.length()) {
+			ProductQuotes productQuotes = quotes.get(id);
+			if (productQuotes != null && productQuotes.getProduct() == product) {
+				return productQuotes;
+			}
+		}
+		return findQuotes(product);
+	}
+
+	/**
+	 * Returns the quotes of the product with the given id, or null if there is none.
+	 */
+	public ProductQuotes getQuotes(int productId) {
+		AtomicReferenceArray<ProductQuotes> quotes = quotesByProductId;
+		return (productId < quotes.length()) ? quotes.get(productId) : null;
+	}
+
+	/**
+	 * Looks the product up by name, for products whose id was assigned by another
+	 * price book or which were replaced by a product of the same name.
+	 */
+	private synchronized ProductQuotes findQuotes(Product product) {
+		int id = productIds.idOf(product.getName());
+		return (id < 0) ? null : quotesByProductId.get(id);
+	}
+
+	/**
+	 * Returns the quotes of the products whose quotes changed since the last call,
+	 * in the order they first changed, and marks them clean again. Quotes changing
+	 * after being marked clean are dirty again for the next call.
+	 */
+	List<ProductQuotes> drainDirtyQuotes() {
+		List<ProductQuotes> drained = new ArrayList<ProductQuotes>();
+		ProductQuotes quotes;
+		while ((quotes = dirtyQuotes.poll()) != null) {
+			quotes.markClean();
+			drained.add(quotes);
+		}
+		return drained;
+	}
+
+	/**
+	 * Marks the quotes of the product dirty without changing them, such as after
+	 * its price selection criteria changed. Does nothing for unquoted products.
+	 */
+	void markRepricing(Product product) {
+		ProductQuotes quotes = getQuotes(product);
+		if (quotes != null) {
+			markDirty(quotes);
+		}
+	}
+
+	private void putQuote(Product product, Competitor competitor, double price, long priceUnits) {
+		ProductQuotes quotes = getQuotes(product);
+		if (quotes == null) {
+			quotes = registerProduct(product);
+		}
+		quotes.put(competitor, price, priceUnits);
+		if (quoteWindow != null) {
+			quoteWindow.forget(quotes, competitor);
+		}
+		markDirty(quotes);
+	}
+
+	private void markDirty(ProductQuotes quotes) {
+		if (quotes.markDirty()) {
+			dirtyQuotes.add(quotes);
+		}
+	}
+
+}
@@ -0,0 +1,96 @@
+package com.barclays.price.engine.domain;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded least recently used cache of chosen prices by product name. Each
+ * entry remembers the version of the product's quotes and of its price
+ * selection criteria it was computed from; an entry whose versions no longer
+ * match is a miss, so a new quote or a new criteria invalidates it.
+ */
+public class PriceCache {
+
+	private final int maximumSize;
+	private final Map<String, Entry> entries;
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
+
+	public PriceCache(final int maximumSize) {
+		if (maximumSize <= 0) {
+			throw new IllegalArgumentException("Price cache size must be positive");
+		}
+		this.maximumSize = maximumSize;
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				if (size() > maximumSize) {
+					evictionCount++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns the cached price of the product if it was computed from the given
+	 * versions, null otherwise.
+	 */
+	public synchronized Double get(Product product, long quotesVersion, int criteriaVersion) {
+		Entry entry = entries.get(product.getName());
+		if (entry != null && entry.product == product && entry.quotesVersion == quotesVersion
+				&& entry.criteriaVersion == criteriaVersion) {
+			hitCount++;
+			return entry.price;
+		}
+		missCount++;
+		return null;
+	}
+
+	public synchronized void put(Product product, long quotesVersion, int criteriaVersion, double price) {
+		entries.put(product.getName(), new Entry(product, quotesVersion, criteriaVersion, price));
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	public int getMaximumSize() {
+		return maximumSize;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+	private static class Entry {
+
+		private final Product product;
+		private final long quotesVersion;
+		private final int criteriaVersion;
+		private final Double price;
+
+		Entry(Product product, long quotesVersion, int criteriaVersion, double price) {
+			this.product = product;
+			this.quotesVersion = quotesVersion;
+			this.criteriaVersion = criteriaVersion;
+			this.price = price;
+		}
+
+	}
+
+}
@@ -0,0 +1,149 @@
+package com.barclays.price.engine.domain;
+
+/**
+ * Number of quotes of each distinct price of a product, kept up to date as
+ * quotes are added, replaced and removed, in an open addressing table keyed
+ * by the bits of the price. Updates take constant time and do not allocate
+ * unless the table grows.
+ *
+ * Gives the mode of the quotes within an outlier band by walking the distinct
+ * prices once, with the tie-breaks of
+ * {@link com.barclays.price.engine.logic.PricingKernel#calculateMode(double[], int)}:
+ * the lowest of the most frequent prices when some price is quoted more than
+ * once, the first price in competitor order when all are distinct.
+ */
+class PriceCounts {
+
+	private static final int INITIAL_CAPACITY = 8;
+
+	private long[] keys;
+	private int[] counts;
+	private int size;
+
+	PriceCounts() {
+		keys = new long[INITIAL_CAPACITY];
+		counts = new int[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Returns the number of distinct prices.
+	 */
+	int size() {
+		return size;
+	}
+
+	int count(double price) {
+		int slot = slotOf(Double.doubleToLongBits(price));
+		return (slot < 0) ? 0 : counts[slot];
+	}
+
+	void add(double price) {
+		long key = Double.doubleToLongBits(price);
+		int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		while (counts[slot] != 0) {
+			if (keys[slot] == key) {
+				counts[slot]++;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		keys[slot] = key;
+		counts[slot] = 1;
+		if (++size * 2 > keys.length) {
+			rehash(keys.length * 2);
+		}
+	}
+
+	void remove(double price) {
+		int slot = slotOf(Double.doubleToLongBits(price));
+		if (slot < 0) {
+			return;
+		}
+		if (--counts[slot] > 0) {
+			return;
+		}
+
+		size--;
+		int mask = keys.length - 1;
+		int hole = slot;
+		for (int next = (hole + 1) & mask; counts[next] != 0; next = (next + 1) & mask) {
+			int home = hash(keys[next]) & mask;
+			if (((next - home) & mask) >= ((next - hole) & mask)) {
+				keys[hole] = keys[next];
+				counts[hole] = counts[next];
+				counts[next] = 0;
+				hole = next;
+			}
+		}
+	}
+
+	/**
+	 * Returns the mode of the given quotes, counted here, within the bounds both
+	 * included, or -1 if no quote is within them.
+	 */
+	double calculateMode(QuoteArrays quotes, double lowerBound, double upperBound) {
+		int max = 0;
+		double mode = -1;
+		for (int slot = 0; slot < keys.length; slot++) {
+			int count = counts[slot];
+			if (count == 0) {
+				continue;
+			}
+			double price = Double.longBitsToDouble(keys[slot]);
+			if ((price > upperBound) || (price < lowerBound)) {
+				continue;
+			}
+			if (count > max || (count == max && price < mode)) {
+				max = count;
+				mode = price;
+			}
+		}
+
+		if (max != 1) {
+			return mode;
+		}
+		for (int i = 0; i < quotes.size(); i++) {
+			double price = quotes.getPrice(i);
+			if (!((price > upperBound) || (price < lowerBound))) {
+				return price;
+			}
+		}
+		return -1;
+	}
+
+	private int slotOf(long key) {
+		int mask = keys.length - 1;
+		for (int slot = hash(key) & mask; counts[slot] != 0; slot = (slot + 1) & mask) {
+			if (keys[slot] == key) {
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		int[] oldCounts = counts;
+		keys = new long[capacity];
+		counts = new int[capacity];
+		int mask = capacity - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldCounts[i] != 0) {
+				int slot = hash(oldKeys[i]) & mask;
+				while (counts[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[i];
+				counts[slot] = oldCounts[i];
+			}
+		}
+	}
+
+	private static int hash(long key) {
+		long mixed = key * 0x9E3779B97F4A7C15L;
+		return (int) (mixed ^ (mixed >>> 32));
+	}
+
+}
@@ -0,0 +1,252 @@
+package com.barclays.price.engine.domain;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+import com.barclays.price.engine.logic.ProductFinalPriceSelection;
+import com.barclays.price.engine.logic.StrategyRegistry;
+
+/**
+ * Secondary index over computed prices, kept sorted by chosen price overall
+ * and per market condition code, by relative move of the last price change and
+ * by number of quotes surviving the outlier filter. Top-k and range queries
+ * take logarithmic time plus the size of their result; each price update takes
+ * logarithmic time.
+ *
+ * The index holds the prices it was last given, normally by
+ * {@link Company#pollPriceChanges()}, and is not recomputed when queried.
+ * Products are identified by name, so a product replacing another one of the
+ * same name takes over its entry. All methods are synchronized.
+ */
+public class PriceIndex {
+
+	private static final Comparator<Entry> BY_PRICE = (a, b) -> {
+		int order = Double.compare(a.price, b.price);
+		return (order != 0) ? order : a.name.compareTo(b.name);
+	};
+	private static final Comparator<Entry> BY_MOVE = (a, b) -> {
+		int order = Double.compare(a.move, b.move);
+		return (order != 0) ? order : a.name.compareTo(b.name);
+	};
+	private static final Comparator<Entry> BY_SURVIVING_QUOTES = (a, b) -> {
+		int order = Integer.compare(a.survivingQuotes, b.survivingQuotes);
+		return (order != 0) ? order : a.name.compareTo(b.name);
+	};
+
+	private final StrategyRegistry strategyRegistry;
+	private final Map<String, Entry> entries;
+	private final NavigableSet<Entry> byPrice;
+	private final Map<Integer, NavigableSet<Entry>> byConditionPrice;
+	private final NavigableSet<Entry> byMove;
+	private final NavigableSet<Entry> bySurvivingQuotes;
+
+	/**
+	 * Creates an index whose market conditions are resolved to codes by the given
+	 * registry.
+	 */
+	public PriceIndex(StrategyRegistry strategyRegistry) {
+		this.strategyRegistry = strategyRegistry;
+		entries = new HashMap<String, Entry>();
+		byPrice = new TreeSet<Entry>(BY_PRICE);
+		byConditionPrice = new HashMap<Integer, NavigableSet<Entry>>();
+		byMove = new TreeSet<Entry>(BY_MOVE);
+		bySurvivingQuotes = new TreeSet<Entry>(BY_SURVIVING_QUOTES);
+	}
+
+	/**
+	 * Records the chosen price of the product, computed under the given market
+	 * condition code with the given number of quotes left after filtering. A
+	 * change of price records its move relative to the previous price; an
+	 * unchanged price keeps the move of the last change.
+	 */
+	synchronized void update(Product product, int conditionCode, double price, int survivingQuotes) {
+		Entry previous = entries.get(product.getName());
+		double move = Double.NaN;
+		if (previous != null) {
+			if (previous.product == product && previous.conditionCode == conditionCode
+					&& Double.compare(previous.price, price) == 0 && previous.survivingQuotes == survivingQuotes) {
+				return;
+			}
+			move = (Double.compare(previous.price, price) == 0) ? previous.move
+					: Math.abs(price - previous.price) / Math.abs(previous.price);
+			remove(previous);
+		}
+
+		Entry entry = new Entry(product, product.getName(), conditionCode, price, move, survivingQuotes);
+		entries.put(entry.name, entry);
+		byPrice.add(entry);
+		NavigableSet<Entry> conditionPrices = byConditionPrice.get(conditionCode);
+		if (conditionPrices == null) {
+			conditionPrices = new TreeSet<Entry>(BY_PRICE);
+			byConditionPrice.put(conditionCode, conditionPrices);
+		}
+		conditionPrices.add(entry);
+		if (!Double.isNaN(move)) {
+			byMove.add(entry);
+		}
+		bySurvivingQuotes.add(entry);
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		byPrice.clear();
+		byConditionPrice.clear();
+		byMove.clear();
+		bySurvivingQuotes.clear();
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns the indexed price of the product, or null if it is not indexed.
+	 */
+	public synchronized Double getPrice(Product product) {
+		Entry entry = entries.get(product.getName());
+		return (entry == null) ? null : entry.price;
+	}
+
+	/**
+	 * Returns the indexed number of quotes of the product left after filtering, or
+	 * -1 if it is not indexed.
+	 */
+	public synchronized int getSurvivingQuotes(Product product) {
+		Entry entry = entries.get(product.getName());
+		return (entry == null) ? -1 : entry.survivingQuotes;
+	}
+
+	/**
+	 * Returns the k cheapest products, cheapest first.
+	 */
+	public synchronized List<Product> getCheapest(int k) {
+		return first(byPrice, k);
+	}
+
+	/**
+	 * Returns the k cheapest products of the given market condition code, cheapest
+	 * first.
+	 */
+	public synchronized List<Product> getCheapest(int conditionCode, int k) {
+		NavigableSet<Entry> conditionPrices = byConditionPrice.get(conditionCode);
+		return (conditionPrices == null) ? new ArrayList<Product>() : first(conditionPrices, k);
+	}
+
+	/**
+	 * Returns the k cheapest products of the given market condition, such as "L H",
+	 * cheapest first. Conditions sharing a strategy share their products.
+	 */
+	public List<Product> getCheapest(String condition, int k) {
+		ProductFinalPriceSelection strategy = strategyRegistry.get(condition);
+		return (strategy == null) ? new ArrayList<Product>() : getCheapest(strategyRegistry.codeOf(strategy), k);
+	}
+
+	/**
+	 * Returns the k most expensive products, most expensive first.
+	 */
+	public synchronized List<Product> getMostExpensive(int k) {
+		return first(byPrice.descendingSet(), k);
+	}
+
+	/**
+	 * Returns the products priced between the two bounds, both included, cheapest
+	 * first.
+	 */
+	public synchronized List<Product> getPricedBetween(double minimumPrice, double maximumPrice) {
+		if (Double.compare(minimumPrice, maximumPrice) > 0) {
+			return new ArrayList<Product>();
+		}
+		return products(byPrice.subSet(Entry.priceBound(minimumPrice), true,
+				Entry.priceBound(Math.nextUp(maximumPrice)), false));
+	}
+
+	/**
+	 * Returns the products whose last price change moved their price by more than
+	 * the given fraction of the previous price, such as 0.03 for 3%, smallest move
+	 * first.
+	 */
+	public synchronized List<Product> getMovedMoreThan(double fraction) {
+		return products(byMove.tailSet(Entry.moveBound(Math.nextUp(fraction)), true));
+	}
+
+	/**
+	 * Returns the products with fewer than the given number of quotes left after
+	 * filtering, fewest first.
+	 */
+	public synchronized List<Product> getSurvivingQuotesFewerThan(int survivingQuotes) {
+		return products(bySurvivingQuotes.headSet(Entry.survivingQuotesBound(survivingQuotes), false));
+	}
+
+	private void remove(Entry entry) {
+		entries.remove(entry.name);
+		byPrice.remove(entry);
+		NavigableSet<Entry> conditionPrices = byConditionPrice.get(entry.conditionCode);
+		conditionPrices.remove(entry);
+		if (conditionPrices.isEmpty()) {
+			byConditionPrice.remove(entry.conditionCode);
+		}
+		byMove.remove(entry);
+		bySurvivingQuotes.remove(entry);
+	}
+
+	private static List<Product> first(NavigableSet<Entry> sortedEntries, int k) {
+		List<Product> products = new ArrayList<Product>(Math.max(0, Math.min(k, sortedEntries.size())));
+		Iterator<Entry> iterator = sortedEntries.iterator();
+		while (products.size() < k && iterator.hasNext()) {
+			products.add(iterator.next().product);
+		}
+		return products;
+	}
+
+	private static List<Product> products(Collection<Entry> sortedEntries) {
+		List<Product> products = new ArrayList<Product>(sortedEntries.size());
+		for (Entry entry : sortedEntries) {
+			products.add(entry.product);
+		}
+		return products;
+	}
+
+	/**
+	 * Indexed result of one product. Bounds used to search the sorted sets have the
+	 * empty name, which sorts before every product of the same key.
+	 */
+	private static class Entry {
+
+		private final Product product;
+		private final String name;
+		private final int conditionCode;
+		private final double price;
+		private final double move;
+		private final int survivingQuotes;
+
+		Entry(Product product, String name, int conditionCode, double price, double move, int survivingQuotes) {
+			this.product = product;
+			this.name = name;
+			this.conditionCode = conditionCode;
+			this.price = price;
+			this.move = move;
+			this.survivingQuotes = survivingQuotes;
+		}
+
+		static Entry priceBound(double price) {
+			return new Entry(null, "", 0, price, Double.NaN, 0);
+		}
+
+		static Entry moveBound(double move) {
+			return new Entry(null, "", 0, 0.0, move, 0);
+		}
+
+		static Entry survivingQuotesBound(int survivingQuotes) {
+			return new Entry(null, "", 0, 0.0, Double.NaN, survivingQuotes);
+		}
+
+	}
+
+}
@@ -1,11 +1,15 @@
 package com.barclays.price.engine.domain;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import com.barclays.price.engine.logic.ProductFinalPriceSelection;
 
-public class Product implements Comparable {
+public class Product implements Comparable<Product> {
 
 	private String name;
-	private ProductFinalPriceSelection finalPriceSelectionCriteria;
+	private volatile ProductFinalPriceSelection finalPriceSelectionCriteria;
+	private final AtomicInteger criteriaVersion = new AtomicInteger();
+	private volatile int id = -1;
 
 	public Product(String name, ProductFinalPriceSelection finalPriceSelectionCriteria) {
 		this.name = name;
@@ -16,17 +20,43 @@ public class Product implements Comparable {
 		return finalPriceSelectionCriteria;
 	}
 
+	/**
+	 * Changes the criteria without telling any company holding the product; use
+	 * {@link Company#setFinalPriceSelectionCriteria(Product, ProductFinalPriceSelection)}
+	 * for its price changes and price index to follow.
+	 */
 	public void setFinalPriceSelectionCriteria(ProductFinalPriceSelection finalPriceSelectionCriteria) {
 		this.finalPriceSelectionCriteria = finalPriceSelectionCriteria;
+		criteriaVersion.incrementAndGet();
+	}
+
+	/**
+	 * Number of times the price selection criteria was changed, read before the
+	 * criteria itself to detect prices computed with a stale one.
+	 */
+	int getCriteriaVersion() {
+		return criteriaVersion.get();
 	}
 
 	public String getName() {
 		return name;
 	}
 
+	/**
+	 * Dense id of the product in the price book it was last registered with, -1
+	 * until it is added to a company or quoted.
+	 */
+	public int getId() {
+		return id;
+	}
+
+	void assignId(int id) {
+		this.id = id;
+	}
+
 	@Override
-	public int compareTo(Object o) {
-		return this.name.compareTo(((Product) o).getName());
+	public int compareTo(Product o) {
+		return this.name.compareTo(o.getName());
 	}
 	
 }
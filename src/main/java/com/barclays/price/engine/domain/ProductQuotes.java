@@ -0,0 +1,203 @@
+package com.barclays.price.engine.domain;
+
+/**
+ * Competitor quotes of a single product, held as a contiguous primitive array.
+ * Quotes are kept ordered by competitor name, the same order in which the
+ * competitors catalogue of a company is walked, so that prices read from here
+ * are identical to the ones collected competitor by competitor.
+ *
+ * Updates are made under this object's monitor. Copy-on-write quotes publish a
+ * new immutable {@link QuoteArrays} on every update, so readers taking
+ * {@link #current()} once see a consistent set of quotes without locking;
+ * otherwise the arrays are updated in place and readers must be excluded from
+ * updates by the owner.
+ */
+public class ProductQuotes {
+
+	private volatile Product product;
+	private final boolean copyOnWrite;
+	private volatile QuoteArrays current;
+	private boolean dirty;
+	private double publishedPrice;
+	private PriceCounts priceCounts;
+
+	public ProductQuotes(Product product) {
+		this(product, false);
+	}
+
+	public ProductQuotes(Product product, boolean copyOnWrite) {
+		this(product, copyOnWrite, false);
+	}
+
+	/**
+	 * Creates the quotes of a product, also holding each price in minor units if
+	 * fixed point.
+	 */
+	public ProductQuotes(Product product, boolean copyOnWrite, boolean fixedPoint) {
+		this(product, copyOnWrite, fixedPoint, null);
+	}
+
+	/**
+	 * Creates the quotes of a product, held in the given off-heap store unless it
+	 * is null. Off-heap quotes cannot be copy-on-write.
+	 */
+	ProductQuotes(Product product, boolean copyOnWrite, boolean fixedPoint, OffHeapQuoteStore offHeapStore) {
+		if (copyOnWrite && offHeapStore != null) {
+			throw new IllegalArgumentException("Off-heap quotes cannot be copy-on-write");
+		}
+		this.product = product;
+		this.copyOnWrite = copyOnWrite;
+		current = (offHeapStore == null) ? new HeapQuoteArrays(fixedPoint)
+				: new OffHeapQuoteArrays(offHeapStore, fixedPoint);
+		publishedPrice = Double.NaN;
+	}
+
+	public Product getProduct() {
+		return product;
+	}
+
+	void setProduct(Product product) {
+		this.product = product;
+	}
+
+	public int size() {
+		return current.size();
+	}
+
+	/**
+	 * Running sum of the quoted prices, maintained as quotes are added, replaced
+	 * and removed, and recomputed in competitor order once there have been more
+	 * updates than quotes since. In between it may differ in the last bits from
+	 * a sum taken over the prices in competitor order.
+	 */
+	public double getSum() {
+		return current.getSum();
+	}
+
+	/**
+	 * Number of changes made to these quotes.
+	 */
+	public long getVersion() {
+		return current.getVersion();
+	}
+
+	public double getPrice(int index) {
+		return current.getPrice(index);
+	}
+
+	public Competitor getCompetitor(int index) {
+		return current.getCompetitor(index);
+	}
+
+	/**
+	 * Copies the quoted prices into the given array, which must hold at least
+	 * {@link #size()} elements.
+	 */
+	public void copyPrices(double[] destination) {
+		current.copyPrices(destination);
+	}
+
+	public double[] toPriceArray() {
+		return current.toPriceArray();
+	}
+
+	/**
+	 * Returns the quotes as of now. With copy-on-write quotes the returned arrays
+	 * never change afterwards.
+	 */
+	QuoteArrays current() {
+		return current;
+	}
+
+	synchronized void put(Competitor competitor, double price, long priceUnits) {
+		if (priceCounts != null) {
+			int index = current.indexOf(competitor.getName());
+			if (index >= 0) {
+				priceCounts.remove(current.getPrice(index));
+			}
+			priceCounts.add(price);
+		}
+
+		QuoteArrays quotes = copyOnWrite ? copyCurrent() : current;
+		quotes.put(competitor, price, priceUnits);
+		current = quotes;
+	}
+
+	synchronized void remove(Competitor competitor) {
+		int index = current.indexOfQuote(competitor);
+		if (index < 0) {
+			return;
+		}
+		if (priceCounts != null) {
+			priceCounts.remove(current.getPrice(index));
+		}
+
+		QuoteArrays quotes = copyOnWrite ? copyCurrent() : current;
+		quotes.remove(index);
+		current = quotes;
+	}
+
+	/**
+	 * Copies the quotes to update them copy-on-write; the constructor only lets
+	 * heap quotes be copy-on-write.
+	 */
+	private QuoteArrays copyCurrent() {
+		return ((HeapQuoteArrays) current).copy();
+	}
+
+	/**
+	 * Starts counting the quotes of each distinct price, for
+	 * {@link #calculateCountedInitialPrice()}. Not meant for copy-on-write quotes,
+	 * whose readers would see the counts change under them.
+	 */
+	synchronized void enablePriceCounts() {
+		if (priceCounts != null) {
+			return;
+		}
+		priceCounts = new PriceCounts();
+		for (int i = 0; i < current.size(); i++) {
+			priceCounts.add(current.getPrice(i));
+		}
+	}
+
+	/**
+	 * Returns the initial price of the product from the running sum and price
+	 * counts of its quotes, without copying or sorting them: the mode of the
+	 * quotes within half and one and a half times their average. Price counts
+	 * must be enabled, and callers must exclude updates.
+	 */
+	double calculateCountedInitialPrice() {
+		QuoteArrays quotes = current;
+		double averagePrice = quotes.getSum() / quotes.size();
+		return priceCounts.calculateMode(quotes, 0.5 * averagePrice, 1.5 * averagePrice);
+	}
+
+	boolean hasPriceCounts() {
+		return priceCounts != null;
+	}
+
+	/**
+	 * Marks the quotes dirty, returning true if they were clean.
+	 */
+	synchronized boolean markDirty() {
+		boolean wasClean = !dirty;
+		dirty = true;
+		return wasClean;
+	}
+
+	synchronized void markClean() {
+		dirty = false;
+	}
+
+	/**
+	 * Returns the chosen price last handed out as a change, NaN if none was yet.
+	 */
+	double getPublishedPrice() {
+		return publishedPrice;
+	}
+
+	void setPublishedPrice(double publishedPrice) {
+		this.publishedPrice = publishedPrice;
+	}
+
+}
@@ -0,0 +1,40 @@
+package com.barclays.price.engine.domain;
+
+import java.io.IOException;
+
+/**
+ * Supplier of products not yet added to a company, such as an index over a
+ * products file that has not been parsed yet. A company asks its source for a
+ * product the first time the product is looked up by name, and for all
+ * remaining products before anything walking the whole catalogue.
+ *
+ * Calls are made under the company's write lock, one at a time, except for
+ * {@link #contains(String)}. A company closes a source that is
+ * {@link java.io.Closeable} once it lets go of it.
+ */
+public interface ProductSource {
+
+	/**
+	 * Returns false if the source never had the named product, so that the
+	 * company can answer lookups of unknown names without its write lock. Called
+	 * without the lock, possibly from several threads at once. By default the
+	 * source is assumed to have every name.
+	 */
+	default boolean contains(String productName) {
+		return true;
+	}
+
+	/**
+	 * Adds the named product and all of its quotes to the company. Returns false
+	 * if the source has no such product left to add.
+	 */
+	boolean materialize(Company company, String productName) throws IOException;
+
+	/**
+	 * Adds every remaining product and all of their quotes to the company, except
+	 * the products it already holds under the same name, see
+	 * {@link Company#holdsProduct(String)}.
+	 */
+	void materializeAll(Company company) throws IOException;
+
+}
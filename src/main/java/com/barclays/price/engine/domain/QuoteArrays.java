@@ -0,0 +1,160 @@
+package com.barclays.price.engine.domain;
+
+/**
+ * The quotes of a product at one point in time: competitors and prices ordered
+ * by competitor name, with their running sum and a version counting the
+ * changes made so far. Quotes of a fixed point price book also hold each price
+ * in minor units.
+ *
+ * This class keeps the order, sum and version; where the quotes themselves are
+ * held is left to {@link HeapQuoteArrays}, which can also be copied to publish
+ * quotes copy-on-write, and {@link OffHeapQuoteArrays}, updated in place only.
+ *
+ * The running sum is recomputed from the prices on copy and once there have
+ * been more updates than quotes since, so the rounding errors of its updates
+ * stay bounded at an amortized constant cost.
+ */
+abstract class QuoteArrays {
+
+	private int size;
+	private double sum;
+	private int updatesSinceSum;
+	private long version;
+
+	QuoteArrays() {
+	}
+
+	/**
+	 * Takes the size and version of the given quotes, whose prices the subclass
+	 * copies before calling {@link #recomputeSum()}.
+	 */
+	QuoteArrays(QuoteArrays quotes) {
+		size = quotes.size;
+		version = quotes.version;
+	}
+
+	int size() {
+		return size;
+	}
+
+	double getSum() {
+		return sum;
+	}
+
+	long getVersion() {
+		return version;
+	}
+
+	abstract double getPrice(int index);
+
+	abstract Competitor getCompetitor(int index);
+
+	void copyPrices(double[] destination) {
+		copyPrices(destination, 0);
+	}
+
+	abstract void copyPrices(double[] destination, int offset);
+
+	double[] toPriceArray() {
+		double[] prices = new double[size];
+		copyPrices(prices, 0);
+		return prices;
+	}
+
+	abstract boolean isFixedPoint();
+
+	/**
+	 * Copies the prices in minor units, only held by fixed point quotes.
+	 */
+	abstract void copyUnits(long[] destination);
+
+	void put(Competitor competitor, double price, long priceUnits) {
+		version++;
+		int index = indexOf(competitor.getName());
+		if (index >= 0) {
+			sum += price - getPrice(index);
+			set(index, competitor, price, priceUnits);
+		} else {
+			insert(-(index + 1), competitor, price, priceUnits);
+			size++;
+			sum += price;
+		}
+		countUpdate();
+	}
+
+	/**
+	 * Returns the position of the quote of the given competitor, or -1 if it has none.
+	 */
+	int indexOfQuote(Competitor competitor) {
+		int index = indexOf(competitor.getName());
+		return (index >= 0 && getCompetitor(index) == competitor) ? index : -1;
+	}
+
+	void remove(int index) {
+		version++;
+		sum -= getPrice(index);
+		delete(index);
+		size--;
+		countUpdate();
+	}
+
+	/**
+	 * Returns the position of the quote of the named competitor, or -(insertion
+	 * point + 1) if it has none.
+	 */
+	int indexOf(String competitorName) {
+		int low = 0;
+		int high = size - 1;
+
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int comparison = getCompetitor(middle).getName().compareTo(competitorName);
+			if (comparison < 0) {
+				low = middle + 1;
+			} else if (comparison > 0) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+
+		return -(low + 1);
+	}
+
+	/**
+	 * Replaces the quote at the given position.
+	 */
+	abstract void set(int index, Competitor competitor, double price, long priceUnits);
+
+	/**
+	 * Shifts the quotes from the given position on by one, growing the storage if
+	 * full, and stores the quote there. Called before the size is incremented.
+	 */
+	abstract void insert(int index, Competitor competitor, double price, long priceUnits);
+
+	/**
+	 * Shifts the quotes after the given position back by one. Called before the
+	 * size is decremented.
+	 */
+	abstract void delete(int index);
+
+	void recomputeSum() {
+		double recomputed = 0.0;
+		for (int i = 0; i < size; i++) {
+			recomputed += getPrice(i);
+		}
+		sum = recomputed;
+		updatesSinceSum = 0;
+	}
+
+	/**
+	 * Recomputes the running sum once there have been more updates than quotes
+	 * since it was last computed.
+	 */
+	private void countUpdate() {
+		if (++updatesSinceSum > size) {
+			recomputeSum();
+		}
+	}
+
+}
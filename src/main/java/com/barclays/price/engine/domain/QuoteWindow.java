@@ -0,0 +1,182 @@
+package com.barclays.price.engine.domain;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Sliding time window over time-stamped quotes. A quote counts from its time
+ * stamp until the window length has passed, unless the competitor quotes the
+ * product again in the meantime; it is then removed from the price book, so
+ * every pricing method of the company only sees live quotes. Quotes recorded
+ * without a time stamp never expire, including a quote replacing one recorded
+ * with a time stamp: the price book tells the window of every quote it
+ * records, and the window then forgets the pair until it is quoted with a time
+ * stamp again.
+ *
+ * Quotes are kept in one ring buffer in time stamp order, so advancing the
+ * clock only touches the quotes that expire, whatever the size of the
+ * catalogue: each quote is added once and expired at most once. Time stamps
+ * must not go backwards.
+ *
+ * Not thread safe; the owning company calls it under its write lock.
+ */
+public class QuoteWindow {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final PriceBook priceBook;
+	private final long windowMillis;
+	private long clockMillis = Long.MIN_VALUE;
+
+	private ProductQuotes[] quotes;
+	private Competitor[] competitors;
+	private long[] timestamps;
+	private int head;
+	private int size;
+
+	private final Map<ProductQuotes, Map<Competitor, long[]>> latestTimestamps;
+	private long expiredQuotes;
+
+	public QuoteWindow(PriceBook priceBook, long windowMillis) {
+		if (windowMillis <= 0) {
+			throw new IllegalArgumentException("Quote window must be positive");
+		}
+		this.priceBook = priceBook;
+		this.windowMillis = windowMillis;
+		quotes = new ProductQuotes[INITIAL_CAPACITY];
+		competitors = new Competitor[INITIAL_CAPACITY];
+		timestamps = new long[INITIAL_CAPACITY];
+		latestTimestamps = new IdentityHashMap<ProductQuotes, Map<Competitor, long[]>>();
+		priceBook.setQuoteWindow(this);
+	}
+
+	public long getWindowMillis() {
+		return windowMillis;
+	}
+
+	/**
+	 * Returns the time stamp of the latest quote or clock advance.
+	 */
+	public long getClockMillis() {
+		return clockMillis;
+	}
+
+	/**
+	 * Returns the number of quotes in the window, including the ones since quoted
+	 * again by their competitor.
+	 */
+	public int size() {
+		return size;
+	}
+
+	public long getExpiredQuotes() {
+		return expiredQuotes;
+	}
+
+	/**
+	 * Expires the quotes older than the window, then records the quote through
+	 * the competitor.
+	 *
+	 * @throws IllegalArgumentException if the time stamp is before the clock
+	 */
+	void record(Product product, Competitor competitor, double price, long timestampMillis) {
+		if (timestampMillis < clockMillis) {
+			throw new IllegalArgumentException("Quote at " + timestampMillis + " is older than the window clock "
+					+ clockMillis);
+		}
+		advance(timestampMillis);
+
+		competitor.addProductPrice(product, price);
+		ProductQuotes productQuotes = priceBook.getQuotes(product);
+		Map<Competitor, long[]> competitorTimestamps = latestTimestamps.get(productQuotes);
+		if (competitorTimestamps == null) {
+			competitorTimestamps = new IdentityHashMap<Competitor, long[]>();
+			latestTimestamps.put(productQuotes, competitorTimestamps);
+		}
+		long[] latest = competitorTimestamps.get(competitor);
+		if (latest == null) {
+			competitorTimestamps.put(competitor, new long[] { timestampMillis });
+		} else {
+			latest[0] = timestampMillis;
+		}
+		push(productQuotes, competitor, timestampMillis);
+	}
+
+	/**
+	 * Stops expiring the quote of the competitor for the product, just replaced
+	 * in the price book. Entries of the pair still in the ring buffer are skipped
+	 * once they expire.
+	 */
+	void forget(ProductQuotes productQuotes, Competitor competitor) {
+		Map<Competitor, long[]> competitorTimestamps = latestTimestamps.get(productQuotes);
+		if (competitorTimestamps != null && competitorTimestamps.remove(competitor) != null
+				&& competitorTimestamps.isEmpty()) {
+			latestTimestamps.remove(productQuotes);
+		}
+	}
+
+	/**
+	 * Moves the clock forward to the given time and removes every quote that has
+	 * been live for the whole window by then. Returns the number of quotes
+	 * removed.
+	 */
+	int advance(long nowMillis) {
+		if (nowMillis <= clockMillis) {
+			return 0;
+		}
+		clockMillis = nowMillis;
+
+		int removed = 0;
+		while (size > 0 && timestamps[head] <= nowMillis - windowMillis) {
+			ProductQuotes productQuotes = quotes[head];
+			Competitor competitor = competitors[head];
+			long timestamp = timestamps[head];
+			quotes[head] = null;
+			competitors[head] = null;
+			head = (head + 1) % quotes.length;
+			size--;
+
+			Map<Competitor, long[]> competitorTimestamps = latestTimestamps.get(productQuotes);
+			long[] latest = (competitorTimestamps == null) ? null : competitorTimestamps.get(competitor);
+			if (latest != null && latest[0] == timestamp) {
+				competitorTimestamps.remove(competitor);
+				if (competitorTimestamps.isEmpty()) {
+					latestTimestamps.remove(productQuotes);
+				}
+				priceBook.removeQuote(productQuotes.getProduct(), competitor);
+				removed++;
+			}
+		}
+		expiredQuotes += removed;
+		return removed;
+	}
+
+	private void push(ProductQuotes productQuotes, Competitor competitor, long timestampMillis) {
+		if (size == quotes.length) {
+			grow();
+		}
+		int tail = (head + size) % quotes.length;
+		quotes[tail] = productQuotes;
+		competitors[tail] = competitor;
+		timestamps[tail] = timestampMillis;
+		size++;
+	}
+
+	private void grow() {
+		int capacity = quotes.length * 2;
+		ProductQuotes[] grownQuotes = new ProductQuotes[capacity];
+		Competitor[] grownCompetitors = new Competitor[capacity];
+		long[] grownTimestamps = new long[capacity];
+		for (int i = 0; i < size; i++) {
+			int index = (head + i) % quotes.length;
+			grownQuotes[i] = quotes[index];
+			grownCompetitors[i] = competitors[index];
+			grownTimestamps[i] = timestamps[index];
+		}
+		quotes = grownQuotes;
+		competitors = grownCompetitors;
+		timestamps = grownTimestamps;
+		head = 0;
+	}
+
+}
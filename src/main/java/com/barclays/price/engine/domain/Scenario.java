@@ -0,0 +1,213 @@
+package com.barclays.price.engine.domain;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import com.barclays.price.engine.exception.InvalidMarketConditionStringException;
+import com.barclays.price.engine.logic.PricingKernel;
+import com.barclays.price.engine.logic.ProductFinalPriceSelection;
+
+/**
+ * What-if layer over a base company: quotes and price selection criteria of
+ * individual products overridden without touching the base. Products without
+ * an override are priced by the base as they are; an overridden product is
+ * priced from its base quotes merged with its overrides, read under the base's
+ * read lock, so the layer only holds its overrides and any number of scenarios
+ * can be priced in parallel against the same base.
+ *
+ * Products and competitors are identified by name. Overrides are kept until
+ * cleared; a scenario is meant to be built by one thread and may then be priced
+ * by several.
+ */
+public class Scenario {
+
+	private final Company base;
+	private final String name;
+	private final Map<String, ProductOverride> overrides;
+
+	Scenario(Company base, String name) {
+		this.base = base;
+		this.name = name;
+		this.overrides = new TreeMap<String, ProductOverride>();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public Company getBase() {
+		return base;
+	}
+
+	/**
+	 * Quotes the price for the product on behalf of the competitor, replacing its
+	 * base quote if it has one. The competitor need not be known to the base.
+	 */
+	public void overrideQuote(String productName, String competitorName, double price) {
+		overrideOf(productName).quotes.put(competitorName, price);
+	}
+
+	/**
+	 * Withdraws the quote of the competitor for the product.
+	 */
+	public void removeQuote(String productName, String competitorName) {
+		overrideOf(productName).quotes.put(competitorName, null);
+	}
+
+	/**
+	 * Multiplies by the given factor the price the competitor quotes, in this
+	 * scenario, for each of the given products it has a quote for, such as 0.95
+	 * for a 5% price drop. Returns the number of quotes adjusted.
+	 */
+	public int adjustQuotes(String competitorName, Collection<String> productNames, double factor) {
+		int adjusted = 0;
+		for (String productName : productNames) {
+			Double price = getQuote(productName, competitorName);
+			if (price != null) {
+				overrideQuote(productName, competitorName, price * factor);
+				adjusted++;
+			}
+		}
+		return adjusted;
+	}
+
+	/**
+	 * Returns the price the competitor quotes for the product in this scenario, or
+	 * null if it has no quote.
+	 */
+	public Double getQuote(String productName, String competitorName) {
+		ProductOverride override = overrides.get(productName);
+		if (override != null && override.quotes.containsKey(competitorName)) {
+			return override.quotes.get(competitorName);
+		}
+		Product product = requireProduct(productName);
+		return base.getQuote(product, competitorName);
+	}
+
+	/**
+	 * Prices the product with the given criteria instead of its own.
+	 */
+	public void overrideStrategy(String productName, ProductFinalPriceSelection strategy) {
+		overrideOf(productName).strategy = strategy;
+	}
+
+	/**
+	 * Prices the product as if it were in the given market condition, such as "L H".
+	 */
+	public void overrideCondition(String productName, String marketCondition) {
+		ProductFinalPriceSelection strategy = base.getStrategyRegistry().get(marketCondition);
+		if (strategy == null) {
+			throw new InvalidMarketConditionStringException("Invalid Supply Demand Condition String '"
+					+ marketCondition + "'");
+		}
+		overrideStrategy(productName, strategy);
+	}
+
+	/**
+	 * Returns the number of quote and criteria overrides.
+	 */
+	public int getOverrideCount() {
+		int count = 0;
+		for (ProductOverride override : overrides.values()) {
+			count += override.quotes.size() + ((override.strategy == null) ? 0 : 1);
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the names of the products with overrides, in name order.
+	 */
+	public Collection<String> getOverriddenProductNames() {
+		return Collections.unmodifiableSet(overrides.keySet());
+	}
+
+	public void clear() {
+		overrides.clear();
+	}
+
+	public double calculatePriceForProduct(Product product) {
+		ProductOverride override = overrides.get(product.getName());
+		if (override == null) {
+			return base.calculatePriceForProduct(product);
+		}
+		return calculateOverriddenPrice(product, override, new PricingKernel());
+	}
+
+	/**
+	 * Prices every product of the base catalogue in this scenario. The products
+	 * without overrides are priced by the base in parallel.
+	 */
+	public Map<Product, Double> calculateAllPrices() {
+		Map<Product, Double> productPrices = base.calculateAllPrices();
+		productPrices.putAll(calculateOverriddenPrices(new PricingKernel()));
+		return productPrices;
+	}
+
+	/**
+	 * Returns the products whose chosen price in this scenario differs from their
+	 * price in the base, with their scenario price. Only the overridden products
+	 * are priced.
+	 */
+	public Map<Product, Double> calculatePriceChanges() {
+		PricingKernel pricingKernel = new PricingKernel();
+		Map<Product, Double> changedPrices = new TreeMap<Product, Double>();
+		for (Map.Entry<Product, Double> price : calculateOverriddenPrices(pricingKernel).entrySet()) {
+			Product product = price.getKey();
+			double basePrice = base.calculatePriceForProduct(product);
+			if (Double.compare(price.getValue(), basePrice) != 0) {
+				changedPrices.put(product, price.getValue());
+			}
+		}
+		return changedPrices;
+	}
+
+	private Map<Product, Double> calculateOverriddenPrices(PricingKernel pricingKernel) {
+		Map<Product, Double> productPrices = new TreeMap<Product, Double>();
+		for (Map.Entry<String, ProductOverride> override : overrides.entrySet()) {
+			Product product = base.getProductByProductName(override.getKey());
+			if (product != null) {
+				productPrices.put(product, calculateOverriddenPrice(product, override.getValue(), pricingKernel));
+			}
+		}
+		return productPrices;
+	}
+
+	private double calculateOverriddenPrice(Product product, ProductOverride override, PricingKernel pricingKernel) {
+		ProductFinalPriceSelection strategy = (override.strategy != null) ? override.strategy
+				: product.getFinalPriceSelectionCriteria();
+		return base.calculatePriceWithOverrides(product, override.quotes, strategy, pricingKernel);
+	}
+
+	private ProductOverride overrideOf(String productName) {
+		ProductOverride override = overrides.get(productName);
+		if (override == null) {
+			requireProduct(productName);
+			override = new ProductOverride();
+			overrides.put(productName, override);
+		}
+		return override;
+	}
+
+	private Product requireProduct(String productName) {
+		Product product = base.getProductByProductName(productName);
+		if (product == null) {
+			throw new IllegalArgumentException("Unknown product '" + productName + "'");
+		}
+		return product;
+	}
+
+	/**
+	 * Overrides of one product: quotes by competitor name, null for a withdrawn
+	 * quote, and criteria, null to keep the product's own.
+	 */
+	private static class ProductOverride {
+
+		private final SortedMap<String, Double> quotes = new TreeMap<String, Double>();
+		private ProductFinalPriceSelection strategy;
+
+	}
+
+}
@@ -0,0 +1,23 @@
+package com.barclays.price.engine.ingest;
+
+/**
+ * What a pipeline does with an update submitted while its queue is full.
+ */
+public enum BackpressurePolicy {
+
+	/**
+	 * Waits until there is room in the queue.
+	 */
+	BLOCK,
+
+	/**
+	 * Refuses the new update.
+	 */
+	REJECT,
+
+	/**
+	 * Discards the oldest queued update to make room for the new one.
+	 */
+	DROP_OLDEST
+
+}
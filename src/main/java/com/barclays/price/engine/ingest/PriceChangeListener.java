@@ -0,0 +1,14 @@
+package com.barclays.price.engine.ingest;
+
+import java.util.Map;
+
+import com.barclays.price.engine.domain.Product;
+
+/**
+ * Receives the chosen prices that changed after each batch of quote updates.
+ */
+public interface PriceChangeListener {
+
+	void onPriceChanges(Map<Product, Double> changedPrices);
+
+}
@@ -0,0 +1,34 @@
+package com.barclays.price.engine.ingest;
+
+/**
+ * JMX view of a quote ingestion pipeline.
+ */
+public interface QuoteIngestionMXBean {
+
+	int getQueueSize();
+
+	int getQueueCapacity();
+
+	long getSubmittedUpdates();
+
+	long getRejectedUpdates();
+
+	long getDroppedUpdates();
+
+	long getCoalescedUpdates();
+
+	long getUnknownProductUpdates();
+
+	long getBatches();
+
+	long getFailedBatches();
+
+	double getMeanBatchSize();
+
+	long getP99BatchSize();
+
+	double getMeanBatchLatencyNanos();
+
+	long getP99BatchLatencyNanos();
+
+}
@@ -0,0 +1,353 @@
+package com.barclays.price.engine.ingest;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import com.barclays.price.engine.domain.Company;
+import com.barclays.price.engine.domain.Product;
+import com.barclays.price.engine.metrics.Log2Histogram;
+
+/**
+ * Bounded queue of quote updates in front of a company, applied in batches by
+ * a single worker thread. A batch closes once it holds the maximum number of
+ * updates or once its first update is older than the maximum batch delay.
+ * Updates of the same product and competitor within a batch are coalesced so
+ * that only the last price is recorded. Each batch is recorded and repriced
+ * with {@link Company#updateQuotesAndReprice(Map)}, so every affected product
+ * is repriced once per batch rather than once per update, and only the
+ * products of the batch are reported to the listener.
+ *
+ * Updates of unknown products are counted and skipped. A batch failing to be
+ * applied is counted and its updates are still marked processed, so
+ * {@link #flush()} does not wait for them. What happens to an
+ * update submitted while the queue is full is set by the
+ * {@link BackpressurePolicy}.
+ */
+public class QuoteIngestionPipeline implements QuoteIngestionMXBean, AutoCloseable {
+
+	public static final String DEFAULT_OBJECT_NAME = "com.barclays.price.engine:type=QuoteIngestion";
+	public static final int DEFAULT_QUEUE_CAPACITY = 65536;
+	public static final int DEFAULT_MAX_BATCH_SIZE = 4096;
+	public static final long DEFAULT_MAX_BATCH_DELAY_MILLIS = 5;
+
+	private static final long IDLE_POLL_MILLIS = 100;
+
+	private final Company company;
+	private final BlockingQueue<QuoteUpdate> queue;
+	private final int queueCapacity;
+	private final int maxBatchSize;
+	private final long maxBatchDelayNanos;
+	private final BackpressurePolicy backpressurePolicy;
+	private final PriceChangeListener listener;
+	private final Thread worker;
+	private final ReadWriteLock submitLock;
+	private volatile boolean running;
+	private volatile boolean closed;
+
+	private final AtomicLong acceptedUpdates;
+	private final LongAdder rejectedUpdates;
+	private final LongAdder droppedUpdates;
+	private final LongAdder coalescedUpdates;
+	private final LongAdder unknownProductUpdates;
+	private final LongAdder failedBatches;
+	private final Log2Histogram batchSizes;
+	private final Log2Histogram batchLatencies;
+	private long processedUpdates;
+
+	public QuoteIngestionPipeline(Company company, PriceChangeListener listener) {
+		this(company, DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_BATCH_DELAY_MILLIS,
+				BackpressurePolicy.BLOCK, listener);
+	}
+
+	/**
+	 * Creates a pipeline, which starts taking updates once {@link #start()} is
+	 * called. The listener may be null.
+	 */
+	public QuoteIngestionPipeline(Company company, int queueCapacity, int maxBatchSize, long maxBatchDelayMillis,
+			BackpressurePolicy backpressurePolicy, PriceChangeListener listener) {
+		if (queueCapacity < 1 || maxBatchSize < 1 || maxBatchDelayMillis < 0) {
+			throw new IllegalArgumentException("Queue capacity and batch size must be positive, batch delay not negative");
+		}
+
+		this.company = company;
+		this.queue = new ArrayBlockingQueue<QuoteUpdate>(queueCapacity);
+		this.queueCapacity = queueCapacity;
+		this.maxBatchSize = maxBatchSize;
+		this.maxBatchDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxBatchDelayMillis);
+		this.backpressurePolicy = backpressurePolicy;
+		this.listener = listener;
+		this.worker = new Thread(this::run, "quote-ingestion");
+		this.worker.setDaemon(true);
+		this.submitLock = new ReentrantReadWriteLock();
+
+		acceptedUpdates = new AtomicLong();
+		rejectedUpdates = new LongAdder();
+		droppedUpdates = new LongAdder();
+		coalescedUpdates = new LongAdder();
+		unknownProductUpdates = new LongAdder();
+		failedBatches = new LongAdder();
+		batchSizes = new Log2Histogram();
+		batchLatencies = new Log2Histogram();
+	}
+
+	public void start() {
+		running = true;
+		worker.start();
+	}
+
+	/**
+	 * Stops taking batches once every queued update has been applied, and waits
+	 * for the worker to finish. Submits in progress are waited for first, so that
+	 * every accepted update is queued before the worker is told to stop. If the
+	 * calling thread is interrupted while waiting for the worker, its interrupt
+	 * flag is restored and the worker finishes on its own.
+	 */
+	@Override
+	public void close() {
+		submitLock.writeLock().lock();
+		try {
+			closed = true;
+		} finally {
+			submitLock.writeLock().unlock();
+		}
+		running = false;
+		if (worker.isAlive()) {
+			try {
+				worker.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Registers the pipeline counters with the platform MBean server under the
+	 * given name.
+	 */
+	public void registerMBean(String objectName) throws JMException {
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(objectName));
+	}
+
+	/**
+	 * Queues a "product competitor price" line. Returns false if the update was
+	 * rejected because the queue is full.
+	 */
+	public boolean submit(String line) throws InterruptedException {
+		return submit(QuoteUpdate.parse(line));
+	}
+
+	public boolean submit(String productName, String competitorName, double price) throws InterruptedException {
+		return submit(new QuoteUpdate(productName, competitorName, price));
+	}
+
+	/**
+	 * Queues the update. Submits hold the read side of the submit lock, which
+	 * {@link #close()} takes exclusively, so no update is queued once the worker
+	 * may have stopped.
+	 */
+	public boolean submit(QuoteUpdate update) throws InterruptedException {
+		submitLock.readLock().lock();
+		try {
+			if (closed) {
+				throw new IllegalStateException("Quote ingestion pipeline is closed");
+			}
+			return enqueue(update);
+		} finally {
+			submitLock.readLock().unlock();
+		}
+	}
+
+	private boolean enqueue(QuoteUpdate update) throws InterruptedException {
+		switch (backpressurePolicy) {
+		case BLOCK:
+			queue.put(update);
+			break;
+		case REJECT:
+			if (!queue.offer(update)) {
+				rejectedUpdates.increment();
+				return false;
+			}
+			break;
+		default:
+			while (!queue.offer(update)) {
+				if (queue.poll() != null) {
+					droppedUpdates.increment();
+					markProcessed(1);
+				}
+			}
+		}
+		acceptedUpdates.incrementAndGet();
+		return true;
+	}
+
+	/**
+	 * Waits until every update accepted before the call has been applied or
+	 * dropped.
+	 */
+	public void flush() throws InterruptedException {
+		long target = acceptedUpdates.get();
+		synchronized (this) {
+			while (processedUpdates < target) {
+				wait();
+			}
+		}
+	}
+
+	private void run() {
+		List<QuoteUpdate> batch = new ArrayList<QuoteUpdate>();
+		while (running || !queue.isEmpty()) {
+			try {
+				QuoteUpdate first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+
+				batch.add(first);
+				long deadline = first.getReceivedNanos() + maxBatchDelayNanos;
+				while (batch.size() < maxBatchSize) {
+					long remaining = deadline - System.nanoTime();
+					QuoteUpdate next = (remaining > 0) ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+					if (next == null) {
+						break;
+					}
+					batch.add(next);
+				}
+			} catch (InterruptedException e) {
+				running = false;
+			}
+
+			if (!batch.isEmpty()) {
+				applyBatch(batch);
+				batch.clear();
+			}
+		}
+	}
+
+	private void applyBatch(List<QuoteUpdate> batch) {
+		Map<String, Map<String, Double>> quotes = new LinkedHashMap<String, Map<String, Double>>();
+		int unknownUpdates = 0;
+		int distinctUpdates = 0;
+
+		try {
+			for (QuoteUpdate update : batch) {
+				Map<String, Double> competitorPrices = quotes.get(update.getProductName());
+				if (competitorPrices == null) {
+					if (company.getProductByProductName(update.getProductName()) == null) {
+						unknownUpdates++;
+						continue;
+					}
+					competitorPrices = new LinkedHashMap<String, Double>();
+					quotes.put(update.getProductName(), competitorPrices);
+				}
+				if (competitorPrices.put(update.getCompetitorName(), update.getPrice()) == null) {
+					distinctUpdates++;
+				}
+			}
+
+			Map<Product, Double> changedPrices = company.updateQuotesAndReprice(quotes);
+			if (listener != null && !changedPrices.isEmpty()) {
+				listener.onPriceChanges(changedPrices);
+			}
+			unknownProductUpdates.add(unknownUpdates);
+			coalescedUpdates.add(batch.size() - unknownUpdates - distinctUpdates);
+		} catch (RuntimeException e) {
+			failedBatches.increment();
+		} finally {
+			batchSizes.record(batch.size());
+			batchLatencies.record(System.nanoTime() - batch.get(0).getReceivedNanos());
+			markProcessed(batch.size());
+		}
+	}
+
+	private synchronized void markProcessed(int updates) {
+		processedUpdates += updates;
+		notifyAll();
+	}
+
+	public Log2Histogram getBatchSizes() {
+		return batchSizes;
+	}
+
+	public Log2Histogram getBatchLatencies() {
+		return batchLatencies;
+	}
+
+	@Override
+	public int getQueueSize() {
+		return queue.size();
+	}
+
+	@Override
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	@Override
+	public long getSubmittedUpdates() {
+		return acceptedUpdates.get() + rejectedUpdates.sum();
+	}
+
+	@Override
+	public long getRejectedUpdates() {
+		return rejectedUpdates.sum();
+	}
+
+	@Override
+	public long getDroppedUpdates() {
+		return droppedUpdates.sum();
+	}
+
+	@Override
+	public long getCoalescedUpdates() {
+		return coalescedUpdates.sum();
+	}
+
+	@Override
+	public long getUnknownProductUpdates() {
+		return unknownProductUpdates.sum();
+	}
+
+	@Override
+	public long getBatches() {
+		return batchSizes.getCount();
+	}
+
+	@Override
+	public long getFailedBatches() {
+		return failedBatches.sum();
+	}
+
+	@Override
+	public double getMeanBatchSize() {
+		return batchSizes.getMean();
+	}
+
+	@Override
+	public long getP99BatchSize() {
+		return batchSizes.getPercentile(99);
+	}
+
+	@Override
+	public double getMeanBatchLatencyNanos() {
+		return batchLatencies.getMean();
+	}
+
+	@Override
+	public long getP99BatchLatencyNanos() {
+		return batchLatencies.getPercentile(99);
+	}
+
+}
@@ -0,0 +1,51 @@
+package com.barclays.price.engine.ingest;
+
+/**
+ * A single competitor quote received from a price feed.
+ */
+public class QuoteUpdate {
+
+	private final String productName;
+	private final String competitorName;
+	private final double price;
+	private final long receivedNanos;
+
+	public QuoteUpdate(String productName, String competitorName, double price) {
+		this.productName = productName;
+		this.competitorName = competitorName;
+		this.price = price;
+		this.receivedNanos = System.nanoTime();
+	}
+
+	/**
+	 * Parses a "product competitor price" line, the format of the competitor
+	 * lines of a products file.
+	 */
+	public static QuoteUpdate parse(String line) {
+		String[] quoteInfo = line.split(" ");
+		if (quoteInfo.length < 3) {
+			throw new IllegalArgumentException("Invalid quote line '" + line + "'");
+		}
+		return new QuoteUpdate(quoteInfo[0], quoteInfo[1], Double.parseDouble(quoteInfo[2]));
+	}
+
+	public String getProductName() {
+		return productName;
+	}
+
+	public String getCompetitorName() {
+		return competitorName;
+	}
+
+	public double getPrice() {
+		return price;
+	}
+
+	/**
+	 * Value of {@link System#nanoTime()} when the update was created.
+	 */
+	public long getReceivedNanos() {
+		return receivedNanos;
+	}
+
+}
@@ -0,0 +1,100 @@
+package com.barclays.price.engine.loader;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses numbers and space separated tokens straight from the bytes of a buffer.
+ */
+final class ByteParsers {
+
+	private static final double[] POWERS_OF_TEN = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+	private ByteParsers() {
+	}
+
+	/**
+	 * Returns the index of the next space at or after start, or end if there is none.
+	 */
+	static int indexOfSpace(ByteBuffer buffer, int start, int end) {
+		for (int i = start; i < end; i++) {
+			if (buffer.get(i) == ' ') {
+				return i;
+			}
+		}
+		return end;
+	}
+
+	/**
+	 * Returns the start of the token following the space at tokenEnd, or end if
+	 * the line has no more tokens.
+	 */
+	static int nextToken(int tokenEnd, int end) {
+		return Math.min(tokenEnd + 1, end);
+	}
+
+	static int parseInt(ByteBuffer buffer, int start, int end) {
+		return Integer.parseInt(decode(buffer, start, end));
+	}
+
+	/**
+	 * Parses a decimal number, giving the same value as {@link Double#parseDouble}.
+	 *
+	 * Plain decimals whose digits fit in 53 bits and with at most 22 fraction
+	 * digits are parsed without allocating: both the digits and the power of ten
+	 * are exact doubles, so their correctly rounded quotient is the correctly
+	 * rounded value of the decimal. Anything else goes through
+	 * {@link Double#parseDouble}.
+	 */
+	static double parseDouble(ByteBuffer buffer, int start, int end) {
+		int i = start;
+		boolean negative = false;
+		if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+			negative = buffer.get(i) == '-';
+			i++;
+		}
+
+		long mantissa = 0;
+		int fractionDigits = 0;
+		boolean seenDigit = false;
+		boolean seenPoint = false;
+
+		for (; i < end; i++) {
+			byte c = buffer.get(i);
+			if (c >= '0' && c <= '9') {
+				if (mantissa > (MAX_EXACT_MANTISSA - 9) / 10) {
+					return Double.parseDouble(decode(buffer, start, end));
+				}
+				mantissa = mantissa * 10 + (c - '0');
+				seenDigit = true;
+				if (seenPoint) {
+					fractionDigits++;
+				}
+			} else if (c == '.' && !seenPoint) {
+				seenPoint = true;
+			} else {
+				return Double.parseDouble(decode(buffer, start, end));
+			}
+		}
+
+		if (!seenDigit || fractionDigits >= POWERS_OF_TEN.length) {
+			return Double.parseDouble(decode(buffer, start, end));
+		}
+
+		double value = (double) mantissa / POWERS_OF_TEN[fractionDigits];
+		return negative ? -value : value;
+	}
+
+	static String decode(ByteBuffer buffer, int start, int end) {
+		byte[] bytes = new byte[end - start];
+		for (int i = start; i < end; i++) {
+			bytes[i - start] = buffer.get(i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,274 @@
+package com.barclays.price.engine.loader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.barclays.price.engine.domain.Company;
+import com.barclays.price.engine.domain.Competitor;
+import com.barclays.price.engine.domain.NameTable;
+import com.barclays.price.engine.domain.PriceBook;
+import com.barclays.price.engine.domain.Product;
+
+/**
+ * Loads the competitor section of a products file on several threads. The
+ * section is split into byte ranges aligned to line starts; each range is
+ * parsed on its own thread into a partial price book of interned names and
+ * prices. The names of the partial books are then resolved to products and
+ * competitors in file order, and the quotes recorded by
+ * {@link PriceBook#addQuotes}, in parallel partitions by product id that each
+ * keep file order, so duplicate quotes resolve exactly as in a sequential
+ * load: the last line wins.
+ */
+class ChunkedCompetitorLoader {
+
+	static final long DEFAULT_MINIMUM_CHUNK_SIZE = 1024 * 1024;
+
+	private static final int CHUNKS_PER_THREAD = 4;
+	private static final int ALIGNMENT_READ_SIZE = 4096;
+
+	private final Path path;
+	private final int windowSize;
+	private final int parallelism;
+	private final long minimumChunkSize;
+
+	ChunkedCompetitorLoader(Path path, int windowSize, int parallelism, long minimumChunkSize) {
+		this.path = path;
+		this.windowSize = windowSize;
+		this.parallelism = parallelism;
+		this.minimumChunkSize = minimumChunkSize;
+	}
+
+	/**
+	 * Loads the given number of competitor lines, starting at the given file offset.
+	 */
+	void load(Company company, long sectionStart, int numberOfCompetitorLines) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+		try {
+			List<PartialPriceBook> partialBooks = parse(splitSection(sectionStart), executor);
+
+			QuoteColumns quotes = new QuoteColumns(numberOfCompetitorLines);
+			RuntimeException failure = null;
+			for (PartialPriceBook partialBook : partialBooks) {
+				partialBook.resolveInto(company, quotes);
+				if (quotes.size == numberOfCompetitorLines) {
+					break;
+				}
+				if (partialBook.failure != null) {
+					failure = partialBook.failure;
+					break;
+				}
+			}
+
+			company.getPriceBook().addQuotes(quotes.products, quotes.competitors, quotes.prices, quotes.size,
+					executor, parallelism);
+			if (failure != null) {
+				throw failure;
+			}
+			if (quotes.size < numberOfCompetitorLines) {
+				throw new IOException("Unexpected end of file, " + (numberOfCompetitorLines - quotes.size)
+						+ " competitor lines missing");
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private List<PartialPriceBook> parse(long[] boundaries, ExecutorService executor) throws IOException {
+		List<PartialPriceBook> partialBooks = new ArrayList<PartialPriceBook>();
+		try {
+			List<Future<PartialPriceBook>> results = new ArrayList<Future<PartialPriceBook>>();
+			for (int i = 0; i + 1 < boundaries.length; i++) {
+				results.add(executor.submit(new PartialPriceBook(boundaries[i], boundaries[i + 1])));
+			}
+			for (Future<PartialPriceBook> result : results) {
+				partialBooks.add(result.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while loading competitors", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("Failed to load competitors", e.getCause());
+		}
+		return partialBooks;
+	}
+
+	/**
+	 * Returns the chunk boundaries of the section, each one at the start of a line.
+	 */
+	private long[] splitSection(long sectionStart) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long sectionEnd = channel.size();
+			long sectionSize = sectionEnd - sectionStart;
+			long chunks = Math.max(1, Math.min((long) parallelism * CHUNKS_PER_THREAD,
+					sectionSize / Math.max(1, minimumChunkSize)));
+
+			long[] boundaries = new long[(int) chunks + 1];
+			boundaries[0] = sectionStart;
+			for (int i = 1; i < chunks; i++) {
+				long nominal = sectionStart + sectionSize * i / chunks;
+				boundaries[i] = Math.max(boundaries[i - 1], alignToLineStart(channel, nominal, sectionEnd));
+			}
+			boundaries[(int) chunks] = sectionEnd;
+			return boundaries;
+		}
+	}
+
+	/**
+	 * Returns the offset of the first line starting at or after the given offset.
+	 */
+	private static long alignToLineStart(FileChannel channel, long offset, long end) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(ALIGNMENT_READ_SIZE);
+		long position = offset - 1;
+
+		while (position < end) {
+			buffer.clear();
+			int read = channel.read(buffer, position);
+			if (read <= 0) {
+				break;
+			}
+			for (int i = 0; i < read; i++) {
+				if (buffer.get(i) == '\n') {
+					return position + i + 1;
+				}
+			}
+			position += read;
+		}
+		return end;
+	}
+
+	/**
+	 * Quotes parsed from one chunk, stored as columns of interned name ids and
+	 * prices in line order. A line that cannot be parsed ends the chunk; the
+	 * failure is only raised if the merge gets to that line, since lines past the
+	 * competitor count are ignored by a sequential load too.
+	 */
+	private class PartialPriceBook implements Callable<PartialPriceBook> {
+
+		private final long start;
+		private final long end;
+		private final NameTable productNames;
+		private final NameTable competitorNames;
+		private int[] productIds;
+		private int[] competitorIds;
+		private double[] prices;
+		private int size;
+		private RuntimeException failure;
+
+		PartialPriceBook(long start, long end) {
+			this.start = start;
+			this.end = end;
+			productNames = new NameTable();
+			competitorNames = new NameTable();
+			productIds = new int[1024];
+			competitorIds = new int[1024];
+			prices = new double[1024];
+		}
+
+		@Override
+		public PartialPriceBook call() throws IOException {
+			if (start >= end) {
+				return this;
+			}
+
+			try (MappedLineReader reader = new MappedLineReader(path, start, end, windowSize)) {
+				while (reader.nextLine()) {
+					add(reader.buffer(), reader.lineStart(), reader.lineEnd());
+				}
+			} catch (RuntimeException e) {
+				failure = e;
+			}
+			return this;
+		}
+
+		private void add(ByteBuffer buffer, int start, int end) {
+			int productNameEnd = ByteParsers.indexOfSpace(buffer, start, end);
+			int competitorStart = ByteParsers.nextToken(productNameEnd, end);
+			int competitorNameEnd = ByteParsers.indexOfSpace(buffer, competitorStart, end);
+			int priceStart = ByteParsers.nextToken(competitorNameEnd, end);
+			int priceEnd = ByteParsers.indexOfSpace(buffer, priceStart, end);
+			double price = ByteParsers.parseDouble(buffer, priceStart, priceEnd);
+
+			if (size == prices.length) {
+				productIds = Arrays.copyOf(productIds, size * 2);
+				competitorIds = Arrays.copyOf(competitorIds, size * 2);
+				prices = Arrays.copyOf(prices, size * 2);
+			}
+			productIds[size] = productNames.intern(buffer, start, productNameEnd);
+			competitorIds[size] = competitorNames.intern(buffer, competitorStart, competitorNameEnd);
+			prices[size] = price;
+			size++;
+		}
+
+		/**
+		 * Appends the quotes of the chunk, in line order, to the columns until they
+		 * are full, resolving each name once.
+		 */
+		void resolveInto(Company company, QuoteColumns quotes) throws IOException {
+			Product[] products = new Product[productNames.size()];
+			Competitor[] competitors = new Competitor[competitorNames.size()];
+			int count = Math.min(size, quotes.products.length - quotes.size);
+
+			for (int i = 0; i < count; i++) {
+				Product product = products[productIds[i]];
+				if (product == null) {
+					String productName = productNames.getName(productIds[i]);
+					product = company.getProductByProductName(productName);
+					if (product == null) {
+						throw new IOException("Quote of unknown product '" + productName + "'");
+					}
+					products[productIds[i]] = product;
+				}
+
+				Competitor competitor = competitors[competitorIds[i]];
+				if (competitor == null) {
+					String competitorName = competitorNames.getName(competitorIds[i]);
+					competitor = company.getCompetitorByCompetitorName(competitorName);
+					if (competitor == null) {
+						competitor = company.createCompetitor(competitorName);
+						company.addCompetitor(competitor);
+					}
+					competitors[competitorIds[i]] = competitor;
+				}
+
+				quotes.products[quotes.size] = product;
+				quotes.competitors[quotes.size] = competitor;
+				quotes.prices[quotes.size] = prices[i];
+				quotes.size++;
+			}
+		}
+
+	}
+
+	/**
+	 * Resolved quotes of the whole section, in file order.
+	 */
+	private static class QuoteColumns {
+
+		private final Product[] products;
+		private final Competitor[] competitors;
+		private final double[] prices;
+		private int size;
+
+		QuoteColumns(int capacity) {
+			products = new Product[capacity];
+			competitors = new Competitor[capacity];
+			prices = new double[capacity];
+		}
+
+	}
+
+}
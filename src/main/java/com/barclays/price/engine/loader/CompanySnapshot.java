@@ -0,0 +1,218 @@
+package com.barclays.price.engine.loader;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import com.barclays.price.engine.domain.Company;
+import com.barclays.price.engine.domain.Competitor;
+import com.barclays.price.engine.domain.Product;
+import com.barclays.price.engine.domain.ProductQuotes;
+import com.barclays.price.engine.logic.ProductFinalPriceSelection;
+
+/**
+ * Compact binary snapshot of the products, competitors and quotes of a company,
+ * loaded back without any text parsing.
+ *
+ * Layout, big-endian:
+ * <pre>
+ * int magic, int version
+ * int conditionCount, conditionCount names
+ * int productCount, productCount (name, byte condition index)
+ * int competitorCount, competitorCount names
+ * int quoteCount, int[quoteCount] product ids, int[quoteCount] competitor ids, double[quoteCount] prices
+ * </pre>
+ * Names are an int byte length followed by UTF-8 bytes. Ids index the product
+ * and competitor tables. Quotes are stored product by product, each product's
+ * in competitor order, so replaying them appends to each product's quotes.
+ * Each quote column is mapped on its own and must fit in a single mapping.
+ */
+public class CompanySnapshot {
+
+	static final int MAGIC = 0x50455342;
+	static final int VERSION = 1;
+
+	private static final int MAX_CONDITIONS = 256;
+
+	public void write(Company company, String filePath) throws IOException {
+		write(company, Paths.get(filePath));
+	}
+
+	public void write(Company company, Path path) throws IOException {
+		Map<ProductFinalPriceSelection, Integer> conditionIds = new HashMap<ProductFinalPriceSelection, Integer>();
+		String[] conditions = company.getStrategies().keySet().toArray(new String[0]);
+		if (conditions.length > MAX_CONDITIONS) {
+			throw new IllegalArgumentException("At most " + MAX_CONDITIONS + " market conditions fit in a snapshot");
+		}
+		for (int i = 0; i < conditions.length; i++) {
+			conditionIds.put(company.getStrategies().get(conditions[i]), i);
+		}
+
+		Map<Competitor, Integer> competitorIds = new IdentityHashMap<Competitor, Integer>();
+		try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+
+			output.writeInt(conditions.length);
+			for (String condition : conditions) {
+				writeName(output, condition);
+			}
+
+			Product[] products = company.getProducts().values().toArray(new Product[0]);
+			output.writeInt(products.length);
+			for (Product product : products) {
+				Integer conditionId = conditionIds.get(product.getFinalPriceSelectionCriteria());
+				if (conditionId == null) {
+					throw new IllegalArgumentException("Product '" + product.getName()
+							+ "' uses a price selection criteria not registered with the company");
+				}
+				writeName(output, product.getName());
+				output.writeByte(conditionId);
+			}
+
+			output.writeInt(company.getCompetitors().size());
+			for (Competitor competitor : company.getCompetitors().values()) {
+				competitorIds.put(competitor, competitorIds.size());
+				writeName(output, competitor.getName());
+			}
+
+			QuoteColumns quotes = new QuoteColumns();
+			for (int productId = 0; productId < products.length; productId++) {
+				ProductQuotes productQuotes = company.getPriceBook().getQuotes(products[productId]);
+				int size = (productQuotes == null) ? 0 : productQuotes.size();
+				for (int i = 0; i < size; i++) {
+					Integer competitorId = competitorIds.get(productQuotes.getCompetitor(i));
+					if (competitorId != null) {
+						quotes.add(productId, competitorId, productQuotes.getPrice(i));
+					}
+				}
+			}
+
+			output.writeInt(quotes.size);
+			for (int i = 0; i < quotes.size; i++) {
+				output.writeInt(quotes.productIds[i]);
+			}
+			for (int i = 0; i < quotes.size; i++) {
+				output.writeInt(quotes.competitorIds[i]);
+			}
+			for (int i = 0; i < quotes.size; i++) {
+				output.writeDouble(quotes.prices[i]);
+			}
+		}
+	}
+
+	public void load(Company company, String filePath) throws IOException {
+		load(company, Paths.get(filePath));
+	}
+
+	/**
+	 * Adds the products, competitors and quotes of the snapshot to the company.
+	 * Market conditions are resolved through the company's strategies, so an
+	 * unknown condition is rejected as it is when loading the text format.
+	 */
+	public void load(Company company, Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					Math.min(channel.size(), Integer.MAX_VALUE));
+			if (header.remaining() < 8 || header.getInt() != MAGIC) {
+				throw new IOException("Not a company snapshot: " + path);
+			}
+			int version = header.getInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported company snapshot version " + version + ", expected " + VERSION);
+			}
+
+			String[] conditions = readNames(header, header.getInt());
+
+			Product[] products = new Product[header.getInt()];
+			for (int i = 0; i < products.length; i++) {
+				String productName = readName(header);
+				products[i] = company.createProduct(productName, conditions[header.get() & 0xFF]);
+				company.addProduct(products[i]);
+			}
+
+			Competitor[] competitors = new Competitor[header.getInt()];
+			for (int i = 0; i < competitors.length; i++) {
+				String competitorName = readName(header);
+				competitors[i] = company.getCompetitorByCompetitorName(competitorName);
+				if (competitors[i] == null) {
+					competitors[i] = company.createCompetitor(competitorName);
+					company.addCompetitor(competitors[i]);
+				}
+			}
+
+			int quoteCount = header.getInt();
+			long productIdsOffset = header.position();
+			long competitorIdsOffset = productIdsOffset + 4L * quoteCount;
+			long pricesOffset = competitorIdsOffset + 4L * quoteCount;
+			if (pricesOffset + 8L * quoteCount != channel.size()) {
+				throw new IOException("Truncated company snapshot: " + path);
+			}
+
+			MappedByteBuffer productIds = channel.map(FileChannel.MapMode.READ_ONLY, productIdsOffset, 4L * quoteCount);
+			MappedByteBuffer competitorIds = channel.map(FileChannel.MapMode.READ_ONLY, competitorIdsOffset,
+					4L * quoteCount);
+			MappedByteBuffer prices = channel.map(FileChannel.MapMode.READ_ONLY, pricesOffset, 8L * quoteCount);
+			for (int i = 0; i < quoteCount; i++) {
+				competitors[competitorIds.getInt(4 * i)].addProductPrice(products[productIds.getInt(4 * i)],
+						prices.getDouble(8 * i));
+			}
+		}
+	}
+
+	/**
+	 * Quotes gathered product by product before being written column by column.
+	 */
+	private static class QuoteColumns {
+
+		private int[] productIds = new int[1024];
+		private int[] competitorIds = new int[1024];
+		private double[] prices = new double[1024];
+		private int size;
+
+		void add(int productId, int competitorId, double price) {
+			if (size == prices.length) {
+				productIds = Arrays.copyOf(productIds, size * 2);
+				competitorIds = Arrays.copyOf(competitorIds, size * 2);
+				prices = Arrays.copyOf(prices, size * 2);
+			}
+			productIds[size] = productId;
+			competitorIds[size] = competitorId;
+			prices[size] = price;
+			size++;
+		}
+
+	}
+
+	private static void writeName(DataOutputStream output, String name) throws IOException {
+		byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+
+	private static String[] readNames(MappedByteBuffer buffer, int count) {
+		String[] names = new String[count];
+		for (int i = 0; i < count; i++) {
+			names[i] = readName(buffer);
+		}
+		return names;
+	}
+
+	private static String readName(MappedByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+}
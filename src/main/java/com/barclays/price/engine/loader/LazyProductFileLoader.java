@@ -0,0 +1,262 @@
+package com.barclays.price.engine.loader;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import com.barclays.price.engine.domain.Company;
+import com.barclays.price.engine.domain.NameTable;
+import com.barclays.price.engine.domain.ProductSource;
+
+/**
+ * Loads a products file into a company lazily. A first pass over the mapped
+ * file only finds where the lines of each product are, in arrays sized from
+ * the line counts of the file header; no product, competitor or price is
+ * created. A product and its quotes are then parsed the first time the
+ * company is asked for it, through
+ * {@link Company#generateProducts(BufferedReader, int)} and
+ * {@link Company#generateCompetitors(BufferedReader, int)}, so prices are the
+ * same as after an eager load.
+ *
+ * The file stays open until every product has been taken or the company lets
+ * go of the loader, and must not change in the meantime.
+ */
+public class LazyProductFileLoader implements ProductSource, Closeable {
+
+	private static final int BATCH_LINES = 4096;
+
+	private final int windowSize;
+	private Path path;
+	private FileChannel channel;
+	private ByteBuffer lineBuffer;
+
+	private NameTable productIds;
+	private long[] productLineOffsets;
+	private int[] productLineLengths;
+	private boolean[] materialized;
+	private int remainingProducts;
+
+	private long quoteSectionOffset;
+	private int[] firstQuoteLines;
+	private int[] lastQuoteLines;
+	private int[] nextQuoteLines;
+	private long[] quoteLineOffsets;
+	private int[] quoteLineLengths;
+
+	public LazyProductFileLoader() {
+		this(MappedLineReader.DEFAULT_WINDOW_SIZE);
+	}
+
+	LazyProductFileLoader(int windowSize) {
+		this.windowSize = windowSize;
+	}
+
+	public void load(Company company, String filePath) throws IOException {
+		load(company, Paths.get(filePath));
+	}
+
+	/**
+	 * Indexes the file and hands it to the company as its product source.
+	 */
+	public void load(Company company, Path path) throws IOException {
+		long start = System.nanoTime();
+		int numberOfProductLines;
+		int numberOfCompetitorLines;
+		try (MappedLineReader reader = new MappedLineReader(path, windowSize)) {
+			reader.requireLine();
+			numberOfProductLines = ByteParsers.parseInt(reader.buffer(), reader.lineStart(), reader.lineEnd());
+			productIds = new NameTable(numberOfProductLines);
+			productLineOffsets = new long[numberOfProductLines];
+			productLineLengths = new int[numberOfProductLines];
+			materialized = new boolean[numberOfProductLines];
+			for (int i = 0; i < numberOfProductLines; i++) {
+				reader.requireLine();
+				int nameEnd = ByteParsers.indexOfSpace(reader.buffer(), reader.lineStart(), reader.lineEnd());
+				int id = productIds.intern(reader.buffer(), reader.lineStart(), nameEnd);
+				if (id != i) {
+					throw new IOException("Duplicate product line at offset " + reader.lineOffset());
+				}
+				productLineOffsets[id] = reader.lineOffset();
+				productLineLengths[id] = reader.lineEnd() - reader.lineStart();
+			}
+			remainingProducts = numberOfProductLines;
+
+			reader.requireLine();
+			numberOfCompetitorLines = ByteParsers.parseInt(reader.buffer(), reader.lineStart(), reader.lineEnd());
+			quoteSectionOffset = reader.offset();
+			indexQuoteLines(reader, numberOfProductLines, numberOfCompetitorLines);
+		}
+
+		this.path = path;
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		lineBuffer = ByteBuffer.allocate(256);
+		company.getPriceBook().ensureProductCapacity(numberOfProductLines);
+		company.setProductSource(this);
+		company.getMetrics().recordLoad(2L + numberOfProductLines + numberOfCompetitorLines,
+				System.nanoTime() - start);
+	}
+
+	/**
+	 * Chains the quote lines of each product in file order.
+	 */
+	private void indexQuoteLines(MappedLineReader reader, int numberOfProductLines, int numberOfCompetitorLines)
+			throws IOException {
+		firstQuoteLines = new int[numberOfProductLines];
+		lastQuoteLines = new int[numberOfProductLines];
+		Arrays.fill(firstQuoteLines, -1);
+		nextQuoteLines = new int[numberOfCompetitorLines];
+		quoteLineOffsets = new long[numberOfCompetitorLines];
+		quoteLineLengths = new int[numberOfCompetitorLines];
+
+		for (int line = 0; line < numberOfCompetitorLines; line++) {
+			reader.requireLine();
+			int nameEnd = ByteParsers.indexOfSpace(reader.buffer(), reader.lineStart(), reader.lineEnd());
+			int id = productIds.intern(reader.buffer(), reader.lineStart(), nameEnd);
+			if (id >= numberOfProductLines) {
+				throw new IOException("Quote for unknown product '" + productIds.getName(id) + "' at offset "
+						+ reader.lineOffset());
+			}
+
+			quoteLineOffsets[line] = reader.lineOffset();
+			quoteLineLengths[line] = reader.lineEnd() - reader.lineStart();
+			nextQuoteLines[line] = -1;
+			if (firstQuoteLines[id] < 0) {
+				firstQuoteLines[id] = line;
+			} else {
+				nextQuoteLines[lastQuoteLines[id]] = line;
+			}
+			lastQuoteLines[id] = line;
+		}
+	}
+
+	/**
+	 * Returns the number of products not taken by the company yet.
+	 */
+	public int getRemainingProducts() {
+		return remainingProducts;
+	}
+
+	/**
+	 * Looks the name up in the index, which no longer changes once loaded.
+	 */
+	@Override
+	public boolean contains(String productName) {
+		return productIds.idOf(productName) >= 0;
+	}
+
+	@Override
+	public boolean materialize(Company company, String productName) throws IOException {
+		int id = productIds.idOf(productName);
+		if (id < 0 || materialized[id]) {
+			return false;
+		}
+
+		StringBuilder quoteLines = new StringBuilder();
+		int quoteCount = 0;
+		for (int line = firstQuoteLines[id]; line >= 0; line = nextQuoteLines[line]) {
+			quoteLines.append(readLine(quoteLineOffsets[line], quoteLineLengths[line])).append('\n');
+			quoteCount++;
+		}
+
+		company.generateProducts(lines(readLine(productLineOffsets[id], productLineLengths[id])), 1);
+		company.generateCompetitors(lines(quoteLines.toString()), quoteCount);
+		markMaterialized(id);
+		return true;
+	}
+
+	/**
+	 * Adds the remaining products the company does not hold yet, then reads the
+	 * quote section once in file order for their quotes.
+	 */
+	@Override
+	public void materializeAll(Company company) throws IOException {
+		if (remainingProducts == 0) {
+			return;
+		}
+
+		StringBuilder productLines = new StringBuilder();
+		int productCount = 0;
+		boolean[] pending = new boolean[materialized.length];
+		for (int id = 0; id < materialized.length; id++) {
+			if (!materialized[id] && !company.holdsProduct(productIds.getName(id))) {
+				productLines.append(readLine(productLineOffsets[id], productLineLengths[id])).append('\n');
+				productCount++;
+				pending[id] = true;
+			}
+		}
+		company.generateProducts(lines(productLines.toString()), productCount);
+
+		try (MappedLineReader reader = new MappedLineReader(path, quoteSectionOffset, -1, windowSize)) {
+			StringBuilder quoteLines = new StringBuilder();
+			int quoteCount = 0;
+			for (int line = 0; line < quoteLineOffsets.length; line++) {
+				reader.requireLine();
+				int nameEnd = ByteParsers.indexOfSpace(reader.buffer(), reader.lineStart(), reader.lineEnd());
+				if (!pending[productIds.intern(reader.buffer(), reader.lineStart(), nameEnd)]) {
+					continue;
+				}
+				quoteLines.append(ByteParsers.decode(reader.buffer(), reader.lineStart(), reader.lineEnd()))
+						.append('\n');
+				if (++quoteCount == BATCH_LINES) {
+					company.generateCompetitors(lines(quoteLines.toString()), quoteCount);
+					quoteLines.setLength(0);
+					quoteCount = 0;
+				}
+			}
+			company.generateCompetitors(lines(quoteLines.toString()), quoteCount);
+		}
+
+		for (int id = 0; id < pending.length; id++) {
+			if (!materialized[id]) {
+				markMaterialized(id);
+			}
+		}
+	}
+
+	private void markMaterialized(int id) throws IOException {
+		materialized[id] = true;
+		if (--remainingProducts == 0) {
+			channel.close();
+			firstQuoteLines = null;
+			lastQuoteLines = null;
+			nextQuoteLines = null;
+		}
+	}
+
+	/**
+	 * Closes the file; products not taken yet can no longer be.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (channel != null) {
+			channel.close();
+		}
+	}
+
+	private String readLine(long offset, int length) throws IOException {
+		if (lineBuffer.capacity() < length) {
+			lineBuffer = ByteBuffer.allocate(Math.max(lineBuffer.capacity() * 2, length));
+		}
+		lineBuffer.clear();
+		lineBuffer.limit(length);
+		while (lineBuffer.hasRemaining()) {
+			if (channel.read(lineBuffer, offset + lineBuffer.position()) < 0) {
+				throw new IOException("Unexpected end of file at offset " + (offset + lineBuffer.position()));
+			}
+		}
+		return new String(lineBuffer.array(), 0, length, StandardCharsets.UTF_8);
+	}
+
+	private static BufferedReader lines(String text) {
+		return new BufferedReader(new StringReader(text));
+	}
+
+}
@@ -0,0 +1,139 @@
+package com.barclays.price.engine.loader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the lines of a file through a memory-mapped window that slides over the
+ * file, so files larger than a single mapping can be read. A line is exposed as
+ * a byte range of the current window; nothing is copied or decoded.
+ *
+ * Lines end with '\n', optionally preceded by '\r', or with the end of the file.
+ */
+class MappedLineReader implements Closeable {
+
+	static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+	private final FileChannel channel;
+	private final long endOffset;
+	private final int windowSize;
+	private MappedByteBuffer window;
+	private long windowOffset;
+	private int position;
+	private int lineStart;
+	private int lineEnd;
+
+	MappedLineReader(Path path) throws IOException {
+		this(path, DEFAULT_WINDOW_SIZE);
+	}
+
+	MappedLineReader(Path path, int windowSize) throws IOException {
+		this(path, 0, -1, windowSize);
+	}
+
+	/**
+	 * Reads the lines between the given offsets of the file, up to its end if
+	 * endOffset is negative.
+	 */
+	MappedLineReader(Path path, long startOffset, long endOffset, int windowSize) throws IOException {
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		this.windowSize = windowSize;
+		try {
+			this.endOffset = (endOffset < 0) ? channel.size() : endOffset;
+			map(startOffset);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Advances to the next line. Returns false at the end of the file.
+	 */
+	boolean nextLine() throws IOException {
+		while (true) {
+			int limit = window.limit();
+			for (int i = position; i < limit; i++) {
+				if (window.get(i) == '\n') {
+					setLine(position, i);
+					position = i + 1;
+					return true;
+				}
+			}
+
+			if (windowOffset + limit >= endOffset) {
+				if (position < limit) {
+					setLine(position, limit);
+					position = limit;
+					return true;
+				}
+				return false;
+			}
+
+			if (position == 0) {
+				throw new IOException("Line at offset " + windowOffset + " is longer than the mapping window");
+			}
+			map(windowOffset + position);
+		}
+	}
+
+	/**
+	 * Advances to the next line, failing if the end of the file was reached.
+	 */
+	void requireLine() throws IOException {
+		if (!nextLine()) {
+			throw new IOException("Unexpected end of file at offset " + offset());
+		}
+	}
+
+	MappedByteBuffer buffer() {
+		return window;
+	}
+
+	int lineStart() {
+		return lineStart;
+	}
+
+	int lineEnd() {
+		return lineEnd;
+	}
+
+	/**
+	 * Returns the file offset of the start of the current line.
+	 */
+	long lineOffset() {
+		return windowOffset + lineStart;
+	}
+
+	/**
+	 * Returns the file offset of the first byte not yet read.
+	 */
+	long offset() {
+		return windowOffset + position;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private void setLine(int start, int end) {
+		if (end > start && window.get(end - 1) == '\r') {
+			end--;
+		}
+		lineStart = start;
+		lineEnd = end;
+	}
+
+	private void map(long offset) throws IOException {
+		long length = Math.min(windowSize, endOffset - offset);
+		window = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+		windowOffset = offset;
+		position = 0;
+	}
+
+}
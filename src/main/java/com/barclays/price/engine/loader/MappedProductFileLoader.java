@@ -0,0 +1,119 @@
+package com.barclays.price.engine.loader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import com.barclays.price.engine.domain.Company;
+import com.barclays.price.engine.domain.Competitor;
+import com.barclays.price.engine.domain.NameTable;
+import com.barclays.price.engine.domain.Product;
+
+/**
+ * Loads a products file into a company through a memory-mapped view of the
+ * file. Lines are parsed straight from the mapped bytes; product names,
+ * competitor names and market conditions are interned, so a name repeated
+ * across lines does not allocate a new String each time.
+ *
+ * Accepts the same format as {@link Company#createObjectsFromFileData(String)}
+ * and rejects unknown market conditions the same way. With a parallelism above
+ * one, the competitor section is split into chunks parsed on separate threads
+ * and merged back in file order.
+ */
+public class MappedProductFileLoader {
+
+	private final int windowSize;
+	private final int parallelism;
+	private final long minimumChunkSize;
+	private final NameTable names;
+
+	public MappedProductFileLoader() {
+		this(1);
+	}
+
+	/**
+	 * Creates a loader parsing the competitor section of the file, and recording
+	 * its quotes, on the given number of threads.
+	 */
+	public MappedProductFileLoader(int parallelism) {
+		this(MappedLineReader.DEFAULT_WINDOW_SIZE, parallelism, ChunkedCompetitorLoader.DEFAULT_MINIMUM_CHUNK_SIZE);
+	}
+
+	MappedProductFileLoader(int windowSize, int parallelism, long minimumChunkSize) {
+		this.windowSize = windowSize;
+		this.parallelism = parallelism;
+		this.minimumChunkSize = minimumChunkSize;
+		this.names = new NameTable();
+	}
+
+	public void load(Company company, String filePath) throws IOException {
+		load(company, Paths.get(filePath));
+	}
+
+	public void load(Company company, Path path) throws IOException {
+		long start = System.nanoTime();
+		try (MappedLineReader reader = new MappedLineReader(path, windowSize)) {
+			reader.requireLine();
+			int numberOfProductLines = ByteParsers.parseInt(reader.buffer(), reader.lineStart(), reader.lineEnd());
+			company.getPriceBook().ensureProductCapacity(numberOfProductLines);
+			for (int i = 1; i <= numberOfProductLines; i++) {
+				reader.requireLine();
+				generateProduct(company, reader.buffer(), reader.lineStart(), reader.lineEnd());
+			}
+
+			reader.requireLine();
+			int numberOfCompetitorLines = ByteParsers.parseInt(reader.buffer(), reader.lineStart(), reader.lineEnd());
+			if (parallelism > 1) {
+				new ChunkedCompetitorLoader(path, windowSize, parallelism, minimumChunkSize)
+						.load(company, reader.offset(), numberOfCompetitorLines);
+			} else {
+				for (int i = 1; i <= numberOfCompetitorLines; i++) {
+					reader.requireLine();
+					generateCompetitorPrice(company, reader.buffer(), reader.lineStart(), reader.lineEnd());
+				}
+			}
+
+			company.getMetrics().recordLoad(2L + numberOfProductLines + numberOfCompetitorLines,
+					System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Parses a "product supply demand" line.
+	 */
+	void generateProduct(Company company, ByteBuffer buffer, int start, int end) {
+		int nameEnd = ByteParsers.indexOfSpace(buffer, start, end);
+		int supplyEnd = ByteParsers.indexOfSpace(buffer, ByteParsers.nextToken(nameEnd, end), end);
+		int demandEnd = ByteParsers.indexOfSpace(buffer, ByteParsers.nextToken(supplyEnd, end), end);
+
+		String productName = intern(buffer, start, nameEnd);
+		String marketCondition = intern(buffer, ByteParsers.nextToken(nameEnd, end), demandEnd);
+		company.addProduct(company.createProduct(productName, marketCondition));
+	}
+
+	/**
+	 * Parses a "product competitor price" line.
+	 */
+	void generateCompetitorPrice(Company company, ByteBuffer buffer, int start, int end) {
+		int productNameEnd = ByteParsers.indexOfSpace(buffer, start, end);
+		int competitorNameEnd = ByteParsers.indexOfSpace(buffer, ByteParsers.nextToken(productNameEnd, end), end);
+		int priceEnd = ByteParsers.indexOfSpace(buffer, ByteParsers.nextToken(competitorNameEnd, end), end);
+
+		Product product = company.getProductByProductName(intern(buffer, start, productNameEnd));
+		String competitorName = intern(buffer, ByteParsers.nextToken(productNameEnd, end), competitorNameEnd);
+		Competitor competitor = company.getCompetitorByCompetitorName(competitorName);
+		if (competitor == null) {
+			competitor = company.createCompetitor(competitorName);
+			company.addCompetitor(competitor);
+		}
+
+		double productPrice = ByteParsers.parseDouble(buffer, ByteParsers.nextToken(competitorNameEnd, end), priceEnd);
+		competitor.addProductPrice(product, productPrice);
+	}
+
+	private String intern(ByteBuffer buffer, int start, int end) {
+		return names.getName(names.intern(buffer, start, end));
+	}
+
+}
@@ -0,0 +1,100 @@
+package com.barclays.price.engine.logic;
+
+/**
+ * Initial price calculation in bounded memory, for products with too many
+ * quotes to copy and sort. Prices are streamed once: those inside the outlier
+ * band of the given average are counted by a {@link SpaceSavingSketch}, and
+ * the others are skipped.
+ *
+ * The band is the exact one, so the number of prices kept is exact. The
+ * result is -1 when no price is kept, the first kept price when every count is
+ * one, and otherwise the lowest price with the largest estimated count. With n
+ * kept prices and k counters, each count overestimates the frequency of its
+ * price by at most {@link #getErrorBound()}, the smallest count once all
+ * counters are taken and at most n / k. So the exact first-price tie-break only
+ * holds for up to k distinct kept prices: more than k evict one another and
+ * inflate the counts of the later ones. The result is the exact mode whenever
+ * its frequency exceeds that of every other price by more than the bound.
+ *
+ * Instances are not thread safe.
+ */
+public class ApproximatePricingKernel {
+
+	private final SpaceSavingSketch sketch;
+	private double lowerBound;
+	private double upperBound;
+	private double firstPrice;
+	private int offered;
+
+	public ApproximatePricingKernel(int counters) {
+		sketch = new SpaceSavingSketch(counters);
+	}
+
+	public int getCounters() {
+		return sketch.getCounters();
+	}
+
+	/**
+	 * Prices the first length prices, left untouched, around the given average.
+	 */
+	public double calculateInitialProductPrice(double[] prices, int length, double averagePrice) {
+		begin(averagePrice);
+		for (int i = 0; i < length; i++) {
+			offer(prices[i]);
+		}
+		return finish();
+	}
+
+	/**
+	 * Starts pricing a product whose prices average to the given price.
+	 */
+	public void begin(double averagePrice) {
+		sketch.clear();
+		lowerBound = 0.5 * averagePrice;
+		upperBound = 1.5 * averagePrice;
+		offered = 0;
+	}
+
+	public void offer(double price) {
+		offered++;
+		if (!((price > upperBound) || (price < lowerBound))) {
+			if (sketch.getOffered() == 0) {
+				firstPrice = price;
+			}
+			sketch.offer(price);
+		}
+	}
+
+	/**
+	 * Returns the initial price of the prices offered since {@link #begin(double)}.
+	 */
+	public double finish() {
+		if (sketch.getOffered() == 0) {
+			return -1;
+		}
+		return (sketch.getMaxCount() == 1) ? firstPrice : sketch.getMode();
+	}
+
+	/**
+	 * Returns the number of prices offered for the last product.
+	 */
+	public int getOffered() {
+		return offered;
+	}
+
+	/**
+	 * Returns the number of prices of the last product inside the outlier band.
+	 */
+	public long getKept() {
+		return sketch.getOffered();
+	}
+
+	/**
+	 * Returns the largest amount by which the count behind the last price may
+	 * overestimate the frequency of that price.
+	 */
+	public long getErrorBound() {
+		return sketch.getErrorBound();
+	}
+
+}
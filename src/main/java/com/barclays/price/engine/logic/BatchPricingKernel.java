@@ -0,0 +1,116 @@
+package com.barclays.price.engine.logic;
+
+/**
+ * Initial price calculation for a whole {@link QuoteBatch} at once. Each step
+ * runs as one tight loop over all products before the next one starts: sums,
+ * outlier bands, filtering, then modes. The loops are free of calls and of
+ * data dependent branches, so the JIT can unroll them and vectorise the bands.
+ *
+ * Prices are summed product by product in their stored order, as floating point
+ * additions may not be reordered without changing the result. Results are
+ * identical to {@link PricingKernel#calculateInitialProductPrice(double[], int)}
+ * applied to each product.
+ *
+ * Instances are not thread safe.
+ */
+public class BatchPricingKernel {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final PricingKernel pricingKernel;
+	private double[] sums;
+	private double[] lowerBounds;
+	private double[] upperBounds;
+	private int[] remainingQuotes;
+	private double[] filteredPrices;
+
+	public BatchPricingKernel() {
+		pricingKernel = new PricingKernel();
+		sums = new double[INITIAL_CAPACITY];
+		lowerBounds = new double[INITIAL_CAPACITY];
+		upperBounds = new double[INITIAL_CAPACITY];
+		remainingQuotes = new int[INITIAL_CAPACITY];
+		filteredPrices = new double[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Writes the initial price of every product of the batch to the matching slot
+	 * of the given array. The batch itself is left untouched.
+	 */
+	public void calculateInitialProductPrices(QuoteBatch batch, double[] initialPrices) {
+		int productCount = batch.getProductCount();
+		ensureCapacity(productCount, batch.getQuoteCount());
+
+		sumPrices(batch.getPrices(), batch.getOffsets(), productCount);
+		calculateBands(batch.getOffsets(), productCount);
+		filterPrices(batch.getPrices(), batch.getOffsets(), productCount);
+
+		int[] offsets = batch.getOffsets();
+		for (int product = 0; product < productCount; product++) {
+			initialPrices[product] = pricingKernel.calculateMode(filteredPrices, offsets[product],
+					remainingQuotes[product]);
+		}
+	}
+
+	/**
+	 * Returns the number of prices of the given product left by the last
+	 * calculation once outliers were removed.
+	 */
+	public int getRemainingQuotes(int product) {
+		return remainingQuotes[product];
+	}
+
+	private void sumPrices(double[] prices, int[] offsets, int productCount) {
+		for (int product = 0; product < productCount; product++) {
+			double sum = 0.0;
+			for (int i = offsets[product]; i < offsets[product + 1]; i++) {
+				sum += prices[i];
+			}
+			sums[product] = sum;
+		}
+	}
+
+	private void calculateBands(int[] offsets, int productCount) {
+		for (int product = 0; product < productCount; product++) {
+			double averagePrice = sums[product] / (offsets[product + 1] - offsets[product]);
+			upperBounds[product] = 1.5 * averagePrice;
+			lowerBounds[product] = 0.5 * averagePrice;
+		}
+	}
+
+	/**
+	 * Copies the prices kept by each product's band to the filtered prices,
+	 * compacted at the product's offset in their original order. Every price is
+	 * written and the write position only advances past kept ones, which avoids a
+	 * branch per price.
+	 */
+	private void filterPrices(double[] prices, int[] offsets, int productCount) {
+		for (int product = 0; product < productCount; product++) {
+			double upperBound = upperBounds[product];
+			double lowerBound = lowerBounds[product];
+			int start = offsets[product];
+			int remaining = start;
+
+			for (int i = start; i < offsets[product + 1]; i++) {
+				double price = prices[i];
+				filteredPrices[remaining] = price;
+				remaining += ((price > upperBound) | (price < lowerBound)) ? 0 : 1;
+			}
+			remainingQuotes[product] = remaining - start;
+		}
+	}
+
+	private void ensureCapacity(int productCount, int quoteCount) {
+		if (sums.length < productCount) {
+			int capacity = PricingKernel.grow(sums.length, productCount);
+			sums = new double[capacity];
+			lowerBounds = new double[capacity];
+			upperBounds = new double[capacity];
+			remainingQuotes = new int[capacity];
+		}
+		if (filteredPrices.length < quoteCount) {
+			filteredPrices = new double[PricingKernel.grow(filteredPrices.length, quoteCount)];
+		}
+	}
+
+}
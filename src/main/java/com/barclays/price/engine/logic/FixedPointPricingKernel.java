@@ -0,0 +1,230 @@
+package com.barclays.price.engine.logic;
+
+import java.util.Arrays;
+
+/**
+ * Initial price calculation on prices held as whole numbers of minor units,
+ * such as cents, in longs. Filtering compares exact integer products instead
+ * of a rounded average, equal prices always share a mode bucket, and market
+ * condition adjustments are rounded once, half away from zero, so results are
+ * exact to the minor unit and the same on every run.
+ *
+ * Tie-breaks follow the floating point calculation: the most frequent price,
+ * the lowest one among equally frequent prices, the first one when all prices
+ * are distinct and minus one unit of currency when there are none. Arithmetic
+ * overflow raises an {@link ArithmeticException} rather than giving a wrong
+ * price.
+ *
+ * Instances are not thread safe.
+ */
+public class FixedPointPricingKernel {
+
+	private static final int INITIAL_CAPACITY = 16;
+	private static final int MAX_DECIMALS = 9;
+
+	private final int decimals;
+	private final long scale;
+	private long[] workBuffer;
+	private long[] sortedUnits;
+
+	public FixedPointPricingKernel(int decimals) {
+		this.decimals = decimals;
+		this.scale = scaleOf(decimals);
+		workBuffer = new long[INITIAL_CAPACITY];
+		sortedUnits = new long[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Returns the number of minor units in one unit of currency for the given
+	 * number of decimals.
+	 */
+	public static long scaleOf(int decimals) {
+		if (decimals < 0 || decimals > MAX_DECIMALS) {
+			throw new IllegalArgumentException("Fixed point prices take 0 to " + MAX_DECIMALS + " decimals");
+		}
+		long scale = 1;
+		for (int i = 0; i < decimals; i++) {
+			scale *= 10;
+		}
+		return scale;
+	}
+
+	public int getDecimals() {
+		return decimals;
+	}
+
+	public long getScale() {
+		return scale;
+	}
+
+	/**
+	 * Returns a reusable buffer of at least the given capacity, meant to hold the
+	 * prices passed back to {@link #calculateInitialProductPrice(long[], int)}.
+	 */
+	public long[] workBuffer(int capacity) {
+		if (workBuffer.length < capacity) {
+			workBuffer = new long[Math.max(workBuffer.length * 2, capacity)];
+		}
+		return workBuffer;
+	}
+
+	/**
+	 * Parses a plain decimal number, such as "-12.345", to minor units. Digits
+	 * beyond the kept decimals are rounded half away from zero.
+	 *
+	 * @throws NumberFormatException if the text is not a plain decimal number
+	 */
+	public static long parse(CharSequence text, int decimals) {
+		int length = text.length();
+		int index = 0;
+		boolean negative = false;
+		if (index < length && (text.charAt(index) == '-' || text.charAt(index) == '+')) {
+			negative = text.charAt(index) == '-';
+			index++;
+		}
+
+		long units = 0;
+		int digits = 0;
+		int fractionDigits = -1;
+		boolean roundUp = false;
+		for (; index < length; index++) {
+			char c = text.charAt(index);
+			if (c == '.' && fractionDigits < 0) {
+				fractionDigits = 0;
+			} else if (c >= '0' && c <= '9') {
+				digits++;
+				if (fractionDigits < 0 || fractionDigits < decimals) {
+					units = Math.addExact(Math.multiplyExact(units, 10), c - '0');
+					if (fractionDigits >= 0) {
+						fractionDigits++;
+					}
+				} else if (fractionDigits++ == decimals) {
+					roundUp = c >= '5';
+				}
+			} else {
+				throw new NumberFormatException("Not a plain decimal number: \"" + text + "\"");
+			}
+		}
+		if (digits == 0) {
+			throw new NumberFormatException("Not a plain decimal number: \"" + text + "\"");
+		}
+
+		for (int i = Math.max(fractionDigits, 0); i < decimals; i++) {
+			units = Math.multiplyExact(units, 10);
+		}
+		if (roundUp) {
+			units = Math.addExact(units, 1);
+		}
+		return negative ? -units : units;
+	}
+
+	/**
+	 * Rounds a floating point price to the nearest minor unit, half away from zero.
+	 */
+	public static long toUnits(double price, long scale) {
+		double scaled = price * scale;
+		return (long) ((scaled < 0) ? -Math.floor(-scaled + 0.5) : Math.floor(scaled + 0.5));
+	}
+
+	/**
+	 * Formats minor units as a plain decimal number with all kept decimals.
+	 */
+	public static String format(long units, int decimals) {
+		long scale = scaleOf(decimals);
+		StringBuilder text = new StringBuilder();
+		if (units < 0) {
+			text.append('-');
+		}
+		long absoluteUnits = Math.abs(units);
+		text.append(absoluteUnits / scale);
+		if (decimals > 0) {
+			String fraction = Long.toString(absoluteUnits % scale);
+			text.append('.');
+			for (int i = fraction.length(); i < decimals; i++) {
+				text.append('0');
+			}
+			text.append(fraction);
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Filters the first length prices in place and returns the mode of the
+	 * remaining ones.
+	 */
+	public long calculateInitialProductPrice(long[] units, int length) {
+		int remaining = filterPrices(units, length);
+		return calculateMode(units, remaining);
+	}
+
+	/**
+	 * Removes the prices outside of half and one and a half times the average,
+	 * compacting the remaining ones in their original order. The bounds are
+	 * compared exactly: a price p of n prices summing to s is kept when
+	 * s <= 2np <= 3s.
+	 */
+	public static int filterPrices(long[] units, int length) {
+		long sum = 0;
+		for (int i = 0; i < length; i++) {
+			sum = Math.addExact(sum, units[i]);
+		}
+
+		long twiceCount = 2L * length;
+		long upperBound = Math.multiplyExact(3, sum);
+		int remaining = 0;
+		for (int i = 0; i < length; i++) {
+			long price = units[i];
+			long scaledPrice = Math.multiplyExact(twiceCount, price);
+			if (!((scaledPrice > upperBound) || (scaledPrice < sum))) {
+				units[remaining++] = price;
+			}
+		}
+		return remaining;
+	}
+
+	/**
+	 * Returns the most frequent of the first length prices, the lowest one among
+	 * equally frequent prices, the first one when all are distinct, or minus one
+	 * unit of currency when there are none.
+	 */
+	public long calculateMode(long[] units, int length) {
+		if (length == 0) {
+			return -scale;
+		}
+
+		if (sortedUnits.length < length) {
+			sortedUnits = new long[Math.max(sortedUnits.length * 2, length)];
+		}
+		System.arraycopy(units, 0, sortedUnits, 0, length);
+		Arrays.sort(sortedUnits, 0, length);
+
+		int maxCount = 1;
+		long mode = units[0];
+		int runStart = 0;
+		for (int i = 1; i <= length; i++) {
+			if (i == length || sortedUnits[i] != sortedUnits[runStart]) {
+				if (i - runStart > maxCount) {
+					maxCount = i - runStart;
+					mode = sortedUnits[runStart];
+				}
+				runStart = i;
+			}
+		}
+		return mode;
+	}
+
+	/**
+	 * Adds to the price its adjustment, the price times numerator divided by
+	 * {@link StrategyRegistry#ADJUSTMENT_DENOMINATOR}, rounded half away from zero.
+	 */
+	public static long adjust(long units, long adjustmentNumerator) {
+		long scaledAdjustment = Math.multiplyExact(units, adjustmentNumerator);
+		long adjustment = scaledAdjustment / StrategyRegistry.ADJUSTMENT_DENOMINATOR;
+		long remainder = scaledAdjustment % StrategyRegistry.ADJUSTMENT_DENOMINATOR;
+		if (Math.abs(remainder) * 2 >= StrategyRegistry.ADJUSTMENT_DENOMINATOR) {
+			adjustment += Long.signum(scaledAdjustment);
+		}
+		return Math.addExact(units, adjustment);
+	}
+
+}
@@ -1,9 +1,13 @@
 package com.barclays.price.engine.logic;
 
-public class HighSupplyHighDemandPriceSelection implements ProductFinalPriceSelection {
+public class HighSupplyHighDemandPriceSelection implements TableDrivenPriceSelection {
 	
 	public double calculateFinalCompetitivePrice(double calculatedCompetitorsPrice) {
 		return calculatedCompetitorsPrice;
 	}
 
+	public double getAdjustmentFactor() {
+		return 0.0;
+	}
+
 }
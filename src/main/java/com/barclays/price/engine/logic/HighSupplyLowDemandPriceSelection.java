@@ -1,9 +1,13 @@
 package com.barclays.price.engine.logic;
 
-public class HighSupplyLowDemandPriceSelection implements ProductFinalPriceSelection {
+public class HighSupplyLowDemandPriceSelection implements TableDrivenPriceSelection {
 
 	public double calculateFinalCompetitivePrice(double calculatedCompetitorsPrice) {
 		return (calculatedCompetitorsPrice - 0.05 * calculatedCompetitorsPrice);
 	}
 
+	public double getAdjustmentFactor() {
+		return -0.05;
+	}
+
 }
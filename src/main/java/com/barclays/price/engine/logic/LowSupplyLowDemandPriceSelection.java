@@ -1,9 +1,13 @@
 package com.barclays.price.engine.logic;
 
-public class LowSupplyLowDemandPriceSelection implements ProductFinalPriceSelection {
+public class LowSupplyLowDemandPriceSelection implements TableDrivenPriceSelection {
 
 	public double calculateFinalCompetitivePrice(double calculatedCompetitorsPrice) {
 		return (calculatedCompetitorsPrice + 0.1 * calculatedCompetitorsPrice);
 	}
 
+	public double getAdjustmentFactor() {
+		return 0.1;
+	}
+
 }
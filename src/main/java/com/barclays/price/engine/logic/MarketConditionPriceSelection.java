@@ -0,0 +1,24 @@
+package com.barclays.price.engine.logic;
+
+/**
+ * Price selection of a market condition defined by its adjustment factor alone,
+ * for conditions registered without a class of their own.
+ */
+public class MarketConditionPriceSelection implements TableDrivenPriceSelection {
+
+	private final double adjustmentFactor;
+
+	public MarketConditionPriceSelection(double adjustmentFactor) {
+		this.adjustmentFactor = adjustmentFactor;
+	}
+
+	public double calculateFinalCompetitivePrice(double calculatedCompetitorsPrice) {
+		return (calculatedCompetitorsPrice + adjustmentFactor * calculatedCompetitorsPrice);
+	}
+
+	@Override
+	public double getAdjustmentFactor() {
+		return adjustmentFactor;
+	}
+
+}
@@ -0,0 +1,161 @@
+package com.barclays.price.engine.logic;
+
+import java.util.Arrays;
+
+/**
+ * Primitive implementation of the initial price calculation: average, outlier
+ * filtering and lowest most frequent price. Works in place on double arrays
+ * using buffers reused across calls, so pricing a product does not box or
+ * allocate once the buffers have grown to the largest quote count seen.
+ *
+ * Results are identical to the original list based calculation, including the
+ * order in which prices are summed, the tie-breaks of the mode and the -1
+ * returned when there is no price left.
+ *
+ * Instances are not thread safe.
+ */
+public class PricingKernel {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private double[] workBuffer;
+	private double[] distinctPrices;
+	private int[] priceCounts;
+
+	public PricingKernel() {
+		workBuffer = new double[INITIAL_CAPACITY];
+		distinctPrices = new double[INITIAL_CAPACITY];
+		priceCounts = new int[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Returns a reusable buffer of at least the given capacity, meant to hold the
+	 * prices passed back to {@link #calculateInitialProductPrice(double[], int)}.
+	 * Its content is overwritten by the next call.
+	 */
+	public double[] workBuffer(int capacity) {
+		if (workBuffer.length < capacity) {
+			workBuffer = new double[grow(workBuffer.length, capacity)];
+		}
+		return workBuffer;
+	}
+
+	/**
+	 * Filters the first length prices in place and returns the mode of the
+	 * remaining ones.
+	 */
+	public double calculateInitialProductPrice(double[] prices, int length) {
+		int remaining = filterPrices(prices, length);
+		return calculateMode(prices, remaining);
+	}
+
+	public double calculateInitialProductPrice(double[] prices, int length, double averagePrice) {
+		int remaining = filterPrices(prices, length, averagePrice);
+		return calculateMode(prices, remaining);
+	}
+
+	public static double calculateAverage(double[] prices, int length) {
+		double sum = 0.0;
+
+		for (int i = 0; i < length; i++) {
+			sum += prices[i];
+		}
+
+		return sum / length;
+	}
+
+	/**
+	 * Removes the prices outside of half and one and a half times the average by
+	 * compacting the remaining ones, in their original order, at the start of the
+	 * array. Returns the number of remaining prices.
+	 */
+	public static int filterPrices(double[] prices, int length) {
+		return filterPrices(prices, length, calculateAverage(prices, length));
+	}
+
+	/**
+	 * Same as {@link #filterPrices(double[], int)} around an average already known
+	 * to the caller, such as one kept as a running sum.
+	 */
+	public static int filterPrices(double[] prices, int length, double averagePrice) {
+		double upperBound = 1.5 * averagePrice;
+		double lowerBound = 0.5 * averagePrice;
+		int remaining = 0;
+
+		for (int i = 0; i < length; i++) {
+			double price = prices[i];
+			if (!((price > upperBound) || (price < lowerBound))) {
+				prices[remaining++] = price;
+			}
+		}
+
+		return remaining;
+	}
+
+	/**
+	 * Returns the most frequent of the first length prices, the lowest one among
+	 * equally frequent prices, or -1 when there are none.
+	 *
+	 * Distinct prices are found by sorting a copy, then the prices are counted in
+	 * their original order, which reproduces the tie-breaks of the original
+	 * calculation exactly.
+	 */
+	public double calculateMode(double[] prices, int length) {
+		return calculateMode(prices, 0, length);
+	}
+
+	/**
+	 * Same as {@link #calculateMode(double[], int)} over the length prices
+	 * starting at the given offset.
+	 */
+	public double calculateMode(double[] prices, int offset, int length) {
+		int distinct = sortDistinctPrices(prices, offset, length);
+		int max = -1;
+		double frequentlyOccuringMinPrice = -1;
+
+		for (int i = offset; i < offset + length; i++) {
+			double price = prices[i];
+			int slot = Arrays.binarySearch(distinctPrices, 0, distinct, price);
+			int count = ++priceCounts[slot];
+
+			if (count > 1) {
+				if (count > max) {
+					max = count;
+					frequentlyOccuringMinPrice = price;
+				} else if ((count == max) && (price < frequentlyOccuringMinPrice)) {
+					frequentlyOccuringMinPrice = price;
+				}
+			} else if (frequentlyOccuringMinPrice == -1) {
+				max = 1;
+				frequentlyOccuringMinPrice = price;
+			}
+		}
+
+		return frequentlyOccuringMinPrice;
+	}
+
+	private int sortDistinctPrices(double[] prices, int offset, int length) {
+		if (distinctPrices.length < length) {
+			distinctPrices = new double[grow(distinctPrices.length, length)];
+			priceCounts = new int[distinctPrices.length];
+		}
+
+		System.arraycopy(prices, offset, distinctPrices, 0, length);
+		Arrays.sort(distinctPrices, 0, length);
+
+		int distinct = 0;
+		for (int i = 0; i < length; i++) {
+			if (distinct == 0 || Double.compare(distinctPrices[distinct - 1], distinctPrices[i]) != 0) {
+				distinctPrices[distinct++] = distinctPrices[i];
+			}
+		}
+
+		Arrays.fill(priceCounts, 0, distinct, 0);
+		return distinct;
+	}
+
+	static int grow(int capacity, int minimumCapacity) {
+		return Math.max(capacity * 2, minimumCapacity);
+	}
+
+}
@@ -0,0 +1,70 @@
+package com.barclays.price.engine.logic;
+
+import java.util.Arrays;
+
+/**
+ * Quotes of many products laid out as columns: the prices of every product one
+ * after another in a single flat array, and the offset at which each product's
+ * prices start. Product i holds the prices from offset i (inclusive) to offset
+ * i + 1 (exclusive).
+ *
+ * Instances are not thread safe.
+ */
+public class QuoteBatch {
+
+	private double[] prices;
+	private int[] offsets;
+	private int productCount;
+
+	public QuoteBatch(int expectedProducts, int expectedQuotes) {
+		prices = new double[Math.max(1, expectedQuotes)];
+		offsets = new int[Math.max(1, expectedProducts) + 1];
+	}
+
+	/**
+	 * Appends a product with the given number of quotes and returns the offset at
+	 * which its prices must be written into {@link #getPrices()}. The prices array
+	 * may be replaced, so it must be read again after every call.
+	 */
+	public int addProduct(int numberOfQuotes) {
+		if (productCount + 1 == offsets.length) {
+			offsets = Arrays.copyOf(offsets, PricingKernel.grow(offsets.length, productCount + 2));
+		}
+
+		int offset = offsets[productCount];
+		if (prices.length < offset + numberOfQuotes) {
+			prices = Arrays.copyOf(prices, PricingKernel.grow(prices.length, offset + numberOfQuotes));
+		}
+		offsets[++productCount] = offset + numberOfQuotes;
+		return offset;
+	}
+
+	public void clear() {
+		productCount = 0;
+	}
+
+	public int getProductCount() {
+		return productCount;
+	}
+
+	public int getQuoteCount() {
+		return offsets[productCount];
+	}
+
+	public double[] getPrices() {
+		return prices;
+	}
+
+	public int getOffset(int product) {
+		return offsets[product];
+	}
+
+	public int getQuoteCount(int product) {
+		return offsets[product + 1] - offsets[product];
+	}
+
+	int[] getOffsets() {
+		return offsets;
+	}
+
+}
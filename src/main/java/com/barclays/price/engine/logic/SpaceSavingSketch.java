@@ -0,0 +1,208 @@
+package com.barclays.price.engine.logic;
+
+import java.util.Arrays;
+
+/**
+ * Space-Saving heavy hitters sketch over prices: a fixed number k of counters,
+ * each monitoring one price. A price already monitored has its counter
+ * incremented; otherwise, once all counters are taken, the counter with the
+ * smallest count is handed to the new price and incremented.
+ *
+ * After n prices, with m the smallest count (0 while counters are free):
+ * <ul>
+ * <li>the count of a monitored price overestimates its true frequency f by at
+ * most m, and m is at most n / k;</li>
+ * <li>every price with f &gt; m is monitored;</li>
+ * <li>so the reported mode is the exact one whenever the most frequent price
+ * is quoted more than m times more often than any other.</li>
+ * </ul>
+ * Counters sit in a binary min-heap indexed by an open addressing table, so
+ * each price takes O(log k) time and memory stays O(k) however many prices
+ * are seen. Reusable after {@link #clear()}; not thread safe.
+ */
+public class SpaceSavingSketch {
+
+	private final int capacity;
+	private final double[] heapPrices;
+	private final long[] heapCounts;
+	private final long[] tableKeys;
+	private final int[] tablePositions;
+	private int size;
+	private long offered;
+
+	public SpaceSavingSketch(int counters) {
+		if (counters < 1) {
+			throw new IllegalArgumentException("Space-Saving sketch needs at least one counter");
+		}
+		capacity = counters;
+		heapPrices = new double[counters];
+		heapCounts = new long[counters];
+		int tableSize = Integer.highestOneBit(counters * 2 - 1) << 1;
+		tableKeys = new long[tableSize];
+		tablePositions = new int[tableSize];
+	}
+
+	public int getCounters() {
+		return capacity;
+	}
+
+	public void clear() {
+		Arrays.fill(tablePositions, 0);
+		size = 0;
+		offered = 0;
+	}
+
+	public void offer(double price) {
+		offered++;
+		long key = Double.doubleToLongBits(price);
+		int slot = slotOf(key);
+		if (tablePositions[slot] != 0) {
+			int position = tablePositions[slot] - 1;
+			heapCounts[position]++;
+			siftDown(position);
+			return;
+		}
+
+		if (size < capacity) {
+			heapPrices[size] = price;
+			heapCounts[size] = 1;
+			tableKeys[slot] = key;
+			tablePositions[slot] = size + 1;
+			size++;
+			siftUp(size - 1);
+			return;
+		}
+
+		removeFromTable(Double.doubleToLongBits(heapPrices[0]));
+		slot = slotOf(key);
+		heapPrices[0] = price;
+		heapCounts[0]++;
+		tableKeys[slot] = key;
+		tablePositions[slot] = 1;
+		siftDown(0);
+	}
+
+	/**
+	 * Returns the number of prices offered since the last clear.
+	 */
+	public long getOffered() {
+		return offered;
+	}
+
+	/**
+	 * Returns the largest amount by which a count may overestimate the true
+	 * frequency of its price.
+	 */
+	public long getErrorBound() {
+		return (size < capacity) ? 0 : heapCounts[0];
+	}
+
+	/**
+	 * Returns the estimated count of the price, 0 if it is not monitored.
+	 */
+	public long estimate(double price) {
+		int position = tablePositions[slotOf(Double.doubleToLongBits(price))];
+		return (position == 0) ? 0 : heapCounts[position - 1];
+	}
+
+	/**
+	 * Returns the largest estimated count, 0 if no price was offered.
+	 */
+	public long getMaxCount() {
+		long max = 0;
+		for (int i = 0; i < size; i++) {
+			max = Math.max(max, heapCounts[i]);
+		}
+		return max;
+	}
+
+	/**
+	 * Returns the lowest of the prices with the largest estimated count, or -1 if
+	 * no price was offered.
+	 */
+	public double getMode() {
+		long max = 0;
+		double mode = -1;
+		for (int i = 0; i < size; i++) {
+			if (heapCounts[i] > max || (heapCounts[i] == max && heapPrices[i] < mode)) {
+				max = heapCounts[i];
+				mode = heapPrices[i];
+			}
+		}
+		return mode;
+	}
+
+	private void siftUp(int position) {
+		while (position > 0) {
+			int parent = (position - 1) / 2;
+			if (heapCounts[parent] <= heapCounts[position]) {
+				return;
+			}
+			swap(parent, position);
+			position = parent;
+		}
+	}
+
+	private void siftDown(int position) {
+		while (true) {
+			int smallest = position;
+			int left = 2 * position + 1;
+			int right = left + 1;
+			if (left < size && heapCounts[left] < heapCounts[smallest]) {
+				smallest = left;
+			}
+			if (right < size && heapCounts[right] < heapCounts[smallest]) {
+				smallest = right;
+			}
+			if (smallest == position) {
+				return;
+			}
+			swap(position, smallest);
+			position = smallest;
+		}
+	}
+
+	private void swap(int first, int second) {
+		double price = heapPrices[first];
+		long count = heapCounts[first];
+		heapPrices[first] = heapPrices[second];
+		heapCounts[first] = heapCounts[second];
+		heapPrices[second] = price;
+		heapCounts[second] = count;
+		tablePositions[slotOf(Double.doubleToLongBits(heapPrices[first]))] = first + 1;
+		tablePositions[slotOf(Double.doubleToLongBits(heapPrices[second]))] = second + 1;
+	}
+
+	/**
+	 * Returns the slot of the key, or the empty slot where it would go.
+	 */
+	private int slotOf(long key) {
+		int mask = tableKeys.length - 1;
+		int slot = hash(key) & mask;
+		while (tablePositions[slot] != 0 && tableKeys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void removeFromTable(long key) {
+		int mask = tableKeys.length - 1;
+		int hole = slotOf(key);
+		tablePositions[hole] = 0;
+		for (int next = (hole + 1) & mask; tablePositions[next] != 0; next = (next + 1) & mask) {
+			int home = hash(tableKeys[next]) & mask;
+			if (((next - home) & mask) >= ((next - hole) & mask)) {
+				tableKeys[hole] = tableKeys[next];
+				tablePositions[hole] = tablePositions[next];
+				tablePositions[next] = 0;
+				hole = next;
+			}
+		}
+	}
+
+	private static int hash(long key) {
+		long mixed = key * 0x9E3779B97F4A7C15L;
+		return (int) (mixed ^ (mixed >>> 32));
+	}
+
+}
@@ -0,0 +1,195 @@
+package com.barclays.price.engine.logic;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Market conditions, such as "H L", compiled to small numeric codes. Each code
+ * has an entry in a table of adjustment factors, so the final prices of many
+ * products can be computed in one pass over their codes instead of one
+ * interface call per product.
+ *
+ * Code {@link #UNREGISTERED} stands for strategies unknown to the registry.
+ * Strategies that are not {@link TableDrivenPriceSelection}s are still given a
+ * code, and are applied through their interface after the table pass.
+ *
+ * Lookups never block; registration is synchronized and publishes new tables.
+ */
+public class StrategyRegistry {
+
+	public static final int UNREGISTERED = 0;
+
+	/**
+	 * Denominator of the exact adjustment factors used by fixed point pricing.
+	 */
+	public static final long ADJUSTMENT_DENOMINATOR = 1000000000L;
+
+	private volatile Tables tables;
+
+	public StrategyRegistry() {
+		tables = new Tables(new TreeMap<String, ProductFinalPriceSelection>(),
+				new IdentityHashMap<ProductFinalPriceSelection, Integer>(), new double[] { Double.NaN },
+				new long[] { 0 }, new boolean[] { false });
+	}
+
+	/**
+	 * Registers the strategy for the given condition and returns its code. A
+	 * strategy registered for several conditions keeps a single code.
+	 */
+	public synchronized int register(String condition, ProductFinalPriceSelection strategy) {
+		Tables current = tables;
+		Map<String, ProductFinalPriceSelection> strategies = new TreeMap<String, ProductFinalPriceSelection>(
+				current.strategies);
+		strategies.put(condition, strategy);
+
+		Integer code = current.codes.get(strategy);
+		if (code != null) {
+			tables = new Tables(strategies, current.codes, current.adjustmentFactors, current.adjustmentNumerators,
+					current.tableDriven);
+			return code;
+		}
+
+		code = current.adjustmentFactors.length;
+		Map<ProductFinalPriceSelection, Integer> codes = new IdentityHashMap<ProductFinalPriceSelection, Integer>(
+				current.codes);
+		codes.put(strategy, code);
+		double[] adjustmentFactors = Arrays.copyOf(current.adjustmentFactors, code + 1);
+		long[] adjustmentNumerators = Arrays.copyOf(current.adjustmentNumerators, code + 1);
+		boolean[] tableDriven = Arrays.copyOf(current.tableDriven, code + 1);
+		if (strategy instanceof TableDrivenPriceSelection) {
+			adjustmentFactors[code] = ((TableDrivenPriceSelection) strategy).getAdjustmentFactor();
+			adjustmentNumerators[code] = BigDecimal.valueOf(adjustmentFactors[code])
+					.multiply(BigDecimal.valueOf(ADJUSTMENT_DENOMINATOR)).setScale(0, RoundingMode.HALF_UP)
+					.longValueExact();
+			tableDriven[code] = true;
+		} else {
+			adjustmentFactors[code] = Double.NaN;
+		}
+
+		tables = new Tables(strategies, codes, adjustmentFactors, adjustmentNumerators, tableDriven);
+		return code;
+	}
+
+	/**
+	 * Registers a condition defined by its adjustment factor alone.
+	 */
+	public int register(String condition, double adjustmentFactor) {
+		return register(condition, new MarketConditionPriceSelection(adjustmentFactor));
+	}
+
+	/**
+	 * Registers one condition per supply and demand level pair, named after the
+	 * two levels separated by a space, such as "M H" for supply level "M" and
+	 * demand level "H". The factor of each pair is taken from the matching row
+	 * (supply) and column (demand) of the given table.
+	 */
+	public synchronized void registerLevels(String[] supplyLevels, String[] demandLevels,
+			double[][] adjustmentFactors) {
+		for (int supply = 0; supply < supplyLevels.length; supply++) {
+			for (int demand = 0; demand < demandLevels.length; demand++) {
+				register(supplyLevels[supply] + " " + demandLevels[demand], adjustmentFactors[supply][demand]);
+			}
+		}
+	}
+
+	/**
+	 * Returns the strategy of the condition, or null if it is not registered.
+	 */
+	public ProductFinalPriceSelection get(String condition) {
+		return tables.strategies.get(condition);
+	}
+
+	/**
+	 * Returns the code of the strategy, {@link #UNREGISTERED} if it is unknown.
+	 */
+	public int codeOf(ProductFinalPriceSelection strategy) {
+		Integer code = tables.codes.get(strategy);
+		return (code == null) ? UNREGISTERED : code;
+	}
+
+	/**
+	 * Returns the number of codes in use, including {@link #UNREGISTERED}.
+	 */
+	public int getCodeCount() {
+		return tables.adjustmentFactors.length;
+	}
+
+	/**
+	 * Returns the adjustment factor of the code, NaN for codes applied through the
+	 * strategy interface.
+	 */
+	public double getAdjustmentFactor(int code) {
+		return tables.adjustmentFactors[code];
+	}
+
+	/**
+	 * Returns the adjustment factor of the code as an exact fraction of
+	 * {@link #ADJUSTMENT_DENOMINATOR}, the decimal value of the factor rounded to
+	 * nine decimals. Only meaningful for table-driven codes.
+	 */
+	public long getAdjustmentNumerator(int code) {
+		return tables.adjustmentNumerators[code];
+	}
+
+	public boolean isTableDriven(int code) {
+		return tables.tableDriven[code];
+	}
+
+	/**
+	 * Returns a read-only view of the registered strategies by condition.
+	 */
+	public Map<String, ProductFinalPriceSelection> asMap() {
+		return Collections.unmodifiableMap(tables.strategies);
+	}
+
+	/**
+	 * Writes the final price of the first length products to finalPrices, given
+	 * their initial prices, codes and strategies. Table-driven codes are applied
+	 * in a single branch-free pass; the strategies are only called for the other
+	 * codes.
+	 */
+	public void applyAdjustments(double[] initialPrices, int[] codes, ProductFinalPriceSelection[] strategies,
+			double[] finalPrices, int length) {
+		Tables current = tables;
+		double[] adjustmentFactors = current.adjustmentFactors;
+		for (int i = 0; i < length; i++) {
+			double price = initialPrices[i];
+			finalPrices[i] = price + adjustmentFactors[codes[i]] * price;
+		}
+
+		boolean[] tableDriven = current.tableDriven;
+		for (int i = 0; i < length; i++) {
+			if (!tableDriven[codes[i]]) {
+				finalPrices[i] = strategies[i].calculateFinalCompetitivePrice(initialPrices[i]);
+			}
+		}
+	}
+
+	/**
+	 * Registry content, replaced as a whole on every registration.
+	 */
+	private static class Tables {
+
+		private final Map<String, ProductFinalPriceSelection> strategies;
+		private final Map<ProductFinalPriceSelection, Integer> codes;
+		private final double[] adjustmentFactors;
+		private final long[] adjustmentNumerators;
+		private final boolean[] tableDriven;
+
+		Tables(Map<String, ProductFinalPriceSelection> strategies, Map<ProductFinalPriceSelection, Integer> codes,
+				double[] adjustmentFactors, long[] adjustmentNumerators, boolean[] tableDriven) {
+			this.strategies = strategies;
+			this.codes = codes;
+			this.adjustmentFactors = adjustmentFactors;
+			this.adjustmentNumerators = adjustmentNumerators;
+			this.tableDriven = tableDriven;
+		}
+
+	}
+
+}
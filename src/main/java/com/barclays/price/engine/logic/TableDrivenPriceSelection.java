@@ -0,0 +1,13 @@
+package com.barclays.price.engine.logic;
+
+/**
+ * A price selection that only scales the calculated competitors price: the
+ * final price is the calculated price plus the adjustment factor times the
+ * calculated price. Such selections can be applied from a table of factors,
+ * see {@link StrategyRegistry#applyAdjustments}.
+ */
+public interface TableDrivenPriceSelection extends ProductFinalPriceSelection {
+
+	public double getAdjustmentFactor();
+
+}
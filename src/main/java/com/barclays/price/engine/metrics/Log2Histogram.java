@@ -0,0 +1,72 @@
+package com.barclays.price.engine.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of non-negative values in power of two buckets. Recording is lock
+ * and allocation free; percentiles are reported as the upper bound of the
+ * bucket they fall in, so they are exact to within a factor of two.
+ */
+public class Log2Histogram {
+
+	private static final int BUCKETS = 64;
+
+	private final AtomicLongArray buckets;
+	private final LongAdder count;
+	private final LongAdder sum;
+
+	public Log2Histogram() {
+		buckets = new AtomicLongArray(BUCKETS);
+		count = new LongAdder();
+		sum = new LongAdder();
+	}
+
+	public void record(long value) {
+		long boundedValue = Math.max(0, value);
+		int bucket = (boundedValue == 0) ? 0 : BUCKETS - 1 - Long.numberOfLeadingZeros(boundedValue);
+		buckets.incrementAndGet(bucket);
+		count.increment();
+		sum.add(boundedValue);
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public long getSum() {
+		return sum.sum();
+	}
+
+	public double getMean() {
+		long currentCount = getCount();
+		return (currentCount == 0) ? 0.0 : (double) getSum() / currentCount;
+	}
+
+	/**
+	 * Returns an upper bound of the given percentile, between 0 and 100, of the
+	 * recorded values.
+	 */
+	public long getPercentile(double percentile) {
+		long[] counts = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets.get(i);
+			total += counts[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+
+		long rank = (long) Math.ceil(total * percentile / 100.0);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= Math.max(1, rank)) {
+				return (i == BUCKETS - 1) ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+			}
+		}
+		return Long.MAX_VALUE;
+	}
+
+}
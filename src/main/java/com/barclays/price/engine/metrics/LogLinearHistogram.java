@@ -0,0 +1,97 @@
+package com.barclays.price.engine.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of non-negative values in power of two ranges each split into 32
+ * linear sub-buckets, as HDR histograms do. Values below 32 are counted
+ * exactly; above, percentiles are reported as the upper bound of the sub-bucket
+ * they fall in, so they overestimate by at most 1/32, about 3%. Recording is
+ * lock and allocation free, in a fixed array of under 2000 counters.
+ */
+public class LogLinearHistogram {
+
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray buckets;
+	private final LongAdder count;
+	private final LongAdder sum;
+
+	public LogLinearHistogram() {
+		buckets = new AtomicLongArray(BUCKETS);
+		count = new LongAdder();
+		sum = new LongAdder();
+	}
+
+	public void record(long value) {
+		long boundedValue = Math.max(0, value);
+		buckets.incrementAndGet(bucketOf(boundedValue));
+		count.increment();
+		sum.add(boundedValue);
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public long getSum() {
+		return sum.sum();
+	}
+
+	public double getMean() {
+		long currentCount = getCount();
+		return (currentCount == 0) ? 0.0 : (double) getSum() / currentCount;
+	}
+
+	/**
+	 * Returns an upper bound, within 1/32 of the exact value, of the given
+	 * percentile, between 0 and 100, of the recorded values.
+	 */
+	public long getPercentile(double percentile) {
+		long[] counts = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets.get(i);
+			total += counts[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+
+		long rank = (long) Math.ceil(total * percentile / 100.0);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= Math.max(1, rank)) {
+				return upperBoundOf(i);
+			}
+		}
+		return Long.MAX_VALUE;
+	}
+
+	/**
+	 * Values below 32 have a bucket each. Above, the bucket is chosen by the
+	 * position of the highest bit and the five bits below it.
+	 */
+	private static int bucketOf(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+	}
+
+	private static long upperBoundOf(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		long mantissa = SUB_BUCKETS + bucket % SUB_BUCKETS;
+		long upperBound = ((mantissa + 1) << shift) - 1;
+		return (upperBound < 0) ? Long.MAX_VALUE : upperBound;
+	}
+
+}
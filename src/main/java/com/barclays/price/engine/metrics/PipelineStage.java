@@ -0,0 +1,26 @@
+package com.barclays.price.engine.metrics;
+
+/**
+ * Stages of the pricing pipeline whose latencies are recorded.
+ */
+public enum PipelineStage {
+
+	/** Loading a products file into a company. */
+	LOAD,
+
+	/** Collecting the competitor prices of a product. */
+	COLLECT,
+
+	/** Removing the outlier prices of a product. */
+	FILTER,
+
+	/** Choosing the most frequent price of a product. */
+	MODE,
+
+	/** Choosing the price of a product by streaming its quotes through the approximate kernel. */
+	APPROXIMATE,
+
+	/** Pricing a product end to end. */
+	PRICE
+
+}
@@ -0,0 +1,46 @@
+package com.barclays.price.engine.metrics;
+
+/**
+ * Receives measurements from the pricing pipeline. Callers check
+ * {@link #isEnabled()} before taking any measurement, so the disabled
+ * implementation costs one call per product and allocates nothing.
+ */
+public interface PricingMetrics {
+
+	PricingMetrics DISABLED = new PricingMetrics() {
+
+		@Override
+		public boolean isEnabled() {
+			return false;
+		}
+
+		@Override
+		public void recordLatency(PipelineStage stage, long nanos) {
+		}
+
+		@Override
+		public void recordQuotes(int quotes, int outliersRemoved) {
+		}
+
+		@Override
+		public void recordLoad(long lines, long nanos) {
+		}
+
+	};
+
+	boolean isEnabled();
+
+	void recordLatency(PipelineStage stage, long nanos);
+
+	/**
+	 * Records the number of quotes of a priced product and how many of them were
+	 * removed as outliers.
+	 */
+	void recordQuotes(int quotes, int outliersRemoved);
+
+	/**
+	 * Records a file load of the given number of lines.
+	 */
+	void recordLoad(long lines, long nanos);
+
+}
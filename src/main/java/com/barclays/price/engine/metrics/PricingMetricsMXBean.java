@@ -0,0 +1,24 @@
+package com.barclays.price.engine.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of the pricing metrics. Stage maps are keyed by {@link PipelineStage} name.
+ */
+public interface PricingMetricsMXBean {
+
+	Map<String, Long> getStageCounts();
+
+	Map<String, Double> getStageMeanNanos();
+
+	Map<String, Long> getStageP99Nanos();
+
+	double getMeanQuotesPerProduct();
+
+	double getMeanOutliersRemovedPerProduct();
+
+	long getLoadedLines();
+
+	double getLoadLinesPerSecond();
+
+}
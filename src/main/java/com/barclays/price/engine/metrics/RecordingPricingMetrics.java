@@ -0,0 +1,127 @@
+package com.barclays.price.engine.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Pricing metrics kept in memory: a latency histogram per pipeline stage,
+ * histograms of quotes and removed outliers per priced product, and load
+ * throughput. Safe to record from many threads at once.
+ */
+public class RecordingPricingMetrics implements PricingMetrics, PricingMetricsMXBean {
+
+	public static final String DEFAULT_OBJECT_NAME = "com.barclays.price.engine:type=PricingMetrics";
+
+	private final Log2Histogram[] stageLatencies;
+	private final Log2Histogram quotesPerProduct;
+	private final Log2Histogram outliersRemovedPerProduct;
+	private final LongAdder loadedLines;
+	private final LongAdder loadNanos;
+
+	public RecordingPricingMetrics() {
+		stageLatencies = new Log2Histogram[PipelineStage.values().length];
+		for (int i = 0; i < stageLatencies.length; i++) {
+			stageLatencies[i] = new Log2Histogram();
+		}
+		quotesPerProduct = new Log2Histogram();
+		outliersRemovedPerProduct = new Log2Histogram();
+		loadedLines = new LongAdder();
+		loadNanos = new LongAdder();
+	}
+
+	/**
+	 * Registers these metrics with the platform MBean server under the given name.
+	 */
+	public void registerMBean(String objectName) throws JMException {
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(objectName));
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return true;
+	}
+
+	@Override
+	public void recordLatency(PipelineStage stage, long nanos) {
+		stageLatencies[stage.ordinal()].record(nanos);
+	}
+
+	@Override
+	public void recordQuotes(int quotes, int outliersRemoved) {
+		quotesPerProduct.record(quotes);
+		outliersRemovedPerProduct.record(outliersRemoved);
+	}
+
+	@Override
+	public void recordLoad(long lines, long nanos) {
+		loadedLines.add(lines);
+		loadNanos.add(nanos);
+		recordLatency(PipelineStage.LOAD, nanos);
+	}
+
+	public Log2Histogram getStageLatencies(PipelineStage stage) {
+		return stageLatencies[stage.ordinal()];
+	}
+
+	public Log2Histogram getQuotesPerProduct() {
+		return quotesPerProduct;
+	}
+
+	public Log2Histogram getOutliersRemovedPerProduct() {
+		return outliersRemovedPerProduct;
+	}
+
+	@Override
+	public Map<String, Long> getStageCounts() {
+		Map<String, Long> counts = new LinkedHashMap<String, Long>();
+		for (PipelineStage stage : PipelineStage.values()) {
+			counts.put(stage.name(), getStageLatencies(stage).getCount());
+		}
+		return counts;
+	}
+
+	@Override
+	public Map<String, Double> getStageMeanNanos() {
+		Map<String, Double> means = new LinkedHashMap<String, Double>();
+		for (PipelineStage stage : PipelineStage.values()) {
+			means.put(stage.name(), getStageLatencies(stage).getMean());
+		}
+		return means;
+	}
+
+	@Override
+	public Map<String, Long> getStageP99Nanos() {
+		Map<String, Long> percentiles = new LinkedHashMap<String, Long>();
+		for (PipelineStage stage : PipelineStage.values()) {
+			percentiles.put(stage.name(), getStageLatencies(stage).getPercentile(99));
+		}
+		return percentiles;
+	}
+
+	@Override
+	public double getMeanQuotesPerProduct() {
+		return quotesPerProduct.getMean();
+	}
+
+	@Override
+	public double getMeanOutliersRemovedPerProduct() {
+		return outliersRemovedPerProduct.getMean();
+	}
+
+	@Override
+	public long getLoadedLines() {
+		return loadedLines.sum();
+	}
+
+	@Override
+	public double getLoadLinesPerSecond() {
+		long nanos = loadNanos.sum();
+		return (nanos == 0) ? 0.0 : loadedLines.sum() * 1e9 / nanos;
+	}
+
+}
@@ -0,0 +1,196 @@
+package com.barclays.price.engine.publish;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes prices by product id to a channel in a {@link PriceOutputFormat},
+ * through a reused buffer flushed whenever it fills up. Numbers are encoded
+ * straight into the buffer and ASCII names copied char by char, so no string
+ * is built per price. Prices must be written in ascending product id order.
+ *
+ * The channel is not closed by the writer. Instances are not thread safe.
+ */
+public class PriceChangeWriter {
+
+	static final int MAGIC = 0x50455044;
+	static final int VERSION = 1;
+
+	public static final int DEFAULT_BUFFER_BYTES = 64 * 1024;
+
+	private static final int MAX_NUMBER_BYTES = 32;
+	private static final byte[] CSV_HEADER = "product_id,product,price\n".getBytes(StandardCharsets.US_ASCII);
+
+	private final WritableByteChannel channel;
+	private final PriceOutputFormat format;
+	private final ByteBuffer buffer;
+	private final StringBuilder priceText;
+	private int previousId;
+	private long written;
+
+	public PriceChangeWriter(WritableByteChannel channel, PriceOutputFormat format) {
+		this(channel, format, DEFAULT_BUFFER_BYTES);
+	}
+
+	public PriceChangeWriter(WritableByteChannel channel, PriceOutputFormat format, int bufferBytes) {
+		if (bufferBytes < MAX_NUMBER_BYTES * 2) {
+			throw new IllegalArgumentException("Buffer must hold at least " + MAX_NUMBER_BYTES * 2 + " bytes");
+		}
+		this.channel = channel;
+		this.format = format;
+		this.buffer = ByteBuffer.allocateDirect(bufferBytes);
+		this.priceText = new StringBuilder(MAX_NUMBER_BYTES);
+		this.previousId = -1;
+	}
+
+	/**
+	 * Starts the output, given the number of prices that follow.
+	 */
+	public void writeHeader(int priceCount) throws IOException {
+		if (format == PriceOutputFormat.BINARY) {
+			buffer.putInt(MAGIC);
+			buffer.putInt(VERSION);
+			buffer.putInt(priceCount);
+		} else {
+			putBytes(CSV_HEADER);
+		}
+	}
+
+	/**
+	 * Writes the price of the product with the given id. The name is only written
+	 * in CSV and may then not be null.
+	 */
+	public void write(int id, String name, double price) throws IOException {
+		if (id <= previousId) {
+			throw new IllegalArgumentException("Product ids must ascend, got " + id + " after " + previousId);
+		}
+
+		if (format == PriceOutputFormat.BINARY) {
+			ensureRemaining(MAX_NUMBER_BYTES);
+			putVarint(id - previousId - 1);
+			buffer.putDouble(price);
+		} else {
+			ensureRemaining(MAX_NUMBER_BYTES);
+			putDecimal(id);
+			buffer.put((byte) ',');
+			putName(name);
+			priceText.setLength(0);
+			priceText.append(price);
+			ensureRemaining(MAX_NUMBER_BYTES);
+			buffer.put((byte) ',');
+			for (int i = 0; i < priceText.length(); i++) {
+				buffer.put((byte) priceText.charAt(i));
+			}
+			buffer.put((byte) '\n');
+		}
+		previousId = id;
+		written++;
+	}
+
+	/**
+	 * Writes that the product with the given id no longer has a price.
+	 */
+	public void writeRemoval(int id) throws IOException {
+		if (id <= previousId) {
+			throw new IllegalArgumentException("Product ids must ascend, got " + id + " after " + previousId);
+		}
+
+		ensureRemaining(MAX_NUMBER_BYTES);
+		if (format == PriceOutputFormat.BINARY) {
+			putVarint(id - previousId - 1);
+			buffer.putDouble(Double.NaN);
+		} else {
+			putDecimal(id);
+			buffer.put((byte) ',');
+			buffer.put((byte) ',');
+			buffer.put((byte) '\n');
+		}
+		previousId = id;
+		written++;
+	}
+
+	/**
+	 * Returns the number of prices and removals written so far.
+	 */
+	public long getWritten() {
+		return written;
+	}
+
+	/**
+	 * Writes out whatever is left in the buffer.
+	 */
+	public void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	private void ensureRemaining(int bytes) throws IOException {
+		if (buffer.remaining() < bytes) {
+			flush();
+		}
+	}
+
+	private void putVarint(int value) {
+		while ((value & ~0x7F) != 0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	private void putDecimal(int value) {
+		int divisor = 1;
+		while (value / divisor >= 10) {
+			divisor *= 10;
+		}
+		for (; divisor > 0; divisor /= 10) {
+			buffer.put((byte) ('0' + (value / divisor) % 10));
+		}
+	}
+
+	/**
+	 * Copies a plain ASCII name char by char. Other names are encoded to UTF-8,
+	 * and quoted as in RFC 4180 if they hold a comma, quote or line break.
+	 */
+	private void putName(String name) throws IOException {
+		int length = name.length();
+		for (int i = 0; i < length; i++) {
+			char c = name.charAt(i);
+			if (c >= 0x80 || c == ',' || c == '"' || c == '\n' || c == '\r') {
+				putBytes(csvField(name).getBytes(StandardCharsets.UTF_8));
+				return;
+			}
+		}
+		int offset = 0;
+		while (offset < length) {
+			ensureRemaining(1);
+			int end = offset + Math.min(buffer.remaining(), length - offset);
+			for (; offset < end; offset++) {
+				buffer.put((byte) name.charAt(offset));
+			}
+		}
+	}
+
+	private static String csvField(String name) {
+		if (name.indexOf(',') < 0 && name.indexOf('"') < 0 && name.indexOf('\n') < 0 && name.indexOf('\r') < 0) {
+			return name;
+		}
+		return '"' + name.replace("\"", "\"\"") + '"';
+	}
+
+	private void putBytes(byte[] bytes) throws IOException {
+		int offset = 0;
+		while (offset < bytes.length) {
+			ensureRemaining(1);
+			int length = Math.min(buffer.remaining(), bytes.length - offset);
+			buffer.put(bytes, offset, length);
+			offset += length;
+		}
+	}
+
+}
@@ -0,0 +1,24 @@
+package com.barclays.price.engine.publish;
+
+/**
+ * Encoding of the prices written by a {@link PriceChangeWriter}.
+ */
+public enum PriceOutputFormat {
+
+	/**
+	 * Big-endian int magic, int version and int price count, then for each price,
+	 * in ascending product id order, the gap to the previous id minus one as an
+	 * unsigned LEB128 varint, the first id counting from -1, followed by the
+	 * double price. Consecutive ids therefore take a single byte. A NaN price
+	 * removes the product's price.
+	 */
+	BINARY,
+
+	/**
+	 * A "product_id,product,price" header line, then one such line per price in
+	 * ascending product id order, prices as given by {@link Double#toString(double)}.
+	 * A line with empty product and price, "id,,", removes the product's price.
+	 */
+	CSV
+
+}
@@ -0,0 +1,93 @@
+package com.barclays.price.engine.publish;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+import com.barclays.price.engine.domain.Company;
+import com.barclays.price.engine.domain.Product;
+
+/**
+ * Output stage publishing the chosen prices of a run. In change mode only the
+ * prices that differ from the previous run's are written, found by comparing
+ * with the {@link PriceSnapshot} that run left at the snapshot path, along with
+ * a removal for each product priced by that run but not this one; in snapshot
+ * mode every price is written. Either way this run's snapshot then
+ * replaces the previous one, once the output has been written.
+ *
+ * Products are compared by id, so runs are expected to load their products in
+ * the same order; a product found under another product's id is published as
+ * changed.
+ */
+public class PricePublisher {
+
+	private final Path snapshotPath;
+	private final PriceOutputFormat format;
+
+	public PricePublisher(Path snapshotPath, PriceOutputFormat format) {
+		this.snapshotPath = snapshotPath;
+		this.format = format;
+	}
+
+	/**
+	 * Prices every product of the company and writes the changed and removed
+	 * prices to the given file, returning how many there are.
+	 */
+	public int publishChanges(Company company, Path outputPath) throws IOException {
+		try (FileChannel channel = openOutput(outputPath)) {
+			return publishChanges(company.calculateAllPrices(), channel);
+		}
+	}
+
+	public int publishChanges(Map<Product, Double> productPrices, WritableByteChannel channel) throws IOException {
+		return publish(PriceSnapshot.read(snapshotPath), PriceSnapshot.of(productPrices), channel);
+	}
+
+	/**
+	 * Prices every product of the company and writes all of the prices to the
+	 * given file, returning how many there are.
+	 */
+	public int publishSnapshot(Company company, Path outputPath) throws IOException {
+		try (FileChannel channel = openOutput(outputPath)) {
+			return publishSnapshot(company.calculateAllPrices(), channel);
+		}
+	}
+
+	public int publishSnapshot(Map<Product, Double> productPrices, WritableByteChannel channel) throws IOException {
+		return publish(PriceSnapshot.empty(), PriceSnapshot.of(productPrices), channel);
+	}
+
+	private int publish(PriceSnapshot previous, PriceSnapshot current, WritableByteChannel channel)
+			throws IOException {
+		int size = Math.max(current.size(), previous.size());
+		int changes = 0;
+		for (int id = 0; id < size; id++) {
+			if (current.isChangedSince(previous, id) || current.isRemovedSince(previous, id)) {
+				changes++;
+			}
+		}
+
+		PriceChangeWriter writer = new PriceChangeWriter(channel, format);
+		writer.writeHeader(changes);
+		for (int id = 0; id < size; id++) {
+			if (current.isChangedSince(previous, id)) {
+				writer.write(id, current.getName(id), current.getPrice(id));
+			} else if (current.isRemovedSince(previous, id)) {
+				writer.writeRemoval(id);
+			}
+		}
+		writer.flush();
+
+		current.write(snapshotPath);
+		return changes;
+	}
+
+	private static FileChannel openOutput(Path outputPath) throws IOException {
+		return FileChannel.open(outputPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+	}
+
+}
@@ -0,0 +1,198 @@
+package com.barclays.price.engine.publish;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+
+import com.barclays.price.engine.domain.Product;
+
+/**
+ * Chosen prices of a run by product id, persisted between runs to find the
+ * prices that changed. Each id also keeps the hash of its product's name, so a
+ * product given another product's id by a later run, such as after products
+ * were inserted in the products file, counts as changed rather than being
+ * compared with the wrong price. Ids without a product hold NaN.
+ *
+ * Layout, big-endian:
+ * <pre>
+ * int magic, int version, int productCount
+ * productCount (double price, int name hash)
+ * </pre>
+ */
+public class PriceSnapshot {
+
+	static final int MAGIC = 0x50455053;
+	static final int VERSION = 1;
+
+	private static final int HEADER_BYTES = 12;
+	private static final int ENTRY_BYTES = 12;
+
+	private final double[] prices;
+	private final int[] nameHashes;
+	private final String[] names;
+
+	private PriceSnapshot(double[] prices, int[] nameHashes, String[] names) {
+		this.prices = prices;
+		this.nameHashes = nameHashes;
+		this.names = names;
+	}
+
+	/**
+	 * Returns a snapshot holding no price.
+	 */
+	public static PriceSnapshot empty() {
+		return new PriceSnapshot(new double[0], new int[0], new String[0]);
+	}
+
+	/**
+	 * Takes the given prices by the ids of their products.
+	 */
+	public static PriceSnapshot of(Map<Product, Double> productPrices) {
+		int size = 0;
+		for (Product product : productPrices.keySet()) {
+			size = Math.max(size, product.getId() + 1);
+		}
+
+		double[] prices = new double[size];
+		int[] nameHashes = new int[size];
+		String[] names = new String[size];
+		Arrays.fill(prices, Double.NaN);
+		for (Map.Entry<Product, Double> productPrice : productPrices.entrySet()) {
+			int id = productPrice.getKey().getId();
+			if (id < 0) {
+				throw new IllegalArgumentException("Product '" + productPrice.getKey().getName() + "' has no id");
+			}
+			prices[id] = productPrice.getValue();
+			names[id] = productPrice.getKey().getName();
+			nameHashes[id] = names[id].hashCode();
+		}
+		return new PriceSnapshot(prices, nameHashes, names);
+	}
+
+	/**
+	 * Reads the snapshot persisted at the given path, or returns an empty one if
+	 * there is no file. Names are not persisted, only their hashes.
+	 */
+	public static PriceSnapshot read(Path path) throws IOException {
+		if (!Files.exists(path)) {
+			return empty();
+		}
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			readFully(channel, header, path);
+			if (header.getInt() != MAGIC) {
+				throw new IOException("Not a price snapshot: " + path);
+			}
+			int version = header.getInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported price snapshot version " + version + ", expected " + VERSION);
+			}
+			int size = header.getInt();
+			if (channel.size() != HEADER_BYTES + (long) ENTRY_BYTES * size) {
+				throw new IOException("Truncated price snapshot: " + path);
+			}
+
+			ByteBuffer entries = ByteBuffer.allocate(ENTRY_BYTES * size);
+			readFully(channel, entries, path);
+			double[] prices = new double[size];
+			int[] nameHashes = new int[size];
+			for (int id = 0; id < size; id++) {
+				prices[id] = entries.getDouble();
+				nameHashes[id] = entries.getInt();
+			}
+			return new PriceSnapshot(prices, nameHashes, new String[size]);
+		}
+	}
+
+	/**
+	 * Persists the snapshot, first to a temporary file in the same directory
+	 * atomically moved over the given path once complete, so a failed run leaves
+	 * the previous snapshot in place and readers never see a partial one.
+	 */
+	public void write(Path path) throws IOException {
+		Path absolutePath = path.toAbsolutePath();
+		Path temporaryPath = Files.createTempFile(absolutePath.getParent(), absolutePath.getFileName().toString(),
+				".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+				ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + ENTRY_BYTES * prices.length);
+				buffer.putInt(MAGIC);
+				buffer.putInt(VERSION);
+				buffer.putInt(prices.length);
+				for (int id = 0; id < prices.length; id++) {
+					buffer.putDouble(prices[id]);
+					buffer.putInt(nameHashes[id]);
+				}
+				buffer.flip();
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+			}
+			Files.move(temporaryPath, absolutePath, StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(temporaryPath);
+		}
+	}
+
+	/**
+	 * Returns one more than the highest product id.
+	 */
+	public int size() {
+		return prices.length;
+	}
+
+	public boolean hasPrice(int id) {
+		return id < prices.length && !Double.isNaN(prices[id]);
+	}
+
+	public double getPrice(int id) {
+		return (id < prices.length) ? prices[id] : Double.NaN;
+	}
+
+	/**
+	 * Returns the name of the product with the id, or null for snapshots read
+	 * back from a file.
+	 */
+	public String getName(int id) {
+		return (id < names.length) ? names[id] : null;
+	}
+
+	/**
+	 * Returns true if the id holds a price here and, in the given earlier
+	 * snapshot, no price, a different one or one of a differently named product.
+	 */
+	public boolean isChangedSince(PriceSnapshot previous, int id) {
+		if (!hasPrice(id)) {
+			return false;
+		}
+		return !previous.hasPrice(id) || previous.nameHashes[id] != nameHashes[id]
+				|| Double.compare(previous.prices[id], prices[id]) != 0;
+	}
+
+	/**
+	 * Returns true if the id holds no price here but did in the given earlier
+	 * snapshot, such as for a product no longer in the catalogue.
+	 */
+	public boolean isRemovedSince(PriceSnapshot previous, int id) {
+		return !hasPrice(id) && previous.hasPrice(id);
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, Path path) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) {
+				throw new IOException("Truncated price snapshot: " + path);
+			}
+		}
+		buffer.flip();
+	}
+
+}
@@ -0,0 +1,173 @@
+package com.barclays.price.engine.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.barclays.price.engine.domain.Company;
+import com.barclays.price.engine.metrics.LogLinearHistogram;
+
+/**
+ * Closed-loop load generator for a {@link PriceServer}: each client thread
+ * sends a request for randomly chosen products, waits for the answer and sends
+ * the next one, until the run time is over. Reports throughput and the
+ * latency distribution seen by the clients.
+ *
+ * Run as {@code PriceLoadGenerator [clients] [seconds] [productsPerRequest]}
+ * to size a host against a server started in process on the loopback
+ * interface, loaded with products.txt.
+ */
+public class PriceLoadGenerator {
+
+	private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+	private static final int READ_TIMEOUT_MILLIS = 30000;
+
+	private final String baseUrl;
+	private final List<String> productNames;
+	private final int productsPerRequest;
+	private final LogLinearHistogram latencies;
+	private final LongAdder failedRequests;
+	private volatile long elapsedNanos;
+
+	public PriceLoadGenerator(InetSocketAddress address, List<String> productNames, int productsPerRequest) {
+		if (productNames.isEmpty() || productsPerRequest < 1) {
+			throw new IllegalArgumentException("At least one product per request is required");
+		}
+		this.baseUrl = "http://" + address.getHostString() + ":" + address.getPort() + PriceServer.PRICES_PATH + "?";
+		this.productNames = new ArrayList<String>(productNames);
+		this.productsPerRequest = productsPerRequest;
+		this.latencies = new LogLinearHistogram();
+		this.failedRequests = new LongAdder();
+	}
+
+	/**
+	 * Runs the given number of clients for the given duration and waits for them to
+	 * finish their last request.
+	 */
+	public void run(int clients, long durationMillis) throws InterruptedException {
+		final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+		List<Thread> threads = new ArrayList<Thread>();
+		long start = System.nanoTime();
+		for (int i = 0; i < clients; i++) {
+			Thread thread = new Thread(() -> runClient(deadline), "price-load-" + i);
+			thread.setDaemon(true);
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		elapsedNanos = System.nanoTime() - start;
+	}
+
+	private void runClient(long deadline) {
+		while (System.nanoTime() < deadline) {
+			long start = System.nanoTime();
+			try {
+				HttpURLConnection connection = (HttpURLConnection) new URL(nextRequest()).openConnection();
+				connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+				connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+				if (connection.getResponseCode() != 200) {
+					failedRequests.increment();
+					drain(connection.getErrorStream());
+					continue;
+				}
+				drain(connection.getInputStream());
+				latencies.record(System.nanoTime() - start);
+			} catch (IOException e) {
+				failedRequests.increment();
+			}
+		}
+	}
+
+	private String nextRequest() throws UnsupportedEncodingException {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		StringBuilder url = new StringBuilder(baseUrl);
+		for (int i = 0; i < productsPerRequest; i++) {
+			if (i > 0) {
+				url.append('&');
+			}
+			String productName = productNames.get(random.nextInt(productNames.size()));
+			url.append(PriceServer.PRODUCT_PARAMETER).append('=').append(URLEncoder.encode(productName, "UTF-8"));
+		}
+		return url.toString();
+	}
+
+	/**
+	 * Reads the response to its end, so that the connection is reused.
+	 */
+	private static void drain(InputStream stream) throws IOException {
+		if (stream == null) {
+			return;
+		}
+		byte[] buffer = new byte[4096];
+		while (stream.read(buffer) >= 0) {
+		}
+		stream.close();
+	}
+
+	/**
+	 * Returns the latency of each successful request, in nanoseconds, with
+	 * percentiles within about 3% of the exact ones.
+	 */
+	public LogLinearHistogram getLatencies() {
+		return latencies;
+	}
+
+	public long getCompletedRequests() {
+		return latencies.getCount();
+	}
+
+	public long getFailedRequests() {
+		return failedRequests.sum();
+	}
+
+	/**
+	 * Returns the successful requests per second of the last run.
+	 */
+	public double getRequestsPerSecond() {
+		long elapsed = elapsedNanos;
+		return (elapsed == 0) ? 0.0 : getCompletedRequests() * 1e9 / elapsed;
+	}
+
+	/**
+	 * Runs "clients seconds productsPerRequest" against an in-process server.
+	 * Launch with {@code -Dsun.net.httpserver.nodelay=true} to measure the
+	 * server without Nagle's algorithm, see {@link PriceServer}.
+	 */
+	public static void main(String[] args) throws Exception {
+		int clients = (args.length > 0) ? Integer.parseInt(args[0]) : 32;
+		int seconds = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+		int productsPerRequest = (args.length > 2) ? Integer.parseInt(args[2]) : 1;
+
+		Company company = new Company();
+		company.createObjectsFromFileData("products.txt");
+		try (PriceServer server = new PriceServer(company, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+			server.start();
+			PriceLoadGenerator generator = new PriceLoadGenerator(server.getAddress(),
+					new ArrayList<String>(company.getProducts().keySet()), productsPerRequest);
+			generator.run(clients, TimeUnit.SECONDS.toMillis(seconds));
+
+			LogLinearHistogram latencies = generator.getLatencies();
+			System.out.println(clients + " clients, " + productsPerRequest + " products per request, " + seconds + " s");
+			System.out.println("Completed requests: " + generator.getCompletedRequests() + ", failed: "
+					+ generator.getFailedRequests());
+			System.out.println("Throughput: " + (long) generator.getRequestsPerSecond() + " requests/s");
+			System.out.println("Latency: p50 " + latencies.getPercentile(50) + " ns, p99 " + latencies.getPercentile(99)
+					+ " ns (upper bounds within 3%), mean " + (long) latencies.getMean() + " ns");
+			System.out.println("Server time: p50 " + server.getRequestLatencies().getPercentile(50) + " ns, p99 "
+					+ server.getRequestLatencies().getPercentile(99) + " ns (upper bounds within 3%)");
+		}
+	}
+
+}
@@ -0,0 +1,173 @@
+package com.barclays.price.engine.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.barclays.price.engine.domain.Company;
+import com.barclays.price.engine.domain.Product;
+import com.barclays.price.engine.metrics.LogLinearHistogram;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Embedded HTTP server answering price lookups from a company. A request such
+ * as {@code GET /prices?product=flashdrive&product=ssd} is answered with one
+ * {@code name<TAB>price} line per requested product, in request order, the
+ * price being "unknown" for products the company does not have. Requests
+ * without any product are answered with status 400.
+ *
+ * Each request is handled on its own task of the given executor, so lookups
+ * blocked on the company lock do not hold up other connections. Servers
+ * answering many small requests should be launched with
+ * {@code -Dsun.net.httpserver.nodelay=true}, which disables Nagle's algorithm
+ * on the JDK server's connections: small answers written as headers then body
+ * would otherwise wait for the client's delayed acknowledgement. The flag is
+ * read once, when the JDK server is first used, so it cannot be set from here.
+ */
+public class PriceServer implements AutoCloseable {
+
+	public static final String PRICES_PATH = "/prices";
+	public static final String PRODUCT_PARAMETER = "product";
+	public static final String UNKNOWN_PRICE = "unknown";
+
+	private static final int BACKLOG = 1024;
+
+	private final Company company;
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final LogLinearHistogram requestLatencies;
+
+	/**
+	 * Creates a server handling each request on a new cached pool thread.
+	 */
+	public PriceServer(Company company, InetSocketAddress address) throws IOException {
+		this(company, address, Executors.newCachedThreadPool());
+	}
+
+	/**
+	 * Creates a server handling requests on the given executor, which is shut down
+	 * with the server.
+	 */
+	public PriceServer(Company company, InetSocketAddress address, ExecutorService executor) throws IOException {
+		this.company = company;
+		this.executor = executor;
+		this.requestLatencies = new LogLinearHistogram();
+		server = HttpServer.create(address, BACKLOG);
+		server.createContext(PRICES_PATH, new PricesHandler());
+		server.setExecutor(executor);
+	}
+
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stops accepting requests, waits at most the given number of seconds for the
+	 * ongoing ones and shuts the executor down.
+	 */
+	public void stop(int delaySeconds) {
+		server.stop(delaySeconds);
+		executor.shutdown();
+	}
+
+	@Override
+	public void close() {
+		stop(0);
+	}
+
+	/**
+	 * Returns the address the server is bound to, with the actual port when it was
+	 * created on port 0.
+	 */
+	public InetSocketAddress getAddress() {
+		return server.getAddress();
+	}
+
+	/**
+	 * Returns the time spent answering each request, in nanoseconds.
+	 */
+	public LogLinearHistogram getRequestLatencies() {
+		return requestLatencies;
+	}
+
+	/**
+	 * Returns the names of the products requested by a query string, in order.
+	 */
+	static List<String> parseProductNames(String query) throws UnsupportedEncodingException {
+		List<String> productNames = new ArrayList<String>();
+		if (query == null) {
+			return productNames;
+		}
+		for (String parameter : query.split("&")) {
+			int separator = parameter.indexOf('=');
+			if (separator > 0 && PRODUCT_PARAMETER.equals(parameter.substring(0, separator))) {
+				productNames.add(URLDecoder.decode(parameter.substring(separator + 1), "UTF-8"));
+			}
+		}
+		return productNames;
+	}
+
+	String answer(List<String> productNames) {
+		StringBuilder response = new StringBuilder();
+		for (String productName : productNames) {
+			Product product = company.getProductByProductName(productName);
+			response.append(productName).append('\t');
+			if (product == null) {
+				response.append(UNKNOWN_PRICE);
+			} else {
+				response.append(company.calculatePriceForProduct(product));
+			}
+			response.append('\n');
+		}
+		return response.toString();
+	}
+
+	private class PricesHandler implements HttpHandler {
+
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			long start = System.nanoTime();
+			try {
+				if (!"GET".equals(exchange.getRequestMethod())) {
+					send(exchange, start, 405, "Only GET is supported\n");
+					return;
+				}
+				List<String> productNames = parseProductNames(exchange.getRequestURI().getRawQuery());
+				if (productNames.isEmpty()) {
+					send(exchange, start, 400, "At least one " + PRODUCT_PARAMETER + " parameter is required\n");
+					return;
+				}
+				send(exchange, start, 200, answer(productNames));
+			} catch (RuntimeException e) {
+				send(exchange, start, 500, e.getClass().getSimpleName() + "\n");
+			} finally {
+				exchange.close();
+			}
+		}
+
+		/**
+		 * Records the request latency, then sends the answer, so that the latency
+		 * of a request is counted by the time its client reads the answer.
+		 */
+		private void send(HttpExchange exchange, long start, int status, String body) throws IOException {
+			byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+			requestLatencies.record(System.nanoTime() - start);
+			exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+			exchange.sendResponseHeaders(status, bytes.length);
+			OutputStream responseBody = exchange.getResponseBody();
+			responseBody.write(bytes);
+			responseBody.close();
+		}
+
+	}
+
+}
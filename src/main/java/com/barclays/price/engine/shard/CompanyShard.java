@@ -0,0 +1,42 @@
+package com.barclays.price.engine.shard;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One partition of a sharded catalogue: a company holding some of the products
+ * and every competitor quote of those products. Products and quotes are given
+ * as lines of a products file, so that a shard loads them exactly as
+ * {@link com.barclays.price.engine.domain.Company#createObjectsFromFileData(String)}
+ * would.
+ */
+public interface CompanyShard extends AutoCloseable {
+
+	/**
+	 * Adds products given as "name supply demand" lines.
+	 */
+	void addProductLines(List<String> lines) throws IOException;
+
+	/**
+	 * Adds quotes given as "product competitor price" lines. The products must have
+	 * been added to this shard.
+	 */
+	void addQuoteLines(List<String> lines) throws IOException;
+
+	/**
+	 * Returns the chosen price of the named product.
+	 *
+	 * @throws IllegalArgumentException if the shard has no such product
+	 */
+	double calculatePriceForProduct(String productName) throws IOException;
+
+	/**
+	 * Returns the chosen price of every product of the shard by product name.
+	 */
+	Map<String, Double> calculateAllPrices() throws IOException;
+
+	@Override
+	void close() throws IOException;
+
+}
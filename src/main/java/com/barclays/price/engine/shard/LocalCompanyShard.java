@@ -0,0 +1,72 @@
+package com.barclays.price.engine.shard;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.barclays.price.engine.domain.Company;
+import com.barclays.price.engine.domain.Product;
+
+/**
+ * Shard backed by a company in this JVM.
+ */
+public class LocalCompanyShard implements CompanyShard {
+
+	private final Company company;
+
+	public LocalCompanyShard() {
+		this(new Company());
+	}
+
+	public LocalCompanyShard(Company company) {
+		this.company = company;
+	}
+
+	public Company getCompany() {
+		return company;
+	}
+
+	@Override
+	public void addProductLines(List<String> lines) throws IOException {
+		company.generateProducts(reader(lines), lines.size());
+	}
+
+	@Override
+	public void addQuoteLines(List<String> lines) throws IOException {
+		company.generateCompetitors(reader(lines), lines.size());
+	}
+
+	@Override
+	public double calculatePriceForProduct(String productName) {
+		Product product = company.getProductByProductName(productName);
+		if (product == null) {
+			throw new IllegalArgumentException("Unknown product '" + productName + "'");
+		}
+		return company.calculatePriceForProduct(product);
+	}
+
+	@Override
+	public Map<String, Double> calculateAllPrices() {
+		Map<String, Double> productPrices = new TreeMap<String, Double>();
+		for (Map.Entry<Product, Double> productPrice : company.calculateAllPrices().entrySet()) {
+			productPrices.put(productPrice.getKey().getName(), productPrice.getValue());
+		}
+		return productPrices;
+	}
+
+	@Override
+	public void close() {
+	}
+
+	private static BufferedReader reader(List<String> lines) {
+		StringBuilder text = new StringBuilder();
+		for (String line : lines) {
+			text.append(line).append('\n');
+		}
+		return new BufferedReader(new StringReader(text.toString()));
+	}
+
+}
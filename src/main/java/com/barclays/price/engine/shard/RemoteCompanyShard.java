@@ -0,0 +1,98 @@
+package com.barclays.price.engine.shard;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Shard served by a {@link ShardServer}, possibly in another process, over a
+ * single connection. Requests are made one at a time.
+ */
+public class RemoteCompanyShard implements CompanyShard {
+
+	private final Socket socket;
+	private final BufferedReader reader;
+	private final Writer writer;
+
+	public RemoteCompanyShard(InetSocketAddress address) throws IOException {
+		socket = new Socket();
+		socket.setTcpNoDelay(true);
+		socket.connect(address);
+		reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+		writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+	}
+
+	@Override
+	public synchronized void addProductLines(List<String> lines) throws IOException {
+		sendLines(ShardServer.PRODUCTS, lines);
+	}
+
+	@Override
+	public synchronized void addQuoteLines(List<String> lines) throws IOException {
+		sendLines(ShardServer.QUOTES, lines);
+	}
+
+	@Override
+	public synchronized double calculatePriceForProduct(String productName) throws IOException {
+		String answer = request(ShardServer.PRICE + " " + productName);
+		if (answer.equals(ShardServer.UNKNOWN)) {
+			throw new IllegalArgumentException("Unknown product '" + productName + "'");
+		}
+		return Double.parseDouble(answer.substring(ShardServer.PRICE.length() + 1));
+	}
+
+	@Override
+	public synchronized Map<String, Double> calculateAllPrices() throws IOException {
+		int count = Integer.parseInt(request(ShardServer.PRICES));
+		Map<String, Double> productPrices = new TreeMap<String, Double>();
+		for (int i = 0; i < count; i++) {
+			String line = readAnswer();
+			int separator = line.lastIndexOf(' ');
+			productPrices.put(line.substring(0, separator), Double.parseDouble(line.substring(separator + 1)));
+		}
+		return productPrices;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		socket.close();
+	}
+
+	private void sendLines(String command, List<String> lines) throws IOException {
+		writer.write(command + " " + lines.size() + "\n");
+		for (String line : lines) {
+			writer.write(line);
+			writer.write('\n');
+		}
+		writer.flush();
+		readAnswer();
+	}
+
+	private String request(String command) throws IOException {
+		writer.write(command);
+		writer.write('\n');
+		writer.flush();
+		return readAnswer();
+	}
+
+	private String readAnswer() throws IOException {
+		String answer = reader.readLine();
+		if (answer == null) {
+			throw new IOException("Shard closed the connection");
+		}
+		if (answer.startsWith(ShardServer.ERROR)) {
+			throw new IOException("Shard failed: " + answer.substring(ShardServer.ERROR.length()).trim());
+		}
+		return answer;
+	}
+
+}
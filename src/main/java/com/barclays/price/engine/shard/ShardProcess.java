@@ -0,0 +1,62 @@
+package com.barclays.price.engine.shard;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A {@link ShardServer} running in a child JVM on this machine, started with
+ * the class path of the current one and reached over loopback.
+ */
+public class ShardProcess extends RemoteCompanyShard {
+
+	private final Process process;
+
+	private ShardProcess(Process process, int port) throws IOException {
+		super(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+		this.process = process;
+	}
+
+	/**
+	 * Starts a shard process and connects to it once it is listening.
+	 */
+	public static ShardProcess start() throws IOException {
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+				ShardServer.class.getName(), "0");
+		builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+		Process process = builder.start();
+
+		BufferedReader output = new BufferedReader(
+				new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+		String line = output.readLine();
+		if (line == null || !line.startsWith(ShardServer.LISTENING + " ")) {
+			process.destroy();
+			throw new IOException("Shard process did not start: " + line);
+		}
+		try {
+			return new ShardProcess(process, Integer.parseInt(line.substring(ShardServer.LISTENING.length() + 1)));
+		} catch (IOException e) {
+			process.destroy();
+			throw e;
+		}
+	}
+
+	/**
+	 * Closes the connection and stops the process.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			super.close();
+		} finally {
+			process.getOutputStream().close();
+			process.destroy();
+		}
+	}
+
+}
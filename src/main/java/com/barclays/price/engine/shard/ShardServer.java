@@ -0,0 +1,166 @@
+package com.barclays.price.engine.shard;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serves a {@link CompanyShard} to {@link RemoteCompanyShard}s over a line
+ * protocol on a socket. Each request is a command line, followed for
+ * {@value #PRODUCTS} and {@value #QUOTES} by the given number of lines, and is
+ * answered with:
+ *
+ * <pre>
+ * PRODUCTS n / QUOTES n   OK
+ * PRICE name              PRICE price, or UNKNOWN
+ * PRICES                  n, then n "name price" lines
+ * anything failing        ERROR message
+ * </pre>
+ *
+ * Prices are written with {@link Double#toString(double)}, which reads back to
+ * the same double. Each connection is served by its own thread.
+ *
+ * Run as {@code ShardServer [port]} to serve a new company on the loopback
+ * interface; the port actually bound is printed as "LISTENING port". The
+ * process serves until its standard input is closed, so it does not outlive
+ * the process that started it.
+ */
+public class ShardServer implements AutoCloseable {
+
+	static final String PRODUCTS = "PRODUCTS";
+	static final String QUOTES = "QUOTES";
+	static final String PRICE = "PRICE";
+	static final String PRICES = "PRICES";
+	static final String OK = "OK";
+	static final String UNKNOWN = "UNKNOWN";
+	static final String ERROR = "ERROR";
+	static final String LISTENING = "LISTENING";
+
+	private final CompanyShard shard;
+	private final ServerSocket serverSocket;
+	private final Thread acceptor;
+	private volatile boolean running;
+
+	public ShardServer(CompanyShard shard, int port) throws IOException {
+		this.shard = shard;
+		serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		acceptor = new Thread(this::accept, "shard-acceptor");
+		acceptor.setDaemon(true);
+	}
+
+	public void start() {
+		running = true;
+		acceptor.start();
+	}
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	@Override
+	public void close() throws IOException {
+		running = false;
+		serverSocket.close();
+	}
+
+	private void accept() {
+		while (running) {
+			try {
+				final Socket socket = serverSocket.accept();
+				Thread connection = new Thread(() -> serve(socket), "shard-connection");
+				connection.setDaemon(true);
+				connection.start();
+			} catch (IOException e) {
+				running = false;
+			}
+		}
+	}
+
+	private void serve(Socket socket) {
+		try (Socket connection = socket;
+				BufferedReader reader = new BufferedReader(
+						new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+				Writer writer = new BufferedWriter(
+						new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8))) {
+			String command;
+			while ((command = reader.readLine()) != null) {
+				answer(command, reader, writer);
+				writer.flush();
+			}
+		} catch (IOException e) {
+			// The client went away; nothing left to answer.
+		}
+	}
+
+	private void answer(String command, BufferedReader reader, Writer writer) throws IOException {
+		String[] words = command.split(" ", 2);
+		try {
+			switch (words[0]) {
+			case PRODUCTS:
+				shard.addProductLines(readLines(reader, Integer.parseInt(words[1])));
+				writeLine(writer, OK);
+				break;
+			case QUOTES:
+				shard.addQuoteLines(readLines(reader, Integer.parseInt(words[1])));
+				writeLine(writer, OK);
+				break;
+			case PRICE:
+				writeLine(writer, PRICE + " " + shard.calculatePriceForProduct(words[1]));
+				break;
+			case PRICES:
+				Map<String, Double> productPrices = shard.calculateAllPrices();
+				writeLine(writer, Integer.toString(productPrices.size()));
+				for (Map.Entry<String, Double> productPrice : productPrices.entrySet()) {
+					writeLine(writer, productPrice.getKey() + " " + productPrice.getValue());
+				}
+				break;
+			default:
+				writeLine(writer, ERROR + " Unknown command " + words[0]);
+			}
+		} catch (IllegalArgumentException e) {
+			writeLine(writer, (PRICE.equals(words[0]) && !(e instanceof NumberFormatException)) ? UNKNOWN
+					: ERROR + " " + e.getMessage());
+		} catch (RuntimeException e) {
+			writeLine(writer, ERROR + " " + e);
+		}
+	}
+
+	private static List<String> readLines(BufferedReader reader, int count) throws IOException {
+		List<String> lines = new ArrayList<String>(count);
+		for (int i = 0; i < count; i++) {
+			String line = reader.readLine();
+			if (line == null) {
+				throw new IOException("Connection closed after " + i + " of " + count + " lines");
+			}
+			lines.add(line);
+		}
+		return lines;
+	}
+
+	private static void writeLine(Writer writer, String line) throws IOException {
+		writer.write(line);
+		writer.write('\n');
+	}
+
+	public static void main(String[] args) throws IOException {
+		int port = (args.length > 0) ? Integer.parseInt(args[0]) : 0;
+		try (ShardServer server = new ShardServer(new LocalCompanyShard(), port)) {
+			server.start();
+			System.out.println(LISTENING + " " + server.getPort());
+			System.out.flush();
+			while (System.in.read() >= 0) {
+			}
+		}
+	}
+
+}
@@ -0,0 +1,246 @@
+package com.barclays.price.engine.shard;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Catalogue hash-partitioned by product name across several
+ * {@link CompanyShard}s. Each product lives on exactly one shard together with
+ * every competitor quote of it, so each shard prices its products exactly as a
+ * single company holding the whole catalogue would: quotes of a product are
+ * ordered by competitor name on every shard, and pricing a product only reads
+ * its own quotes.
+ *
+ * Products file lines are routed to the owning shard in batches, which all
+ * shards load at once with one batch in flight per shard. Price queries go to
+ * the owning shard, and whole-catalogue pricing runs on all shards in parallel
+ * before merging their results.
+ */
+public class ShardedCompany implements AutoCloseable {
+
+	private static final int BATCH_LINES = 4096;
+
+	private final List<CompanyShard> shards;
+	private final ExecutorService executor;
+
+	public ShardedCompany(List<? extends CompanyShard> shards) {
+		if (shards.isEmpty()) {
+			throw new IllegalArgumentException("At least one shard is required");
+		}
+		this.shards = new ArrayList<CompanyShard>(shards);
+		this.executor = Executors.newFixedThreadPool(shards.size(), runnable -> {
+			Thread thread = new Thread(runnable, "company-shard");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Creates a catalogue of the given number of shards in this JVM.
+	 */
+	public static ShardedCompany inProcess(int shardCount) {
+		List<CompanyShard> shards = new ArrayList<CompanyShard>();
+		for (int i = 0; i < shardCount; i++) {
+			shards.add(new LocalCompanyShard());
+		}
+		return new ShardedCompany(shards);
+	}
+
+	/**
+	 * Creates a catalogue of the given number of shards, each in its own local
+	 * process reached over loopback.
+	 */
+	public static ShardedCompany inLocalProcesses(int shardCount) throws IOException {
+		List<CompanyShard> shards = new ArrayList<CompanyShard>();
+		try {
+			for (int i = 0; i < shardCount; i++) {
+				shards.add(ShardProcess.start());
+			}
+		} catch (IOException e) {
+			for (CompanyShard shard : shards) {
+				shard.close();
+			}
+			throw e;
+		}
+		return new ShardedCompany(shards);
+	}
+
+	public int getShardCount() {
+		return shards.size();
+	}
+
+	/**
+	 * Returns the index of the shard owning the named product. String hash codes
+	 * are specified, so every process agrees on the owner.
+	 */
+	public int shardOf(String productName) {
+		return Math.floorMod(productName.hashCode(), shards.size());
+	}
+
+	/**
+	 * Loads a products file, sending each product and quote line to the shard
+	 * owning its product.
+	 */
+	public void createObjectsFromFileData(String filePath) throws IOException {
+		try (BufferedReader bufferedReader = new BufferedReader(new FileReader(filePath))) {
+			int numberOfProductLines = Integer.parseInt(bufferedReader.readLine());
+			routeLines(bufferedReader, numberOfProductLines, true);
+
+			int numberOfCompetitorLines = Integer.parseInt(bufferedReader.readLine());
+			routeLines(bufferedReader, numberOfCompetitorLines, false);
+		}
+	}
+
+	/**
+	 * Routes the lines to their shards in batches sent on the executor. Each shard
+	 * has at most one batch in flight, so it receives its lines in file order
+	 * while the other shards keep loading; all batches have been acknowledged
+	 * when this returns.
+	 */
+	private void routeLines(BufferedReader bufferedReader, int numberOfLines, boolean productLines)
+			throws IOException {
+		List<List<String>> batches = new ArrayList<List<String>>();
+		List<Future<?>> inFlight = new ArrayList<Future<?>>();
+		for (int i = 0; i < shards.size(); i++) {
+			batches.add(new ArrayList<String>());
+			inFlight.add(null);
+		}
+
+		try {
+			for (int i = 1; i <= numberOfLines; i++) {
+				String line = bufferedReader.readLine();
+				int shard = shardOf(line.substring(0, line.indexOf(' ')));
+				List<String> batch = batches.get(shard);
+				batch.add(line);
+				if (batch.size() == BATCH_LINES) {
+					sendLines(shard, batch, productLines, inFlight);
+					batches.set(shard, new ArrayList<String>());
+				}
+			}
+			for (int shard = 0; shard < shards.size(); shard++) {
+				if (!batches.get(shard).isEmpty()) {
+					sendLines(shard, batches.get(shard), productLines, inFlight);
+				}
+			}
+			for (int shard = 0; shard < shards.size(); shard++) {
+				await(inFlight.get(shard));
+			}
+		} finally {
+			for (Future<?> batch : inFlight) {
+				if (batch != null) {
+					batch.cancel(false);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Waits for the shard's batch in flight, then sends the given batch.
+	 */
+	private void sendLines(int shard, List<String> lines, boolean productLines, List<Future<?>> inFlight)
+			throws IOException {
+		await(inFlight.get(shard));
+		CompanyShard companyShard = shards.get(shard);
+		inFlight.set(shard, executor.submit(() -> {
+			if (productLines) {
+				companyShard.addProductLines(lines);
+			} else {
+				companyShard.addQuoteLines(lines);
+			}
+			return null;
+		}));
+	}
+
+	private static void await(Future<?> batch) throws IOException {
+		if (batch == null) {
+			return;
+		}
+		try {
+			batch.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while loading shards", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IllegalStateException("Shard loading failed", e.getCause());
+		}
+	}
+
+	/**
+	 * Returns the chosen price of the named product, computed by its shard.
+	 *
+	 * @throws IllegalArgumentException if there is no such product
+	 */
+	public double calculatePriceForProduct(String productName) throws IOException {
+		return shards.get(shardOf(productName)).calculatePriceForProduct(productName);
+	}
+
+	/**
+	 * Prices every product on all shards in parallel and returns the chosen prices
+	 * by product name.
+	 */
+	public Map<String, Double> calculateAllPrices() throws IOException {
+		List<Future<Map<String, Double>>> shardPrices = new ArrayList<Future<Map<String, Double>>>();
+		for (CompanyShard shard : shards) {
+			shardPrices.add(executor.submit(shard::calculateAllPrices));
+		}
+
+		Map<String, Double> productPrices = new TreeMap<String, Double>();
+		try {
+			for (Future<Map<String, Double>> prices : shardPrices) {
+				productPrices.putAll(prices.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while pricing shards", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IllegalStateException("Shard pricing failed", e.getCause());
+		}
+		return productPrices;
+	}
+
+	/**
+	 * Closes every shard, stopping shard processes.
+	 */
+	@Override
+	public void close() throws IOException {
+		executor.shutdown();
+		IOException failure = null;
+		for (CompanyShard shard : shards) {
+			try {
+				shard.close();
+			} catch (IOException e) {
+				failure = e;
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		int shardCount = (args.length > 0) ? Integer.parseInt(args[0]) : 4;
+		try (ShardedCompany company = ShardedCompany.inLocalProcesses(shardCount)) {
+			company.createObjectsFromFileData("products.txt");
+			for (Map.Entry<String, Double> productPrice : company.calculateAllPrices().entrySet()) {
+				System.out.println("Chosen price for product '" + productPrice.getKey() + "' on shard "
+						+ company.shardOf(productPrice.getKey()) + " is: " + productPrice.getValue());
+			}
+		}
+	}
+
+}
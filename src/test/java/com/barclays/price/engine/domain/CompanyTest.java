@@ -7,13 +7,13 @@ import org.junit.Before;
 import org.junit.Test;
 
 import com.barclays.price.engine.logic.HighSupplyHighDemandPriceSelection;
-import org.omg.CORBA.DoubleHolder;
 
 import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -217,6 +217,195 @@ public class CompanyTest {
 		assertEquals(15499.0 * 1.1, company.calculatePriceForProduct(product), 0.001);
 	}
 
+	@Test
+	public void shouldCalculateAllPricesInParallelSameAsOneByOne() {
+		company = new Company();
+		for (int p = 0; p < 1000; p++) {
+			company.addProduct(company.createProduct("Product" + p, (p % 2 == 0) ? "H L" : "L H"));
+		}
+		for (int c = 0; c < 20; c++) {
+			Competitor competitor = company.createCompetitor("Competitor" + c);
+			company.addCompetitor(competitor);
+			for (Product product : company.getProducts().values()) {
+				competitor.addProductPrice(product, 100.0 + ((c * 7 + product.getName().length()) % 5) * 10.0);
+			}
+		}
+
+		Map<Product, Double> chosenPrices = company.calculateAllPrices(4);
+
+		assertEquals(1000, chosenPrices.size());
+		for (Product product : company.getProducts().values()) {
+			assertEquals(company.calculatePriceForProduct(product), chosenPrices.get(product), 0.0);
+		}
+	}
+
+	@Test
+	public void shouldRepriceOnlyProductsWithUpdatedQuotes() throws IOException {
+		company = new Company();
+		company.createObjectsFromFileData("products.txt");
+		assertEquals(4, company.pollPriceChanges().size());
+		assertEquals(0, company.pollPriceChanges().size());
+
+		company.updateQuote("ToshibaHardDrive", "Amazon", 3899.0);
+		Map<Product, Double> changedPrices = company.pollPriceChanges();
+
+		Product product = company.getProductByProductName("ToshibaHardDrive");
+		assertEquals(1, changedPrices.size());
+		assertEquals(3899.0, changedPrices.get(product), 0.0);
+		assertEquals(company.calculatePriceForProduct(product), changedPrices.get(product), 0.0);
+	}
+
+	@Test
+	public void shouldNotReportUnchangedPriceAfterQuoteUpdate() throws IOException {
+		company = new Company();
+		company.createObjectsFromFileData("products.txt");
+		company.pollPriceChanges();
+
+		company.getCompetitorByCompetitorName("Chroma").addProductPrice(company.getProductByProductName("Redmi"),
+				10999.0);
+		assertEquals(0, company.pollPriceChanges().size());
+	}
+
+	@Test
+	public void shouldReadConsistentPricesWhileQuotesAreWrittenInConcurrentMode() throws Exception {
+		final Company concurrentCompany = new Company(true);
+		final Product product = concurrentCompany.createProduct("Moto Phone", "H H");
+		concurrentCompany.addProduct(product);
+		for (int c = 0; c < 10; c++) {
+			concurrentCompany.updateQuote("Moto Phone", "Competitor" + c, 100.0);
+		}
+
+		Thread writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				for (int round = 1; round <= 2000; round++) {
+					for (int c = 0; c < 10; c++) {
+						concurrentCompany.updateQuote("Moto Phone", "Competitor" + c, 100.0 + round);
+					}
+				}
+			}
+		});
+		writer.start();
+
+		while (writer.isAlive()) {
+			double chosenPrice = concurrentCompany.calculatePriceForProduct(product);
+			assertTrue(chosenPrice >= 100.0 && chosenPrice <= 2100.0);
+		}
+		writer.join();
+
+		assertEquals(2100.0, concurrentCompany.calculatePriceForProduct(product), 0.0);
+		assertEquals(10, concurrentCompany.getCompetitors().size());
+	}
+
+	@Test
+	public void shouldPriceSameInConcurrentModeAsInDefaultMode() throws IOException {
+		company = new Company();
+		company.createObjectsFromFileData("products.txt");
+		Company concurrentCompany = new Company(true);
+		concurrentCompany.createObjectsFromFileData("products.txt");
+
+		for (Product product : company.getProducts().values()) {
+			assertEquals(company.calculatePriceForProduct(product),
+					concurrentCompany.calculatePriceForProduct(concurrentCompany.getProductByProductName(product.getName())),
+					0.0);
+		}
+	}
+
+	@Test
+	public void shouldPriceSameInBatchAsProductByProduct() throws IOException {
+		company = new Company();
+		company.createObjectsFromFileData("products.txt");
+		company.addProduct(company.createProduct("Unquoted Phone", "L L"));
+
+		assertEquals(company.calculateAllPrices(), company.calculateAllPricesInBatch());
+	}
+
+	@Test
+	public void shouldGiveProductsDenseIdsInOrderOfAddition() {
+		company = new Company();
+		Product first = company.createProduct("Moto Phone", "H H");
+		Product second = company.createProduct("IPhone", "L L");
+		company.addProduct(first);
+		company.addProduct(second);
+		Product replacement = company.createProduct("Moto Phone", "L H");
+		company.addProduct(replacement);
+
+		assertEquals(0, replacement.getId());
+		assertEquals(1, second.getId());
+		assertSame(replacement, company.getProductById(0));
+		assertSame(second, company.getProductById(1));
+		assertNull(company.getProductById(2));
+	}
+
+	@Test
+	public void shouldRecordNoQuoteOfBatchWithUnknownProduct() {
+		company = new Company();
+		company.addProduct(company.createProduct("Moto Phone", "H H"));
+		Map<String, Map<String, Double>> quotes = new LinkedHashMap<String, Map<String, Double>>();
+		quotes.put("Moto Phone", new LinkedHashMap<String, Double>());
+		quotes.get("Moto Phone").put("Amazon", 100.0);
+		quotes.put("Unknown Phone", new LinkedHashMap<String, Double>());
+		quotes.get("Unknown Phone").put("Amazon", 100.0);
+
+		try {
+			company.updateQuotes(quotes);
+			fail("Expected the unknown product to be rejected");
+		} catch (IllegalArgumentException e) {
+			assertEquals(0, company.getCompetitors().size());
+		}
+
+		quotes.remove("Unknown Phone");
+		company.updateQuotes(quotes);
+		assertEquals(1, company.getPriceBook().getQuotes(company.getProductByProductName("Moto Phone")).size());
+	}
+
+	@Test
+	public void shouldPriceProductsOfRegisteredLevelsSameInBatch() throws IOException {
+		company = new Company();
+		String[] levels = { "L", "M", "H" };
+		company.getStrategyRegistry().registerLevels(levels, levels,
+				new double[][] { { 0.1, 0.15, 0.2 }, { -0.02, 0.0, 0.05 }, { -0.05, -0.03, 0.0 } });
+		company.createObjectsFromFileData("products.txt");
+		Product product = company.createProduct("Moto Phone", "M H");
+		company.addProduct(product);
+		company.updateQuote("Moto Phone", "Amazon", 200.0);
+
+		assertEquals(9, company.getStrategies().size());
+		assertEquals(210.0, company.calculatePriceForProduct(product), 1e-9);
+		assertEquals(company.calculateAllPrices(), company.calculateAllPricesInBatch());
+	}
+
+	@Test
+	public void shouldPriceInMinorUnitsWhenFixedPointIsEnabled() throws IOException {
+		company = new Company();
+		company.enableFixedPointPrices(2);
+		company.createObjectsFromFileData("products.txt");
+
+		Map<Product, Double> prices = company.calculateAllPrices();
+		Map<Product, Long> fixedPointPrices = company.calculateAllFixedPointPrices();
+		assertEquals(prices.keySet(), fixedPointPrices.keySet());
+		for (Map.Entry<Product, Double> price : prices.entrySet()) {
+			assertEquals(price.getValue(), fixedPointPrices.get(price.getKey()) / 100.0, 0.005);
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void shouldNotEnableFixedPointOnceProductsAreAdded() {
+		company.addProduct(new Product("Moto Phone", new HighSupplyHighDemandPriceSelection()));
+		company.enableFixedPointPrices(2);
+	}
+
+	@Test
+	public void shouldPriceProductsAboveQuoteThresholdApproximatelyAsExactly() throws IOException {
+		company = new Company();
+		company.createObjectsFromFileData("products.txt");
+		Map<Product, Double> exactPrices = company.calculateAllPrices();
+
+		company.enableApproximatePricing(0, 64);
+
+		assertEquals(exactPrices, company.calculateAllPrices());
+	}
+
 	// TODO: File operations related method's test
 
 	@Test
@@ -23,4 +23,19 @@ public class CompetitorTest {
 		Assert.assertEquals(1, competitor.getProductPrices().size());
 		Assert.assertEquals(123.0, competitor.getProductPrices().get(product), 0.000001);
 	}
+
+	@Test
+	public void shouldReadProductPricesFromCompanyOnceAdded() {
+		Company company = new Company();
+		Product product = company.createProduct("IPhone", "H H");
+		company.addProduct(product);
+		Competitor competitor = company.createCompetitor("Amazon");
+		competitor.addProductPrice(product, 123.00);
+		company.addCompetitor(competitor);
+		competitor.addProductPrice(product, 120.00);
+
+		Assert.assertEquals(1, competitor.getProductPrices().size());
+		Assert.assertEquals(120.0, competitor.getProductPrices().get(product), 0.000001);
+		Assert.assertEquals(120.0, company.getPriceBook().getQuotes(product).getPrice(0), 0.000001);
+	}
 }
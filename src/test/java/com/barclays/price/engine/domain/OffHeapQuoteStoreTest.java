@@ -0,0 +1,78 @@
+package com.barclays.price.engine.domain;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+public class OffHeapQuoteStoreTest {
+
+	@Test
+	public void shouldPriceAsHeapQuotesFromProductsFile() throws IOException {
+		Company heapCompany = new Company();
+		heapCompany.createObjectsFromFileData("products.txt");
+		Company offHeapCompany = new Company();
+		offHeapCompany.enableOffHeapQuotes();
+		offHeapCompany.createObjectsFromFileData("products.txt");
+
+		assertEquals(byName(heapCompany.calculateAllPrices()), byName(offHeapCompany.calculateAllPrices()));
+		assertEquals(byName(heapCompany.calculateAllPricesInBatch()),
+				byName(offHeapCompany.calculateAllPricesInBatch()));
+		assertEquals(byName(heapCompany.pollPriceChanges()), byName(offHeapCompany.pollPriceChanges()));
+		assertTrue(offHeapCompany.getPriceBook().getOffHeapStore().getUsedBytes() > 0);
+	}
+
+	@Test
+	public void shouldPriceAsHeapQuotesAcrossMappedChunksAndReplacedCompetitors() throws IOException {
+		Path file = Files.createTempFile("quotes", ".bin");
+		try {
+			OffHeapQuoteStore store = OffHeapQuoteStore.map(file, 1024);
+			Company heapCompany = new Company();
+			heapCompany.enableFixedPointPrices(2);
+			Company offHeapCompany = new Company();
+			offHeapCompany.enableFixedPointPrices(2);
+			offHeapCompany.enableOffHeapQuotes(store);
+
+			Random random = new Random(42);
+			for (Company company : new Company[] { heapCompany, offHeapCompany }) {
+				random.setSeed(42);
+				for (int p = 0; p < 50; p++) {
+					company.addProduct(company.createProduct("Product" + p, (p % 2 == 0) ? "H L" : "L H"));
+				}
+				for (int i = 0; i < 2000; i++) {
+					company.updateQuote("Product" + random.nextInt(50), "Competitor" + random.nextInt(40),
+							100 + random.nextInt(20) * 5.0);
+				}
+				company.addCompetitor(new Competitor("Competitor7"));
+			}
+
+			assertTrue(store.getAllocatedBytes() > 1024);
+			assertEquals(byName(heapCompany.calculateAllPrices()), byName(offHeapCompany.calculateAllPrices()));
+			assertEquals(byName(heapCompany.calculateAllFixedPointPrices()),
+					byName(offHeapCompany.calculateAllFixedPointPrices()));
+			assertTrue(offHeapCompany.getCompetitorByCompetitorName("Competitor7").getProductPrices().isEmpty());
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void shouldNotHoldConcurrentQuotesOffHeap() {
+		new Company(true).enableOffHeapQuotes();
+	}
+
+	private static Map<String, Number> byName(Map<Product, ? extends Number> productPrices) {
+		Map<String, Number> prices = new TreeMap<String, Number>();
+		for (Map.Entry<Product, ? extends Number> productPrice : productPrices.entrySet()) {
+			prices.put(productPrice.getKey().getName(), productPrice.getValue());
+		}
+		return prices;
+	}
+
+}
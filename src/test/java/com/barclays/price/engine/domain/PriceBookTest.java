@@ -0,0 +1,162 @@
+package com.barclays.price.engine.domain;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.barclays.price.engine.logic.HighSupplyHighDemandPriceSelection;
+
+public class PriceBookTest {
+
+	PriceBook priceBook;
+	Product product;
+
+	@Before
+	public void setUp() {
+		priceBook = new PriceBook();
+		product = new Product("Moto Phone", new HighSupplyHighDemandPriceSelection());
+	}
+
+	@Test
+	public void shouldReturnNoQuotesForUnquotedProduct() {
+		assertNull(priceBook.getQuotes(product));
+	}
+
+	@Test
+	public void shouldKeepQuotesOrderedByCompetitorName() {
+		priceBook.addQuote(product, new Competitor("Snapdeal"), 300.0);
+		priceBook.addQuote(product, new Competitor("Amazon"), 100.0);
+		priceBook.addQuote(product, new Competitor("Flipkart"), 200.0);
+
+		ProductQuotes quotes = priceBook.getQuotes(product);
+		assertEquals(3, quotes.size());
+		assertArrayEquals(new double[] { 100.0, 200.0, 300.0 }, quotes.toPriceArray(), 0.0);
+	}
+
+	@Test
+	public void shouldReplaceQuoteOfSameCompetitor() {
+		Competitor competitor = new Competitor("Amazon");
+		priceBook.addQuote(product, competitor, 100.0);
+		priceBook.addQuote(product, competitor, 120.0);
+
+		ProductQuotes quotes = priceBook.getQuotes(product);
+		assertEquals(1, quotes.size());
+		assertEquals(120.0, quotes.getPrice(0), 0.0);
+	}
+
+	@Test
+	public void shouldRecomputeRunningSumLostToRoundingOnceQuotesAreUpdatedAsOften() {
+		Competitor amazon = new Competitor("Amazon");
+		Competitor flipkart = new Competitor("Flipkart");
+		priceBook.addQuote(product, amazon, 0.1);
+		priceBook.addQuote(product, flipkart, 0.2);
+		priceBook.addQuote(product, flipkart, 1e17);
+		priceBook.addQuote(product, flipkart, 0.2);
+		priceBook.addQuote(product, amazon, 0.1);
+		priceBook.addQuote(product, amazon, 0.1);
+
+		assertEquals(0.3, priceBook.getQuotes(product).getSum(), 1e-9);
+	}
+
+	@Test
+	public void shouldAssignDenseIdsToProductsInOrderOfFirstQuote() {
+		Product other = new Product("IPhone", new HighSupplyHighDemandPriceSelection());
+		priceBook.addQuote(product, new Competitor("Amazon"), 100.0);
+		priceBook.addQuote(other, new Competitor("Amazon"), 200.0);
+
+		assertEquals(0, product.getId());
+		assertEquals(1, other.getId());
+		assertEquals(2, priceBook.getProductCount());
+		assertSame(priceBook.getQuotes(other), priceBook.getQuotes(1));
+	}
+
+	@Test
+	public void shouldFindQuotesOfReplacedProductByName() {
+		priceBook.addQuote(product, new Competitor("Amazon"), 100.0);
+		Product replacement = new Product("Moto Phone", new HighSupplyHighDemandPriceSelection());
+		priceBook.registerProduct(replacement);
+
+		assertEquals(product.getId(), replacement.getId());
+		assertSame(priceBook.getQuotes(replacement), priceBook.getQuotes(product));
+		assertEquals(100.0, priceBook.getQuotes(replacement).getPrice(0), 0.0);
+	}
+
+	@Test
+	public void shouldCollectQuotesOfCompetitorAcrossProducts() {
+		Competitor competitor = new Competitor("Amazon");
+		Product other = new Product("IPhone", new HighSupplyHighDemandPriceSelection());
+		priceBook.addQuote(product, competitor, 100.0);
+		priceBook.addQuote(other, competitor, 200.0);
+		priceBook.addQuote(other, new Competitor("Flipkart"), 210.0);
+
+		Map<Product, Double> productPrices = priceBook.getCompetitorQuotes(competitor);
+		assertEquals(2, productPrices.size());
+		assertEquals(100.0, productPrices.get(product), 0.0);
+		assertEquals(200.0, productPrices.get(other), 0.0);
+	}
+
+	@Test
+	public void shouldStayInSyncWithCompetitorsOfCompany() {
+		Company company = new Company();
+		company.addProduct(product);
+		Competitor competitor = new Competitor("Amazon");
+		competitor.addProductPrice(product, 100.0);
+		company.addCompetitor(competitor);
+		competitor.addProductPrice(product, 90.0);
+
+		assertEquals(1, company.getPriceBook().getQuotes(product).size());
+		assertEquals(90.0, company.getPriceBook().getQuotes(product).getPrice(0), 0.0);
+
+		Competitor replacement = new Competitor("Amazon");
+		company.addCompetitor(replacement);
+		assertEquals(0, company.getPriceBook().getQuotes(product).size());
+		assertEquals(90.0, competitor.getProductPrices().get(product), 0.0);
+	}
+
+	@Test
+	public void shouldRecordQuotesInPartitionsAsOneAfterAnother() {
+		Product[] catalogue = new Product[50];
+		Competitor[] competitors = new Competitor[7];
+		for (int i = 0; i < catalogue.length; i++) {
+			catalogue[i] = new Product("Product" + i, new HighSupplyHighDemandPriceSelection());
+		}
+		for (int i = 0; i < competitors.length; i++) {
+			competitors[i] = new Competitor("Competitor" + i);
+		}
+		int length = 2000;
+		Product[] products = new Product[length];
+		Competitor[] quoteCompetitors = new Competitor[length];
+		double[] prices = new double[length];
+		Random random = new Random(11);
+		for (int i = 0; i < length; i++) {
+			products[i] = catalogue[random.nextInt(catalogue.length)];
+			quoteCompetitors[i] = competitors[random.nextInt(competitors.length)];
+			prices[i] = 100.0 + random.nextInt(100);
+		}
+
+		PriceBook sequentialBook = new PriceBook();
+		for (int i = 0; i < length; i++) {
+			sequentialBook.addQuote(products[i], quoteCompetitors[i], prices[i]);
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			priceBook.addQuotes(products, quoteCompetitors, prices, length, executor, 4);
+		} finally {
+			executor.shutdown();
+		}
+
+		for (Product product : catalogue) {
+			for (Competitor competitor : competitors) {
+				assertEquals(sequentialBook.getCompetitorQuotes(competitor).get(product),
+						priceBook.getCompetitorQuotes(competitor).get(product));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,76 @@
+package com.barclays.price.engine.domain;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.barclays.price.engine.logic.HighSupplyHighDemandPriceSelection;
+import com.barclays.price.engine.logic.LowSupplyLowDemandPriceSelection;
+
+public class PriceCacheTest {
+
+	Company company;
+	Product product;
+	Competitor competitor;
+
+	@Before
+	public void setUp() {
+		company = new Company();
+		company.enablePriceCache(2);
+		product = new Product("Moto Phone", new HighSupplyHighDemandPriceSelection());
+		company.addProduct(product);
+		competitor = new Competitor("Amazon");
+		competitor.addProductPrice(product, 14999.0);
+		company.addCompetitor(competitor);
+	}
+
+	@Test
+	public void shouldServeRepeatedPriceFromCache() {
+		assertEquals(14999.0, company.calculatePriceForProduct(product), 0.0);
+		assertEquals(14999.0, company.calculatePriceForProduct(product), 0.0);
+
+		assertEquals(1, company.getPriceCache().getMissCount());
+		assertEquals(1, company.getPriceCache().getHitCount());
+	}
+
+	@Test
+	public void shouldInvalidateCachedPriceWhenQuoteChanges() {
+		company.calculatePriceForProduct(product);
+		competitor.addProductPrice(product, 13999.0);
+
+		assertEquals(13999.0, company.calculatePriceForProduct(product), 0.0);
+		assertEquals(2, company.getPriceCache().getMissCount());
+	}
+
+	@Test
+	public void shouldInvalidateCachedPriceWhenPriceSelectionCriteriaChanges() {
+		company.calculatePriceForProduct(product);
+		product.setFinalPriceSelectionCriteria(new LowSupplyLowDemandPriceSelection());
+
+		assertEquals(14999.0 * 1.1, company.calculatePriceForProduct(product), 0.001);
+		assertEquals(2, company.getPriceCache().getMissCount());
+	}
+
+	@Test
+	public void shouldEvictLeastRecentlyUsedPrice() {
+		Product otherProduct = new Product("IPhone", new HighSupplyHighDemandPriceSelection());
+		Product thirdProduct = new Product("Redmi", new HighSupplyHighDemandPriceSelection());
+		company.addProduct(otherProduct);
+		company.addProduct(thirdProduct);
+
+		company.calculatePriceForProduct(product);
+		company.calculatePriceForProduct(otherProduct);
+		company.calculatePriceForProduct(product);
+		company.calculatePriceForProduct(thirdProduct);
+
+		assertEquals(1, company.getPriceCache().getEvictionCount());
+		assertEquals(2, company.getPriceCache().size());
+
+		company.calculatePriceForProduct(product);
+		company.calculatePriceForProduct(otherProduct);
+		assertEquals(2, company.getPriceCache().getHitCount());
+		assertEquals(4, company.getPriceCache().getMissCount());
+	}
+
+}
@@ -0,0 +1,81 @@
+package com.barclays.price.engine.domain;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class PriceIndexTest {
+
+	Company company;
+	Product moto;
+	Product iphone;
+	Product nokia;
+	PriceIndex index;
+
+	@Before
+	public void setUp() {
+		company = new Company();
+		moto = company.createProduct("Moto", "L H");
+		iphone = company.createProduct("IPhone", "L H");
+		nokia = company.createProduct("Nokia", "H H");
+		company.addProduct(moto);
+		company.addProduct(iphone);
+		company.addProduct(nokia);
+		company.updateQuote("Moto", "Amazon", 200.0);
+		company.updateQuote("Moto", "Ebay", 200.0);
+		company.updateQuote("Moto", "Flipkart", 200.0);
+		company.updateQuote("Moto", "Snapdeal", 500.0);
+		company.updateQuote("IPhone", "Amazon", 500.0);
+		company.updateQuote("Nokia", "Amazon", 100.0);
+		company.pollPriceChanges();
+		index = company.enablePriceIndex();
+	}
+
+	@Test
+	public void shouldAnswerTopKByPriceAndCondition() {
+		assertEquals(3, index.size());
+		assertEquals(Arrays.asList(nokia, moto), index.getCheapest(2));
+		assertEquals(Arrays.asList(iphone), index.getMostExpensive(1));
+		assertEquals(Arrays.asList(moto, iphone), index.getCheapest("L H", 100));
+		assertEquals(Arrays.asList(nokia), index.getCheapest("H H", 100));
+		assertTrue(index.getCheapest("L L", 100).isEmpty());
+		assertEquals(company.calculatePriceForProduct(moto), index.getPrice(moto), 0.0);
+	}
+
+	@Test
+	public void shouldAnswerPriceAndSurvivingQuotesRanges() {
+		assertEquals(Arrays.asList(nokia, moto), index.getPricedBetween(100.0, 210.0));
+		assertTrue(index.getPricedBetween(101.0, 209.0).isEmpty());
+		assertEquals(3, index.getSurvivingQuotes(moto));
+		assertEquals(Arrays.asList(iphone, nokia), index.getSurvivingQuotesFewerThan(3));
+	}
+
+	@Test
+	public void shouldFollowCriteriaChangeOnNextPoll() {
+		company.setFinalPriceSelectionCriteria(nokia, company.getStrategyRegistry().get("L H"));
+
+		assertEquals(1, company.pollPriceChanges().size());
+		assertEquals(company.calculatePriceForProduct(nokia), index.getPrice(nokia), 0.0);
+		assertEquals(Arrays.asList(nokia), index.getCheapest("L H", 1));
+	}
+
+	@Test
+	public void shouldFollowPriceChangesIncrementally() {
+		company.updateQuote("Nokia", "Amazon", 102.0);
+		company.updateQuote("IPhone", "Amazon", 600.0);
+		company.pollPriceChanges();
+
+		assertEquals(102.0, index.getPrice(nokia), 0.0);
+		assertEquals(Arrays.asList(iphone), index.getMovedMoreThan(0.03));
+		assertEquals(Arrays.asList(nokia, iphone), index.getMovedMoreThan(0.0));
+
+		Product samsung = company.createProduct("Samsung", "H H");
+		company.addProduct(samsung);
+		assertEquals(Arrays.asList(samsung, nokia), index.getCheapest("H H", 2));
+		assertEquals(-1.0, index.getPrice(samsung), 0.0);
+	}
+
+}
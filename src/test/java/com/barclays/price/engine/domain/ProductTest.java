@@ -6,7 +6,6 @@ import org.junit.Test;
 import com.barclays.price.engine.logic.HighSupplyHighDemandPriceSelection;
 import com.barclays.price.engine.logic.LowSupplyHighDemandPriceSelection;
 import com.barclays.price.engine.logic.ProductFinalPriceSelection;
-import com.sun.xml.internal.ws.policy.spi.AssertionCreationException;
 
 public class ProductTest {
 
@@ -36,4 +35,24 @@ public class ProductTest {
 		assertEquals(true, ((product1.compareTo(product2)) > 0));
 	}
 
+	@Test
+	public void shouldCountEveryCriteriaChangeMadeConcurrently() throws InterruptedException {
+		final Product product = new Product("IPhone", new HighSupplyHighDemandPriceSelection());
+		final ProductFinalPriceSelection strategy = new LowSupplyHighDemandPriceSelection();
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(() -> {
+				for (int j = 0; j < 10000; j++) {
+					product.setFinalPriceSelectionCriteria(strategy);
+				}
+			});
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(40000, product.getCriteriaVersion());
+	}
+
 }
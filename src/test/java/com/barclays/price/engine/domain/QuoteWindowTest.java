@@ -0,0 +1,94 @@
+package com.barclays.price.engine.domain;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class QuoteWindowTest {
+
+	Company company;
+	Product product;
+
+	@Before
+	public void setUp() {
+		company = new Company();
+		product = company.createProduct("Moto", "H H");
+		company.addProduct(product);
+		company.enableQuoteWindow(1000);
+	}
+
+	@Test
+	public void shouldExpireQuotesOlderThanWindow() {
+		company.recordQuote("Moto", "Amazon", 100.0, 0);
+		company.recordQuote("Moto", "Ebay", 110.0, 500);
+		company.recordQuote("Moto", "Flipkart", 110.0, 600);
+		assertEquals(110.0, company.calculatePriceForProduct(product), 0.0);
+
+		company.recordQuote("Moto", "Amazon", 120.0, 900);
+		assertEquals(1, company.advanceQuoteWindow(1500));
+		assertEquals(120.0, company.calculatePriceForProduct(product), 0.0);
+		assertTrue(company.getCompetitorByCompetitorName("Ebay").getProductPrices().isEmpty());
+		assertEquals(1, company.getCompetitorByCompetitorName("Flipkart").getProductPrices().size());
+
+		assertEquals(2, company.advanceQuoteWindow(1900));
+		assertEquals(0, company.advanceQuoteWindow(1900));
+		assertEquals(-1.0, company.calculatePriceForProduct(product), 0.0);
+	}
+
+	@Test
+	public void shouldRepriceFromPriceCountsAsFullCalculation() {
+		for (int p = 0; p < 5; p++) {
+			company.addProduct(company.createProduct("Product" + p, (p % 2 == 0) ? "L L" : "H L"));
+		}
+
+		Random random = new Random(7);
+		for (long time = 0; time < 5000; time += 10) {
+			String productName = "Product" + random.nextInt(5);
+			company.recordQuote(productName, "Competitor" + random.nextInt(12), 100 + random.nextInt(8) * 25.0, time);
+			Map<Product, Double> changedPrices = company.pollPriceChanges();
+			for (Map.Entry<Product, Double> changedPrice : changedPrices.entrySet()) {
+				assertEquals(company.calculatePriceForProduct(changedPrice.getKey()), changedPrice.getValue(), 0.0);
+			}
+		}
+		assertTrue(company.advanceQuoteWindow(10000) > 0);
+		for (Map.Entry<Product, Double> changedPrice : company.pollPriceChanges().entrySet()) {
+			assertEquals(company.calculatePriceForProduct(changedPrice.getKey()), changedPrice.getValue(), 0.0);
+		}
+	}
+
+	@Test
+	public void shouldKeepQuoteRequotedWithoutTimestamp() {
+		company.recordQuote("Moto", "Amazon", 100.0, 0);
+		company.updateQuote("Moto", "Amazon", 130.0);
+		company.recordQuote("Moto", "Ebay", 110.0, 100);
+		Map<String, Map<String, Double>> quotes = new HashMap<String, Map<String, Double>>();
+		quotes.put("Moto", Collections.singletonMap("Ebay", 120.0));
+		company.updateQuotes(quotes);
+
+		assertEquals(0, company.advanceQuoteWindow(5000));
+		assertEquals(130.0, company.getCompetitorByCompetitorName("Amazon").getProductPrices().get(product), 0.0);
+		assertEquals(120.0, company.getCompetitorByCompetitorName("Ebay").getProductPrices().get(product), 0.0);
+
+		company.recordQuote("Moto", "Amazon", 140.0, 6000);
+		assertEquals(1, company.advanceQuoteWindow(7000));
+		assertTrue(company.getCompetitorByCompetitorName("Amazon").getProductPrices().isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectQuoteOlderThanClock() {
+		company.recordQuote("Moto", "Amazon", 100.0, 1000);
+		company.recordQuote("Moto", "Ebay", 100.0, 999);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void shouldNotStreamInConcurrentMode() {
+		new Company(true).enableQuoteWindow(1000);
+	}
+
+}
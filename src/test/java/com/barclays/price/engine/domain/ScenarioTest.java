@@ -0,0 +1,98 @@
+package com.barclays.price.engine.domain;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ScenarioTest {
+
+	Company company;
+	Map<String, Double> basePrices;
+
+	@Before
+	public void setUp() throws IOException {
+		company = new Company();
+		company.createObjectsFromFileData("products.txt");
+		basePrices = byName(company.calculateAllPrices());
+	}
+
+	@Test
+	public void shouldPriceLikeCompanyWithSameChangesWithoutTouchingBase() throws IOException {
+		List<String> productNames = Arrays.asList("ToshibaHardDrive", "IPhone6S", "Redmi", "SamsungPhone");
+		Scenario scenario = company.createScenario("Amazon drops 5%");
+		int adjusted = scenario.adjustQuotes("Amazon", productNames, 0.95);
+		scenario.overrideCondition("Redmi", "H H");
+		scenario.removeQuote("IPhone6S", "Ebay");
+		scenario.overrideQuote("IPhone6S", "Aardvark", 100.0);
+
+		Company changed = new Company();
+		changed.createObjectsFromFileData("products.txt");
+		for (String productName : productNames) {
+			Double price = changed.getQuote(changed.getProductByProductName(productName), "Amazon");
+			if (price != null) {
+				changed.updateQuote(productName, "Amazon", price * 0.95);
+			}
+		}
+		changed.getProductByProductName("Redmi")
+				.setFinalPriceSelectionCriteria(changed.getStrategyRegistry().get("H H"));
+		changed.getPriceBook().removeQuote(changed.getProductByProductName("IPhone6S"),
+				changed.getCompetitorByCompetitorName("Ebay"));
+		changed.updateQuote("IPhone6S", "Aardvark", 100.0);
+
+		assertEquals(adjusted + 3, scenario.getOverrideCount());
+		assertEquals(byName(changed.calculateAllPrices()), byName(scenario.calculateAllPrices()));
+		assertEquals(basePrices, byName(company.calculateAllPrices()));
+	}
+
+	@Test
+	public void shouldReturnOnlyChangedPricesOfEachScenarioPricedInParallel() {
+		Scenario unchanged = company.createScenario("unchanged");
+		unchanged.overrideCondition("Redmi", "L H");
+		Scenario repriced = company.createScenario("repriced");
+		repriced.overrideCondition("Redmi", "H L");
+
+		Map<Scenario, Map<Product, Double>> priceChanges = company
+				.calculateScenarioPriceChanges(Arrays.asList(unchanged, repriced));
+
+		assertTrue(priceChanges.get(unchanged).isEmpty());
+		Product redmi = company.getProductByProductName("Redmi");
+		assertEquals(repriced.calculatePriceForProduct(redmi), priceChanges.get(repriced).get(redmi), 0.0);
+		assertNotEquals(basePrices.get("Redmi"), priceChanges.get(repriced).get(redmi), 0.0);
+	}
+
+	@Test
+	public void shouldReadQuotesThroughOverrides() {
+		Scenario scenario = company.createScenario("overrides");
+		scenario.overrideQuote("Redmi", "Amazon", 1.0);
+		scenario.removeQuote("Redmi", "Ebay");
+
+		assertEquals(1.0, scenario.getQuote("Redmi", "Amazon"), 0.0);
+		assertNull(scenario.getQuote("Redmi", "Ebay"));
+		assertEquals(company.getQuote(company.getProductByProductName("Redmi"), "Flipkart"),
+				scenario.getQuote("Redmi", "Flipkart"));
+
+		scenario.clear();
+		assertEquals(0, scenario.getOverrideCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectUnknownProduct() {
+		company.createScenario("unknown").overrideQuote("Unknown", "Amazon", 1.0);
+	}
+
+	private static Map<String, Double> byName(Map<Product, Double> productPrices) {
+		Map<String, Double> prices = new TreeMap<String, Double>();
+		for (Map.Entry<Product, Double> price : productPrices.entrySet()) {
+			prices.put(price.getKey().getName(), price.getValue());
+		}
+		return prices;
+	}
+
+}
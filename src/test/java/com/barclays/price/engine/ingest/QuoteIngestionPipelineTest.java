@@ -0,0 +1,183 @@
+package com.barclays.price.engine.ingest;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.barclays.price.engine.domain.Company;
+import com.barclays.price.engine.domain.Product;
+import com.barclays.price.engine.domain.ProductSource;
+
+public class QuoteIngestionPipelineTest {
+
+	Company company;
+	Product product;
+	List<Map<Product, Double>> priceChanges;
+
+	@Before
+	public void setUp() {
+		company = new Company();
+		product = company.createProduct("Moto", "H H");
+		company.addProduct(product);
+		company.addProduct(company.createProduct("IPhone", "L L"));
+		priceChanges = new ArrayList<Map<Product, Double>>();
+	}
+
+	@Test
+	public void shouldCoalesceUpdatesOfSameProductAndCompetitorWithinBatch() throws InterruptedException {
+		QuoteIngestionPipeline pipeline = new QuoteIngestionPipeline(company, 100, 100, 60000,
+				BackpressurePolicy.BLOCK, priceChanges::add);
+		for (int i = 1; i <= 10; i++) {
+			pipeline.submit("Moto Amazon " + (100.0 + i));
+		}
+		pipeline.submit("Moto Ebay 110.0");
+		pipeline.submit("IPhone Amazon 300.0");
+		for (int i = 0; i < 88; i++) {
+			pipeline.submit("Moto Ebay 110.0");
+		}
+
+		pipeline.start();
+		pipeline.flush();
+		pipeline.close();
+
+		assertEquals(1, pipeline.getBatches());
+		assertEquals(97, pipeline.getCoalescedUpdates());
+		assertEquals(110.0, company.getPriceBook().getQuotes(product).getPrice(0), 0.0);
+		assertEquals(1, priceChanges.size());
+		assertEquals(2, priceChanges.get(0).size());
+	}
+
+	@Test(timeout = 30000)
+	public void shouldApplyEveryUpdateAcceptedWhileClosing() throws InterruptedException {
+		final QuoteIngestionPipeline pipeline = new QuoteIngestionPipeline(company, 16, 4, 0,
+				BackpressurePolicy.BLOCK, null);
+		pipeline.start();
+		List<Thread> submitters = new ArrayList<Thread>();
+		for (int i = 0; i < 4; i++) {
+			final String competitorName = "Competitor" + i;
+			Thread submitter = new Thread(() -> {
+				try {
+					for (int price = 1;; price++) {
+						pipeline.submit("Moto", competitorName, price);
+					}
+				} catch (IllegalStateException | InterruptedException e) {
+					// closed
+				}
+			});
+			submitters.add(submitter);
+			submitter.start();
+		}
+
+		Thread.sleep(50);
+		pipeline.close();
+		for (Thread submitter : submitters) {
+			submitter.join();
+		}
+
+		pipeline.flush();
+		assertEquals(4, company.getPriceBook().getQuotes(product).size());
+	}
+
+	@Test
+	public void shouldCloseBatchOnceItReachesMaximumSize() throws InterruptedException {
+		QuoteIngestionPipeline pipeline = new QuoteIngestionPipeline(company, 100, 4, 60000,
+				BackpressurePolicy.BLOCK, null);
+		for (int i = 0; i < 10; i++) {
+			pipeline.submit("Moto Competitor" + i, "Amazon", 100.0);
+		}
+		for (int i = 0; i < 10; i++) {
+			pipeline.submit("Moto", "Competitor" + i, 100.0 + i);
+		}
+
+		pipeline.start();
+		pipeline.flush();
+		pipeline.close();
+
+		assertEquals(5, pipeline.getBatches());
+		assertEquals(10, pipeline.getUnknownProductUpdates());
+		assertEquals(10, company.getPriceBook().getQuotes(product).size());
+		assertEquals(4.0, pipeline.getMeanBatchSize(), 0.0);
+	}
+
+	@Test
+	public void shouldRejectUpdatesWhenQueueIsFull() throws InterruptedException {
+		QuoteIngestionPipeline pipeline = new QuoteIngestionPipeline(company, 2, 10, 0,
+				BackpressurePolicy.REJECT, null);
+
+		assertTrue(pipeline.submit("Moto Amazon 100.0"));
+		assertTrue(pipeline.submit("Moto Ebay 100.0"));
+		assertFalse(pipeline.submit("Moto Flipkart 100.0"));
+
+		assertEquals(1, pipeline.getRejectedUpdates());
+		assertEquals(3, pipeline.getSubmittedUpdates());
+		assertEquals(2, pipeline.getQueueSize());
+	}
+
+	@Test
+	public void shouldDropOldestUpdatesWhenQueueIsFull() throws InterruptedException {
+		QuoteIngestionPipeline pipeline = new QuoteIngestionPipeline(company, 2, 10, 0,
+				BackpressurePolicy.DROP_OLDEST, null);
+		pipeline.submit("Moto Amazon 100.0");
+		pipeline.submit("Moto Ebay 100.0");
+		pipeline.submit("Moto Flipkart 100.0");
+
+		pipeline.start();
+		pipeline.flush();
+		pipeline.close();
+
+		assertEquals(1, pipeline.getDroppedUpdates());
+		assertEquals(2, company.getPriceBook().getQuotes(product).size());
+		assertNull(company.getCompetitorByCompetitorName("Amazon"));
+	}
+
+	@Test
+	public void shouldReportOnlyProductsOfTheBatchLeavingOtherChangesToPoll() throws InterruptedException {
+		company.updateQuote("IPhone", "Amazon", 300.0);
+		QuoteIngestionPipeline pipeline = new QuoteIngestionPipeline(company, priceChanges::add);
+
+		pipeline.start();
+		pipeline.submit("Moto Amazon 100.0");
+		pipeline.flush();
+		pipeline.close();
+
+		assertEquals(1, priceChanges.size());
+		assertEquals(Double.valueOf(100.0), priceChanges.get(0).get(product));
+		assertEquals(1, priceChanges.get(0).size());
+		assertEquals(2, company.pollPriceChanges().size());
+	}
+
+	@Test
+	public void shouldCountFailedBatchAndStillFlushWhenProductLookupFails() throws InterruptedException {
+		company.setProductSource(new ProductSource() {
+
+			@Override
+			public boolean materialize(Company company, String productName) throws IOException {
+				throw new IOException("Products file is gone");
+			}
+
+			@Override
+			public void materializeAll(Company company) throws IOException {
+				throw new IOException("Products file is gone");
+			}
+
+		});
+		QuoteIngestionPipeline pipeline = new QuoteIngestionPipeline(company, priceChanges::add);
+
+		pipeline.start();
+		pipeline.submit("Nokia Amazon 100.0");
+		pipeline.flush();
+		pipeline.submit("Moto Amazon 100.0");
+		pipeline.flush();
+		pipeline.close();
+
+		assertEquals(1, pipeline.getFailedBatches());
+		assertEquals(1, priceChanges.size());
+	}
+
+}
@@ -0,0 +1,59 @@
+package com.barclays.price.engine.loader;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.barclays.price.engine.domain.Company;
+import com.barclays.price.engine.domain.Product;
+
+public class CompanySnapshotTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void shouldRoundTripCompanyThroughSnapshotWithIdenticalPrices() throws IOException {
+		Company company = new Company();
+		company.createObjectsFromFileData("products.txt");
+		File snapshot = temporaryFolder.newFile("products.snapshot");
+
+		new CompanySnapshot().write(company, snapshot.getPath());
+		Company loadedCompany = new Company();
+		new CompanySnapshot().load(loadedCompany, snapshot.getPath());
+
+		assertEquals(company.getProducts().size(), loadedCompany.getProducts().size());
+		assertEquals(company.getCompetitors().size(), loadedCompany.getCompetitors().size());
+		for (Product product : company.getProducts().values()) {
+			Product loadedProduct = loadedCompany.getProductByProductName(product.getName());
+			assertEquals(product.getFinalPriceSelectionCriteria().getClass(),
+					loadedProduct.getFinalPriceSelectionCriteria().getClass());
+			assertEquals(company.collectCompetitorsPriceList(product),
+					loadedCompany.collectCompetitorsPriceList(loadedProduct));
+			assertEquals(company.calculatePriceForProduct(product), loadedCompany.calculatePriceForProduct(loadedProduct),
+					0.0);
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void shouldRejectSnapshotOfAnotherVersion() throws IOException {
+		Company company = new Company();
+		company.createObjectsFromFileData("products.txt");
+		File snapshot = temporaryFolder.newFile("products.snapshot");
+		new CompanySnapshot().write(company, snapshot.getPath());
+
+		try (RandomAccessFile file = new RandomAccessFile(snapshot, "rw")) {
+			file.seek(4);
+			file.writeInt(CompanySnapshot.VERSION + 1);
+		}
+
+		new CompanySnapshot().load(new Company(), snapshot.getPath());
+	}
+
+}
@@ -0,0 +1,109 @@
+package com.barclays.price.engine.loader;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.barclays.price.engine.domain.Company;
+import com.barclays.price.engine.domain.Product;
+
+public class LazyProductFileLoaderTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void shouldBuildOnlyProductsAskedFor() throws IOException {
+		Company expected = new Company();
+		expected.createObjectsFromFileData("products.txt");
+
+		Company company = new Company();
+		LazyProductFileLoader loader = new LazyProductFileLoader(64);
+		loader.load(company, "products.txt");
+		assertEquals(4, loader.getRemainingProducts());
+
+		Product product = company.getProductByProductName("Redmi");
+		assertEquals(3, loader.getRemainingProducts());
+		assertEquals(expected.calculatePriceForProduct(expected.getProductByProductName("Redmi")),
+				company.calculatePriceForProduct(product), 0.0);
+		assertSame(product, company.getProductByProductName("Redmi"));
+		assertNull(company.getProductByProductName("Nokia"));
+	}
+
+	@Test
+	public void shouldBuildRemainingProductsForWholeCatalogue() throws IOException {
+		Company expected = new Company();
+		expected.createObjectsFromFileData("products.txt");
+
+		Company company = new Company();
+		LazyProductFileLoader loader = new LazyProductFileLoader(64);
+		loader.load(company, "products.txt");
+		company.getProductByProductName("SamsungPhone");
+
+		assertEquals(pricesByName(expected.calculateAllPrices()), pricesByName(company.calculateAllPrices()));
+		assertEquals(0, loader.getRemainingProducts());
+		assertEquals(expected.getCompetitors().keySet(), company.getCompetitors().keySet());
+	}
+
+	@Test
+	public void shouldKeepProductAddedDirectlyOverFileProductOfSameName() throws IOException {
+		Company company = new Company();
+		LazyProductFileLoader loader = new LazyProductFileLoader(64);
+		loader.load(company, "products.txt");
+		Product redmi = company.createProduct("Redmi", "L H");
+		company.addProduct(redmi);
+		company.updateQuote("Redmi", "Amazon", 50.0);
+		double price = company.calculatePriceForProduct(redmi);
+
+		assertEquals(4, company.getProducts().size());
+		assertEquals(0, loader.getRemainingProducts());
+		assertSame(redmi, company.getProductByProductName("Redmi"));
+		assertEquals(price, company.calculatePriceForProduct(redmi), 0.0);
+	}
+
+	@Test
+	public void shouldKnowOnlyNamesOfFile() throws IOException {
+		LazyProductFileLoader loader = new LazyProductFileLoader(64);
+		loader.load(new Company(), "products.txt");
+
+		assertTrue(loader.contains("Redmi"));
+		assertFalse(loader.contains("Nokia"));
+	}
+
+	@Test(expected = ClosedChannelException.class)
+	public void shouldCloseFileWhenCompanyLetsGoOfLoader() throws IOException {
+		Company company = new Company();
+		LazyProductFileLoader loader = new LazyProductFileLoader(64);
+		loader.load(company, "products.txt");
+		company.setProductSource(null);
+
+		loader.materialize(new Company(), "Redmi");
+	}
+
+	@Test(expected = IOException.class)
+	public void shouldRejectQuoteOfUnknownProduct() throws IOException {
+		File file = temporaryFolder.newFile("products.txt");
+		Files.write(file.toPath(), "1\nRedmi L H\n1\nNokia Flipkart 11299.0\n".getBytes(StandardCharsets.UTF_8));
+
+		new LazyProductFileLoader().load(new Company(), file.getPath());
+	}
+
+	private static Map<String, Double> pricesByName(Map<Product, Double> productPrices) {
+		Map<String, Double> prices = new TreeMap<String, Double>();
+		for (Map.Entry<Product, Double> productPrice : productPrices.entrySet()) {
+			prices.put(productPrice.getKey().getName(), productPrice.getValue());
+		}
+		return prices;
+	}
+
+}
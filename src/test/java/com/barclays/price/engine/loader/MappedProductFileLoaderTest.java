@@ -0,0 +1,119 @@
+package com.barclays.price.engine.loader;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.barclays.price.engine.domain.Company;
+import com.barclays.price.engine.domain.Competitor;
+import com.barclays.price.engine.domain.Product;
+import com.barclays.price.engine.exception.InvalidMarketConditionStringException;
+
+public class MappedProductFileLoaderTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void shouldLoadSameCatalogueAsFileReaderLoading() throws IOException {
+		Company expected = new Company();
+		expected.createObjectsFromFileData("products.txt");
+
+		Company company = new Company();
+		new MappedProductFileLoader().load(company, "products.txt");
+
+		assertSamePrices(expected, company);
+	}
+
+	@Test
+	public void shouldLoadLinesSpanningMappingWindows() throws IOException {
+		Company expected = new Company();
+		expected.createObjectsFromFileData("products.txt");
+
+		Company company = new Company();
+		new MappedProductFileLoader(64, 1, 0).load(company, "products.txt");
+
+		assertSamePrices(expected, company);
+	}
+
+	@Test
+	public void shouldLoadFileWithWindowsLineEndings() throws IOException {
+		File file = temporaryFolder.newFile("products.txt");
+		Files.write(file.toPath(), "1\r\nRedmi L H\r\n2\r\nRedmi Flipkart 11299.0\r\nRedmi Ebay 11299.5"
+				.getBytes(StandardCharsets.UTF_8));
+
+		Company company = new Company();
+		new MappedProductFileLoader().load(company, file.getPath());
+
+		assertEquals(1, company.getProducts().size());
+		assertEquals(2, company.getCompetitors().size());
+		assertEquals(11299.5, company.getCompetitorByCompetitorName("Ebay").getProductPrices()
+				.get(company.getProductByProductName("Redmi")), 0.0);
+	}
+
+	@Test
+	public void shouldLoadCompetitorsInParallelChunksSameAsSequentially() throws IOException {
+		StringBuilder content = new StringBuilder("3\nRedmi L H\nIPhone6S L L\nToshibaHardDrive H H\n300\n");
+		String[] products = { "Redmi", "IPhone6S", "ToshibaHardDrive" };
+		for (int i = 0; i < 300; i++) {
+			content.append(products[i % 3]).append(" Competitor").append(i % 17).append(' ')
+					.append(1000 + (i * 31) % 97).append(".5\n");
+		}
+		content.append("TrailingLine Ignored NotAPrice\n");
+		File file = temporaryFolder.newFile("products.txt");
+		Files.write(file.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+
+		Company expected = new Company();
+		expected.createObjectsFromFileData(file.getPath());
+
+		Company company = new Company();
+		new MappedProductFileLoader(MappedLineReader.DEFAULT_WINDOW_SIZE, 4, 100).load(company, file.getPath());
+
+		assertSamePrices(expected, company);
+		for (Competitor competitor : expected.getCompetitors().values()) {
+			Map<Product, Double> loadedPrices = company.getCompetitorByCompetitorName(competitor.getName())
+					.getProductPrices();
+			assertEquals(competitor.getProductPrices().size(), loadedPrices.size());
+			for (Map.Entry<Product, Double> productPrice : competitor.getProductPrices().entrySet()) {
+				assertEquals(productPrice.getValue(), loadedPrices.get(productPrice.getKey()));
+			}
+		}
+	}
+
+	@Test(expected = InvalidMarketConditionStringException.class)
+	public void shouldRejectInvalidMarketCondition() throws IOException {
+		File file = temporaryFolder.newFile("products.txt");
+		Files.write(file.toPath(), "1\nRedmi M H\n0\n".getBytes(StandardCharsets.UTF_8));
+
+		new MappedProductFileLoader().load(new Company(), file.getPath());
+	}
+
+	@Test
+	public void shouldParsePricesSameAsDoubleParseDouble() {
+		String[] prices = { "0", "4000.0", "3799", "-12.5", "0.1", "123456789.123456789", "1e3", "9007199254740993" };
+		for (String price : prices) {
+			byte[] bytes = price.getBytes(StandardCharsets.UTF_8);
+			double parsed = ByteParsers.parseDouble(ByteBuffer.wrap(bytes), 0, bytes.length);
+			assertEquals(price, Double.doubleToLongBits(Double.parseDouble(price)), Double.doubleToLongBits(parsed));
+		}
+	}
+
+	private static void assertSamePrices(Company expected, Company company) {
+		assertEquals(expected.getProducts().size(), company.getProducts().size());
+		assertEquals(expected.getCompetitors().size(), company.getCompetitors().size());
+		for (Product product : expected.getProducts().values()) {
+			Product loadedProduct = company.getProductByProductName(product.getName());
+			assertEquals(expected.calculatePriceForProduct(product), company.calculatePriceForProduct(loadedProduct), 0.0);
+		}
+	}
+
+}
@@ -0,0 +1,33 @@
+package com.barclays.price.engine.logic;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class ApproximatePricingKernelTest {
+
+	@Test
+	public void shouldTakeFirstPriceWhenDistinctPricesFitCounters() {
+		ApproximatePricingKernel kernel = new ApproximatePricingKernel(4);
+
+		assertEquals(3.0, kernel.calculateInitialProductPrice(new double[] { 3.0, 1.0, 2.0 }, 3, 2.0), 0.0);
+		assertEquals(0, kernel.getErrorBound());
+	}
+
+	@Test
+	public void shouldDepartFromFirstPriceWithinErrorBoundWhenDistinctPricesOutnumberCounters() {
+		ApproximatePricingKernel kernel = new ApproximatePricingKernel(2);
+
+		assertEquals(3.0, kernel.calculateInitialProductPrice(new double[] { 1.0, 2.0, 3.0 }, 3, 2.0), 0.0);
+		assertEquals(1, kernel.getErrorBound());
+		assertEquals(3, kernel.getKept());
+	}
+
+	@Test
+	public void shouldReturnMinusOneWhenNoPriceIsKept() {
+		ApproximatePricingKernel kernel = new ApproximatePricingKernel(2);
+
+		assertEquals(-1.0, kernel.calculateInitialProductPrice(new double[] { 10.0, 1000.0 }, 2, 2020.0), 0.0);
+	}
+
+}
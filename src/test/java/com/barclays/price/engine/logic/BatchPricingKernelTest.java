@@ -0,0 +1,83 @@
+package com.barclays.price.engine.logic;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class BatchPricingKernelTest {
+
+	BatchPricingKernel batchPricingKernel;
+
+	@Before
+	public void setUp() {
+		batchPricingKernel = new BatchPricingKernel();
+	}
+
+	@Test
+	public void shouldFilterEachProductAroundItsOwnAverage() {
+		QuoteBatch batch = new QuoteBatch(2, 8);
+		add(batch, 750.0, 150.0, 50.0, 250.0, 200.0);
+		add(batch, 100.0, 100.0, 400.0);
+		double[] initialPrices = new double[2];
+
+		batchPricingKernel.calculateInitialProductPrices(batch, initialPrices);
+
+		assertEquals(3, batchPricingKernel.getRemainingQuotes(0));
+		assertEquals(150.0, initialPrices[0], 0.0);
+		assertEquals(2, batchPricingKernel.getRemainingQuotes(1));
+		assertEquals(100.0, initialPrices[1], 0.0);
+	}
+
+	@Test
+	public void shouldReturnMinusOneForProductWithoutQuotes() {
+		QuoteBatch batch = new QuoteBatch(2, 2);
+		add(batch);
+		add(batch, 250.0);
+		double[] initialPrices = new double[2];
+
+		batchPricingKernel.calculateInitialProductPrices(batch, initialPrices);
+
+		assertEquals(-1.0, initialPrices[0], 0.0);
+		assertEquals(250.0, initialPrices[1], 0.0);
+	}
+
+	@Test
+	public void shouldMatchPerProductCalculationForRandomPrices() {
+		Random random = new Random(42);
+		PricingKernel pricingKernel = new PricingKernel();
+		QuoteBatch batch = new QuoteBatch(1, 1);
+
+		for (int run = 0; run < 20; run++) {
+			batch.clear();
+			int productCount = 1 + random.nextInt(300);
+			for (int product = 0; product < productCount; product++) {
+				int length = random.nextInt(40);
+				int offset = batch.addProduct(length);
+				for (int i = 0; i < length; i++) {
+					batch.getPrices()[offset + i] = (random.nextInt(8) == 0) ? random.nextInt(20) * 100.0
+							: 1000.0 + random.nextInt(10) * 0.5;
+				}
+			}
+			double[] initialPrices = new double[productCount];
+
+			batchPricingKernel.calculateInitialProductPrices(batch, initialPrices);
+
+			for (int product = 0; product < productCount; product++) {
+				int length = batch.getQuoteCount(product);
+				double[] prices = pricingKernel.workBuffer(length);
+				System.arraycopy(batch.getPrices(), batch.getOffset(product), prices, 0, length);
+				double expected = pricingKernel.calculateInitialProductPrice(prices, length);
+				assertEquals(Double.doubleToLongBits(expected), Double.doubleToLongBits(initialPrices[product]));
+			}
+		}
+	}
+
+	private static void add(QuoteBatch batch, double... prices) {
+		int offset = batch.addProduct(prices.length);
+		System.arraycopy(prices, 0, batch.getPrices(), offset, prices.length);
+	}
+
+}
@@ -0,0 +1,57 @@
+package com.barclays.price.engine.logic;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class FixedPointPricingKernelTest {
+
+	FixedPointPricingKernel fixedPointKernel;
+
+	@Before
+	public void setUp() {
+		fixedPointKernel = new FixedPointPricingKernel(2);
+	}
+
+	@Test
+	public void shouldParseDecimalTextToMinorUnits() {
+		assertEquals(1129950, FixedPointPricingKernel.parse("11299.5", 2));
+		assertEquals(7, FixedPointPricingKernel.parse("0.07", 2));
+		assertEquals(-101, FixedPointPricingKernel.parse("-1.005", 2));
+		assertEquals(1200, FixedPointPricingKernel.parse("12", 2));
+		assertEquals("-1.01", FixedPointPricingKernel.format(-101, 2));
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void shouldRejectTextThatIsNotPlainDecimal() {
+		FixedPointPricingKernel.parse("1e3", 2);
+	}
+
+	@Test
+	public void shouldKeepPriceExactlyOnTheUpperBound() {
+		long[] units = { 127, 195, 322 };
+		double[] prices = { 1.27, 1.95, 3.22 };
+
+		assertEquals(3, FixedPointPricingKernel.filterPrices(units, units.length));
+		assertEquals(2, PricingKernel.filterPrices(prices, prices.length));
+	}
+
+	@Test
+	public void shouldBreakModeTiesAsFloatingPointCalculationDoes() {
+		assertEquals(15000, fixedPointKernel.calculateMode(new long[] { 25000, 15000, 25000, 15000, 30000 }, 5));
+		assertEquals(25000, fixedPointKernel.calculateMode(new long[] { 25000, 15000, 20000 }, 3));
+		assertEquals(-100, fixedPointKernel.calculateInitialProductPrice(new long[0], 0));
+	}
+
+	@Test
+	public void shouldRoundAdjustmentHalfAwayFromZero() {
+		long fivePercent = 50000000L;
+
+		assertEquals(1050, FixedPointPricingKernel.adjust(1000, fivePercent));
+		assertEquals(11, FixedPointPricingKernel.adjust(10, fivePercent));
+		assertEquals(-11, FixedPointPricingKernel.adjust(-10, fivePercent));
+		assertEquals(9, FixedPointPricingKernel.adjust(10, -fivePercent));
+	}
+
+}
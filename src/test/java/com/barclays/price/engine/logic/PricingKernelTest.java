@@ -0,0 +1,103 @@
+package com.barclays.price.engine.logic;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class PricingKernelTest {
+
+	PricingKernel pricingKernel;
+
+	@Before
+	public void setUp() {
+		pricingKernel = new PricingKernel();
+	}
+
+	@Test
+	public void shouldFilterPricesInPlaceKeepingTheirOrder() {
+		double[] prices = { 750.0, 150.0, 50.0, 250.0, 200.0 };
+
+		int remaining = PricingKernel.filterPrices(prices, prices.length);
+
+		assertEquals(3, remaining);
+		assertEquals(150.0, prices[0], 0.0);
+		assertEquals(250.0, prices[1], 0.0);
+		assertEquals(200.0, prices[2], 0.0);
+	}
+
+	@Test
+	public void shouldChooseLeastPriceAmongMostFrequentPrices() {
+		double[] prices = { 250.0, 150.0, 250.0, 150.0, 300.0 };
+		assertEquals(150.0, pricingKernel.calculateMode(prices, prices.length), 0.0);
+	}
+
+	@Test
+	public void shouldChooseFirstPriceIfAllPricesAreDistinct() {
+		double[] prices = { 250.0, 150.0, 200.0 };
+		assertEquals(250.0, pricingKernel.calculateMode(prices, prices.length), 0.0);
+	}
+
+	@Test
+	public void shouldReturnMinusOneForNoPrices() {
+		assertEquals(-1.0, pricingKernel.calculateInitialProductPrice(new double[0], 0), 0.0);
+	}
+
+	@Test
+	public void shouldMatchListBasedCalculationForRandomPrices() {
+		Random random = new Random(42);
+
+		for (int run = 0; run < 2000; run++) {
+			int length = random.nextInt(40);
+			double[] prices = pricingKernel.workBuffer(length);
+			List<Double> competitorsPrices = new ArrayList<Double>();
+			for (int i = 0; i < length; i++) {
+				double price = (random.nextInt(8) == 0) ? random.nextInt(20) * 100.0 : 1000.0 + random.nextInt(10) * 0.5;
+				prices[i] = price;
+				competitorsPrices.add(price);
+			}
+
+			double expected = referenceInitialProductPrice(competitorsPrices);
+			double actual = pricingKernel.calculateInitialProductPrice(prices, length);
+			assertEquals(Double.doubleToLongBits(expected), Double.doubleToLongBits(actual));
+		}
+	}
+
+	private static double referenceInitialProductPrice(List<Double> competitorsPrices) {
+		double sum = 0.0;
+		for (Double price : competitorsPrices) {
+			sum += price;
+		}
+		double averagePrice = sum / competitorsPrices.size();
+		competitorsPrices.removeIf(price -> (price > (1.5 * averagePrice)) || (price < (0.5 * averagePrice)));
+
+		HashMap<Double, Integer> priceCountMap = new HashMap<Double, Integer>();
+		int max = -1;
+		double frequentlyOccuringMinPrice = -1;
+		for (double price : competitorsPrices) {
+			if (priceCountMap.get(price) != null) {
+				int count = priceCountMap.get(price) + 1;
+				priceCountMap.put(price, count);
+				if (count > max) {
+					max = count;
+					frequentlyOccuringMinPrice = price;
+				} else if ((count == max) && (price < frequentlyOccuringMinPrice)) {
+					frequentlyOccuringMinPrice = price;
+				}
+			} else {
+				priceCountMap.put(price, 1);
+				if (frequentlyOccuringMinPrice == -1) {
+					max = 1;
+					frequentlyOccuringMinPrice = price;
+				}
+			}
+		}
+		return frequentlyOccuringMinPrice;
+	}
+
+}
@@ -0,0 +1,101 @@
+package com.barclays.price.engine.logic;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SpaceSavingSketchTest {
+
+	@Test
+	public void shouldCountExactlyWhileCountersAreFree() {
+		SpaceSavingSketch sketch = new SpaceSavingSketch(4);
+		for (double price : new double[] { 250.0, 150.0, 250.0, 150.0, 300.0 }) {
+			sketch.offer(price);
+		}
+
+		assertEquals(2, sketch.estimate(250.0));
+		assertEquals(1, sketch.estimate(300.0));
+		assertEquals(0, sketch.estimate(100.0));
+		assertEquals(0, sketch.getErrorBound());
+		assertEquals(150.0, sketch.getMode(), 0.0);
+	}
+
+	@Test
+	public void shouldKeepCountsWithinErrorBoundWhenCountersAreShort() {
+		Random random = new Random(42);
+		SpaceSavingSketch sketch = new SpaceSavingSketch(16);
+		Map<Double, Long> frequencies = new HashMap<Double, Long>();
+		int offered = 20000;
+		for (int i = 0; i < offered; i++) {
+			double price = (random.nextInt(4) == 0) ? 999.5 : 1000.0 + random.nextInt(500) * 0.5;
+			sketch.offer(price);
+			frequencies.merge(price, 1L, Long::sum);
+		}
+
+		assertTrue(sketch.getErrorBound() <= offered / 16);
+		for (Map.Entry<Double, Long> frequency : frequencies.entrySet()) {
+			long estimate = sketch.estimate(frequency.getKey());
+			if (estimate > 0) {
+				assertTrue(estimate >= frequency.getValue());
+				assertTrue(estimate <= frequency.getValue() + sketch.getErrorBound());
+			} else {
+				assertTrue(frequency.getValue() <= sketch.getErrorBound());
+			}
+		}
+		assertEquals(999.5, sketch.getMode(), 0.0);
+	}
+
+	@Test
+	public void shouldStartOverWhenCleared() {
+		SpaceSavingSketch sketch = new SpaceSavingSketch(2);
+		for (double price : new double[] { 1.0, 2.0, 3.0, 3.0 }) {
+			sketch.offer(price);
+		}
+		sketch.clear();
+		sketch.offer(5.0);
+
+		assertEquals(1, sketch.getOffered());
+		assertEquals(0, sketch.estimate(3.0));
+		assertEquals(5.0, sketch.getMode(), 0.0);
+	}
+
+	@Test
+	public void shouldPriceLikeExactKernelWhenModeStandsOut() {
+		Random random = new Random(7);
+		PricingKernel exactKernel = new PricingKernel();
+		ApproximatePricingKernel approximateKernel = new ApproximatePricingKernel(32);
+
+		for (int run = 0; run < 200; run++) {
+			int length = 1 + random.nextInt(5000);
+			double mode = 1000.0 + random.nextInt(10);
+			double[] prices = new double[length];
+			double sum = 0.0;
+			for (int i = 0; i < length; i++) {
+				prices[i] = (random.nextInt(3) == 0) ? mode : 900.0 + random.nextInt(2000) * 0.1;
+				sum += prices[i];
+			}
+
+			double approximatePrice = approximateKernel.calculateInitialProductPrice(prices, length, sum / length);
+			double[] workBuffer = exactKernel.workBuffer(length);
+			System.arraycopy(prices, 0, workBuffer, 0, length);
+			assertEquals(exactKernel.calculateInitialProductPrice(workBuffer, length), approximatePrice, 0.0);
+		}
+	}
+
+	@Test
+	public void shouldFollowExactTieBreaksForFewPrices() {
+		ApproximatePricingKernel kernel = new ApproximatePricingKernel(8);
+		double[] distinct = { 250.0, 150.0, 200.0 };
+		double[] outliers = { 750.0, 150.0, 50.0, 250.0, 200.0 };
+
+		assertEquals(250.0, kernel.calculateInitialProductPrice(distinct, 3, 200.0), 0.0);
+		assertEquals(150.0, kernel.calculateInitialProductPrice(outliers, 5, 280.0), 0.0);
+		assertEquals(3, kernel.getKept());
+		assertEquals(-1.0, kernel.calculateInitialProductPrice(new double[0], 0, 0.0), 0.0);
+	}
+
+}
@@ -0,0 +1,68 @@
+package com.barclays.price.engine.logic;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class StrategyRegistryTest {
+
+	StrategyRegistry strategyRegistry;
+
+	@Before
+	public void setUp() {
+		strategyRegistry = new StrategyRegistry();
+		strategyRegistry.register("H H", new HighSupplyHighDemandPriceSelection());
+		strategyRegistry.register("H L", new HighSupplyLowDemandPriceSelection());
+		strategyRegistry.register("L H", new LowSupplyHighDemandPriceSelection());
+		strategyRegistry.register("L L", new LowSupplyLowDemandPriceSelection());
+	}
+
+	@Test
+	public void shouldGiveEachStrategyItsOwnCode() {
+		int code = strategyRegistry.codeOf(strategyRegistry.get("L H"));
+
+		assertNotEquals(StrategyRegistry.UNREGISTERED, code);
+		assertEquals(0.05, strategyRegistry.getAdjustmentFactor(code), 0.0);
+		assertEquals(5, strategyRegistry.getCodeCount());
+		assertEquals(StrategyRegistry.UNREGISTERED, strategyRegistry.codeOf(new LowSupplyHighDemandPriceSelection()));
+	}
+
+	@Test
+	public void shouldRegisterConditionsOfEverySupplyAndDemandLevel() {
+		String[] levels = { "L", "M", "H" };
+		strategyRegistry.registerLevels(levels, levels,
+				new double[][] { { 0.1, 0.15, 0.2 }, { -0.02, 0.0, 0.05 }, { -0.05, -0.03, 0.0 } });
+
+		assertEquals(9, strategyRegistry.asMap().size());
+		assertEquals(115.0, strategyRegistry.get("L M").calculateFinalCompetitivePrice(100.0), 1e-9);
+		assertEquals(98.0, strategyRegistry.get("M L").calculateFinalCompetitivePrice(100.0), 1e-9);
+	}
+
+	@Test
+	public void shouldApplyAdjustmentsExactlyAsStrategiesDo() {
+		ProductFinalPriceSelection custom = new ProductFinalPriceSelection() {
+			@Override
+			public double calculateFinalCompetitivePrice(double calculatedCompetitorsPrice) {
+				return Math.floor(calculatedCompetitorsPrice);
+			}
+		};
+		strategyRegistry.register("X X", custom);
+		ProductFinalPriceSelection[] strategies = { strategyRegistry.get("H H"), strategyRegistry.get("H L"),
+				strategyRegistry.get("L H"), strategyRegistry.get("L L"), custom, new LowSupplyLowDemandPriceSelection() };
+		double[] initialPrices = { 123.45, 999.99, 0.07, -1.0, 10.5, 333.33 };
+		int[] codes = new int[strategies.length];
+		for (int i = 0; i < strategies.length; i++) {
+			codes[i] = strategyRegistry.codeOf(strategies[i]);
+		}
+		double[] finalPrices = new double[strategies.length];
+
+		strategyRegistry.applyAdjustments(initialPrices, codes, strategies, finalPrices, strategies.length);
+
+		for (int i = 0; i < strategies.length; i++) {
+			assertEquals(Double.doubleToLongBits(strategies[i].calculateFinalCompetitivePrice(initialPrices[i])),
+					Double.doubleToLongBits(finalPrices[i]));
+		}
+	}
+
+}
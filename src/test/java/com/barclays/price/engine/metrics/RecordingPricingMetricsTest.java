@@ -0,0 +1,105 @@
+package com.barclays.price.engine.metrics;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.barclays.price.engine.domain.Company;
+import com.barclays.price.engine.domain.Product;
+
+public class RecordingPricingMetricsTest {
+
+	private RecordingPricingMetrics metrics;
+
+	@Before
+	public void setUp() {
+		metrics = new RecordingPricingMetrics();
+	}
+
+	@Test
+	public void shouldRecordEveryStageWhenPricingAProduct() {
+		Company company = new Company();
+		company.setMetrics(metrics);
+		Product product = company.createProduct("Moto Phone", "H H");
+		company.addProduct(product);
+		company.updateQuote("Moto Phone", "Competitor1", 100.0);
+		company.updateQuote("Moto Phone", "Competitor2", 100.0);
+		company.updateQuote("Moto Phone", "Competitor3", 120.0);
+		company.updateQuote("Moto Phone", "Competitor4", 400.0);
+
+		company.calculatePriceForProduct(product);
+
+		for (PipelineStage stage : new PipelineStage[] { PipelineStage.COLLECT, PipelineStage.FILTER,
+				PipelineStage.MODE, PipelineStage.PRICE }) {
+			assertEquals(1, metrics.getStageLatencies(stage).getCount());
+		}
+		assertEquals(4.0, metrics.getMeanQuotesPerProduct(), 0.0);
+		assertEquals(1.0, metrics.getMeanOutliersRemovedPerProduct(), 0.0);
+	}
+
+	@Test
+	public void shouldRecordApproximateKernelAsItsOwnStage() throws IOException {
+		Company company = new Company();
+		company.createObjectsFromFileData("products.txt");
+		company.enableApproximatePricing(0, 64);
+		Company measuredCompany = new Company();
+		measuredCompany.setMetrics(metrics);
+		measuredCompany.createObjectsFromFileData("products.txt");
+		measuredCompany.enableApproximatePricing(0, 64);
+
+		assertEquals(company.calculateAllPrices().values().toString(),
+				measuredCompany.calculateAllPrices().values().toString());
+		int productCount = measuredCompany.getProducts().size();
+		assertEquals(productCount, metrics.getStageLatencies(PipelineStage.APPROXIMATE).getCount());
+		assertEquals(productCount, metrics.getStageLatencies(PipelineStage.PRICE).getCount());
+		assertEquals(0, metrics.getStageLatencies(PipelineStage.MODE).getCount());
+		assertEquals(5.0, metrics.getMeanQuotesPerProduct(), 0.0);
+	}
+
+	@Test
+	public void shouldPriceSameWithMetricsEnabled() throws IOException {
+		Company company = new Company();
+		company.createObjectsFromFileData("products.txt");
+		Company measuredCompany = new Company();
+		measuredCompany.setMetrics(metrics);
+		measuredCompany.createObjectsFromFileData("products.txt");
+
+		assertEquals(company.calculateAllPrices().values().toString(),
+				measuredCompany.calculateAllPrices().values().toString());
+		assertEquals(company.getProducts().size(), metrics.getStageLatencies(PipelineStage.PRICE).getCount());
+		assertTrue(metrics.getLoadedLines() > 2);
+		assertEquals(1, metrics.getStageLatencies(PipelineStage.LOAD).getCount());
+	}
+
+	@Test
+	public void shouldReportPercentileAsUpperBoundOfItsBucket() {
+		Log2Histogram histogram = new Log2Histogram();
+		for (int i = 0; i < 99; i++) {
+			histogram.record(10);
+		}
+		histogram.record(1000);
+
+		assertEquals(100, histogram.getCount());
+		assertEquals(15, histogram.getPercentile(50));
+		assertEquals(1023, histogram.getPercentile(100));
+		assertEquals(19.9, histogram.getMean(), 1e-9);
+	}
+
+	@Test
+	public void shouldReportPercentileWithinThirtySecondOfValue() {
+		LogLinearHistogram histogram = new LogLinearHistogram();
+		for (int i = 0; i < 99; i++) {
+			histogram.record(10);
+		}
+		histogram.record(130000);
+
+		assertEquals(100, histogram.getCount());
+		assertEquals(10, histogram.getPercentile(50));
+		assertEquals(131071, histogram.getPercentile(100));
+		assertTrue(histogram.getPercentile(100) - 130000 <= 130000 / 32);
+	}
+
+}
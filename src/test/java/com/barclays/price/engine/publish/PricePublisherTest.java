@@ -0,0 +1,118 @@
+package com.barclays.price.engine.publish;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.barclays.price.engine.domain.Company;
+import com.barclays.price.engine.domain.Product;
+
+public class PricePublisherTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	Company company;
+	Path snapshot;
+	Path output;
+
+	@Before
+	public void setUp() throws IOException {
+		company = new Company();
+		company.createObjectsFromFileData("products.txt");
+		snapshot = temporaryFolder.getRoot().toPath().resolve("prices.snapshot");
+		output = temporaryFolder.getRoot().toPath().resolve("prices.csv");
+	}
+
+	@Test
+	public void shouldPublishOnlyPricesChangedSincePreviousRun() throws IOException {
+		PricePublisher publisher = new PricePublisher(snapshot, PriceOutputFormat.CSV);
+
+		assertEquals(4, publisher.publishChanges(company, output));
+		assertEquals(5, Files.readAllLines(output, StandardCharsets.US_ASCII).size());
+		assertEquals(0, publisher.publishChanges(company, output));
+		assertEquals(1, Files.readAllLines(output, StandardCharsets.US_ASCII).size());
+
+		company.updateQuote("Redmi", "Flipkart", 10999.0);
+		Product redmi = company.getProductByProductName("Redmi");
+
+		assertEquals(1, publisher.publishChanges(company, output));
+		List<String> lines = Files.readAllLines(output, StandardCharsets.US_ASCII);
+		assertEquals("product_id,product,price", lines.get(0));
+		assertEquals(redmi.getId() + ",Redmi," + company.calculatePriceForProduct(redmi), lines.get(1));
+	}
+
+	@Test
+	public void shouldPublishEveryPriceInSnapshotMode() throws IOException {
+		PricePublisher publisher = new PricePublisher(snapshot, PriceOutputFormat.CSV);
+		publisher.publishChanges(company, output);
+
+		assertEquals(4, publisher.publishSnapshot(company, output));
+		assertEquals(5, Files.readAllLines(output, StandardCharsets.US_ASCII).size());
+	}
+
+	@Test
+	public void shouldDeltaEncodeProductIdsInBinary() throws IOException {
+		new PricePublisher(snapshot, PriceOutputFormat.BINARY).publishChanges(company, output);
+		company.updateQuote("SamsungPhone", "Flipkart", 9199.0);
+		company.updateQuote("ToshibaHardDrive", "Amazon", 3899.0);
+
+		assertEquals(2, new PricePublisher(snapshot, PriceOutputFormat.BINARY).publishChanges(company, output));
+		ByteBuffer changes = ByteBuffer.wrap(Files.readAllBytes(output));
+		assertEquals(PriceChangeWriter.MAGIC, changes.getInt());
+		assertEquals(PriceChangeWriter.VERSION, changes.getInt());
+		assertEquals(2, changes.getInt());
+
+		Product toshiba = company.getProductByProductName("ToshibaHardDrive");
+		Product samsung = company.getProductByProductName("SamsungPhone");
+		assertEquals(toshiba.getId(), changes.get());
+		assertEquals(company.calculatePriceForProduct(toshiba), changes.getDouble(), 0.0);
+		assertEquals(samsung.getId() - toshiba.getId() - 1, changes.get());
+		assertEquals(company.calculatePriceForProduct(samsung), changes.getDouble(), 0.0);
+		assertFalse(changes.hasRemaining());
+	}
+
+	@Test
+	public void shouldPublishRemovalOfProductPricedByPreviousRun() throws IOException {
+		PricePublisher publisher = new PricePublisher(snapshot, PriceOutputFormat.CSV);
+		publisher.publishChanges(company, output);
+
+		Map<Product, Double> productPrices = company.calculateAllPrices();
+		Product samsung = company.getProductByProductName("SamsungPhone");
+		productPrices.remove(samsung);
+
+		try (SeekableByteChannel channel = Files.newByteChannel(output, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			assertEquals(1, publisher.publishChanges(productPrices, channel));
+		}
+		List<String> lines = Files.readAllLines(output, StandardCharsets.US_ASCII);
+		assertEquals(2, lines.size());
+		assertEquals(samsung.getId() + ",,", lines.get(1));
+	}
+
+	@Test
+	public void shouldTreatProductUnderAnotherProductsIdAsChanged() throws IOException {
+		PricePublisher publisher = new PricePublisher(snapshot, PriceOutputFormat.CSV);
+		publisher.publishChanges(company, output);
+
+		Company reordered = new Company();
+		reordered.addProduct(reordered.createProduct("Nokia", "H H"));
+		reordered.createObjectsFromFileData("products.txt");
+
+		assertEquals(5, publisher.publishChanges(reordered, output));
+	}
+
+}
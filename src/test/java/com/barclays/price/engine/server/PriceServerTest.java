@@ -0,0 +1,88 @@
+package com.barclays.price.engine.server;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.barclays.price.engine.domain.Company;
+import com.barclays.price.engine.domain.Competitor;
+import com.barclays.price.engine.domain.Product;
+
+public class PriceServerTest {
+
+	Company company;
+	PriceServer server;
+
+	@Before
+	public void setUp() throws IOException {
+		company = new Company();
+		Product product = company.createProduct("Moto Phone", "H H");
+		company.addProduct(product);
+		Competitor competitor = company.createCompetitor("Amazon");
+		competitor.addProductPrice(product, 100.0);
+		company.addCompetitor(competitor);
+
+		server = new PriceServer(company, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		server.start();
+	}
+
+	@After
+	public void tearDown() {
+		server.close();
+	}
+
+	@Test
+	public void shouldAnswerPricesOfRequestedProductsInOrder() throws IOException {
+		HttpURLConnection connection = open("?product=Moto+Phone&product=Nokia");
+
+		assertEquals(200, connection.getResponseCode());
+		assertEquals("Moto Phone\t100.0\nNokia\tunknown\n", read(connection.getInputStream()));
+		assertEquals(1, server.getRequestLatencies().getCount());
+	}
+
+	@Test
+	public void shouldRejectRequestWithoutProducts() throws IOException {
+		assertEquals(400, open("").getResponseCode());
+	}
+
+	@Test
+	public void shouldReportLatencyAndThroughputOfLoad() throws InterruptedException {
+		PriceLoadGenerator generator = new PriceLoadGenerator(server.getAddress(), Arrays.asList("Moto Phone"), 2);
+		generator.run(2, 200);
+
+		assertTrue(generator.getCompletedRequests() > 0);
+		assertEquals(0, generator.getFailedRequests());
+		assertTrue(generator.getRequestsPerSecond() > 0);
+		assertTrue(generator.getLatencies().getPercentile(99) >= generator.getLatencies().getPercentile(50));
+	}
+
+	private HttpURLConnection open(String query) throws IOException {
+		InetSocketAddress address = server.getAddress();
+		return (HttpURLConnection) new URL("http://" + address.getHostString() + ":" + address.getPort()
+				+ PriceServer.PRICES_PATH + query).openConnection();
+	}
+
+	private static String read(InputStream stream) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[256];
+		int read;
+		while ((read = stream.read(buffer)) >= 0) {
+			bytes.write(buffer, 0, read);
+		}
+		stream.close();
+		return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,81 @@
+package com.barclays.price.engine.shard;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.barclays.price.engine.domain.Company;
+import com.barclays.price.engine.domain.Product;
+
+public class ShardedCompanyTest {
+
+	Map<String, Double> singleNodePrices;
+
+	@Before
+	public void setUp() throws IOException {
+		Company company = new Company();
+		company.createObjectsFromFileData("products.txt");
+		singleNodePrices = new TreeMap<String, Double>();
+		for (Map.Entry<Product, Double> productPrice : company.calculateAllPrices().entrySet()) {
+			singleNodePrices.put(productPrice.getKey().getName(), productPrice.getValue());
+		}
+	}
+
+	@Test
+	public void shouldPriceAsSingleCompanyAcrossInProcessShards() throws IOException {
+		try (ShardedCompany company = ShardedCompany.inProcess(3)) {
+			company.createObjectsFromFileData("products.txt");
+
+			assertEquals(singleNodePrices, company.calculateAllPrices());
+			for (Map.Entry<String, Double> productPrice : singleNodePrices.entrySet()) {
+				assertEquals(productPrice.getValue(), company.calculatePriceForProduct(productPrice.getKey()), 0.0);
+			}
+		}
+	}
+
+	@Test
+	public void shouldPriceAsSingleCompanyAcrossShardServers() throws IOException {
+		try (ShardServer first = new ShardServer(new LocalCompanyShard(), 0);
+				ShardServer second = new ShardServer(new LocalCompanyShard(), 0)) {
+			first.start();
+			second.start();
+			try (ShardedCompany company = new ShardedCompany(Arrays.asList(connect(first), connect(second)))) {
+				company.createObjectsFromFileData("products.txt");
+
+				assertEquals(singleNodePrices, company.calculateAllPrices());
+				assertEquals(singleNodePrices.get("Redmi"), company.calculatePriceForProduct("Redmi"), 0.0);
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectUnknownProductOnRemoteShard() throws IOException {
+		try (ShardServer server = new ShardServer(new LocalCompanyShard(), 0);
+				RemoteCompanyShard shard = connect(server)) {
+			server.start();
+			shard.calculatePriceForProduct("Nokia");
+		}
+	}
+
+	@Test
+	public void shouldPriceAsSingleCompanyAcrossLocalProcesses() throws IOException {
+		try (ShardedCompany company = ShardedCompany.inLocalProcesses(2)) {
+			company.createObjectsFromFileData("products.txt");
+
+			assertEquals(singleNodePrices, company.calculateAllPrices());
+		}
+	}
+
+	private static RemoteCompanyShard connect(ShardServer server) throws IOException {
+		return new RemoteCompanyShard(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort()));
+	}
+
+}